@@ -0,0 +1,27 @@
+package contacts.async
+
+import contacts.core.ContactSummaryQuery
+import kotlinx.coroutines.*
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [ContactSummaryQuery.find].
+ */
+suspend fun ContactSummaryQuery.findWithContext(context: CoroutineContext = ASYNC_DISPATCHER):
+        ContactSummaryQuery.Result = withContext(context) { find { !isActive } }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [ContactSummaryQuery.find].
+ */
+fun ContactSummaryQuery.findAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<ContactSummaryQuery.Result> =
+    CoroutineScope(context).async { find { !isActive } }
@@ -0,0 +1,73 @@
+package contacts.async
+
+import android.content.ContentResolver
+import android.database.ContentObserver
+import android.net.Uri
+import android.provider.ContactsContract
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.onStart
+
+/**
+ * The URIs of the tables used by [contacts.core.Query] and [contacts.core.BroadQuery].
+ */
+internal val CONTACTS_TABLES_URIS: List<Uri> = listOf(
+    ContactsContract.Contacts.CONTENT_URI,
+    ContactsContract.RawContacts.CONTENT_URI,
+    ContactsContract.Data.CONTENT_URI
+)
+
+/**
+ * The default amount of time to wait for change notifications to stop coming in before emitting.
+ */
+internal const val DEFAULT_DEBOUNCE_MILLIS = 300L
+
+/**
+ * Emits once immediately and then every time the content at any of the given [uris] (or their
+ * descendants) has changed.
+ *
+ * Bursts of change notifications (e.g. while an account is being synced) are coalesced into a
+ * single emission, which only happens once no notification has been received for
+ * [debounceMillis]. Notifications received while the collector is busy (e.g. still re-querying)
+ * are also coalesced into a single emission.
+ *
+ * The ContentObserver is registered when collection starts and unregistered when it stops.
+ *
+ * Note that the Contacts Provider notifies changes to any of its tables using the root
+ * [android.provider.ContactsContract.AUTHORITY_URI], which is an ancestor of all of its table URIs.
+ * This means that changes in other Contacts Provider tables may also cause emissions. There is no
+ * way to tell which table changed from the notification itself.
+ */
+@OptIn(FlowPreview::class)
+internal fun ContentResolver.contentChanges(
+    uris: Collection<Uri>,
+    debounceMillis: Long
+): Flow<Unit> = callbackFlow {
+    val observer = object : ContentObserver(null) {
+        override fun onChange(selfChange: Boolean) {
+            trySend(Unit)
+        }
+    }
+
+    for (uri in uris) {
+        try {
+            registerContentObserver(uri, true, observer)
+        } catch (e: SecurityException) {
+            // Newer versions of Android do not allow observing content that the app does not have
+            // permission to read. Only the initial emission will occur. Consumers should collect
+            // again once permissions have been granted.
+        }
+    }
+
+    awaitClose { unregisterContentObserver(observer) }
+}
+    .debounce(debounceMillis)
+    // The initial emission is not part of the debounced changes so that it is never delayed by
+    // change notifications that come in right away. It is conflated along with the changes so that
+    // the ContentObserver is registered without waiting for the collector to process it.
+    .onStart { emit(Unit) }
+    .conflate()
@@ -25,6 +25,15 @@ suspend fun Delete.commitWithContext(context: CoroutineContext = ASYNC_DISPATCHE
 suspend fun Delete.commitInOneTransactionWithContext(context: CoroutineContext = ASYNC_DISPATCHER):
         Delete.Result = withContext(context) { commitInOneTransaction() }
 
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * See [Delete.commitInChunks].
+ */
+suspend fun Delete.commitInChunksWithContext(context: CoroutineContext = ASYNC_DISPATCHER):
+        Delete.Result = withContext(context) { commitInChunks() }
+
 /**
  * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
  * returns the [Deferred] result.
@@ -41,4 +50,13 @@ fun Delete.commitAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<D
  * See [Delete.commitInOneTransaction].
  */
 fun Delete.commitInOneTransactionAsync(context: CoroutineContext = ASYNC_DISPATCHER):
-        Deferred<Delete.Result> = CoroutineScope(context).async { commitInOneTransaction() }
\ No newline at end of file
+        Deferred<Delete.Result> = CoroutineScope(context).async { commitInOneTransaction() }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * See [Delete.commitInChunks].
+ */
+fun Delete.commitInChunksAsync(context: CoroutineContext = ASYNC_DISPATCHER):
+        Deferred<Delete.Result> = CoroutineScope(context).async { commitInChunks() }
\ No newline at end of file
@@ -24,4 +24,29 @@ suspend fun PhoneLookupQuery.findWithContext(context: CoroutineContext = ASYNC_D
  * See [PhoneLookupQuery.find].
  */
 fun PhoneLookupQuery.findAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<PhoneLookupQuery.Result> =
-    CoroutineScope(context).async { find { !isActive } }
\ No newline at end of file
+    CoroutineScope(context).async { find { !isActive } }
+
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [PhoneLookupQuery.findBySearchString].
+ */
+suspend fun PhoneLookupQuery.findBySearchStringWithContext(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): PhoneLookupQuery.BySearchStringResult = withContext(context) { findBySearchString { !isActive } }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [PhoneLookupQuery.findBySearchString].
+ */
+fun PhoneLookupQuery.findBySearchStringAsync(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): Deferred<PhoneLookupQuery.BySearchStringResult> =
+    CoroutineScope(context).async { findBySearchString { !isActive } }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package contacts.async
 
+import contacts.core.ContactsColumns
 import contacts.core.Query
+import contacts.core.entities.Contact
 import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
 import kotlin.coroutines.CoroutineContext
 
 /**
@@ -24,4 +28,65 @@ suspend fun Query.findWithContext(context: CoroutineContext = ASYNC_DISPATCHER):
  * See [Query.find].
  */
 fun Query.findAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<Query.Result> =
-    CoroutineScope(context).async { find { !isActive } }
\ No newline at end of file
+    CoroutineScope(context).async { find { !isActive } }
+
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [Query.findColumns].
+ */
+suspend fun Query.findColumnsWithContext(context: CoroutineContext = ASYNC_DISPATCHER):
+        ContactsColumns = withContext(context) { findColumns { !isActive } }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [Query.findColumns].
+ */
+fun Query.findColumnsAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<ContactsColumns> =
+    CoroutineScope(context).async { findColumns { !isActive } }
+
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result. The [action] is invoked in the given [context].
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [Query.forEach].
+ */
+suspend fun Query.forEachWithContext(
+    context: CoroutineContext = ASYNC_DISPATCHER,
+    action: (Contact) -> Unit
+): Query.ForEachResult = withContext(context) { forEach({ !isActive }, action) }
+
+/**
+ * Returns a [Flow] that emits the result of [Query.find] when collected and then again every time
+ * the Contacts, RawContacts, or Data tables have changed, for as long as it is being collected.
+ *
+ * Bursts of changes (e.g. while an account is being synced) only result in one query, which is
+ * performed once no changes have occurred for [debounceMillis]. Changes that occur while a query
+ * is in progress result in only one more query.
+ *
+ * The query is performed in the given [context]. Computations automatically stop if the collecting
+ * coroutine is cancelled.
+ *
+ * This is useful for keeping UI up-to-date without polling.
+ *
+ * Note that the Contacts Provider may notify changes to other tables as well. So, some emissions
+ * may have the same result as the previous one. Use [kotlinx.coroutines.flow.distinctUntilChanged]
+ * if that matters.
+ *
+ * See [Query.find].
+ */
+fun Query.asFlow(
+    context: CoroutineContext = ASYNC_DISPATCHER,
+    debounceMillis: Long = DEFAULT_DEBOUNCE_MILLIS
+): Flow<Query.Result> = contactsApi.applicationContext.contentResolver
+    .contentChanges(CONTACTS_TABLES_URIS, debounceMillis)
+    .map { findWithContext(context) }
@@ -15,6 +15,18 @@ import kotlin.coroutines.CoroutineContext
 suspend fun Update.commitWithContext(context: CoroutineContext = ASYNC_DISPATCHER): Update.Result =
     withContext(context) { commit { !isActive } }
 
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [Update.commitInChunks].
+ */
+suspend fun Update.commitInChunksWithContext(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): Update.Result = withContext(context) { commitInChunks { !isActive } }
+
 /**
  * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
  * returns the [Deferred] result.
@@ -24,4 +36,16 @@ suspend fun Update.commitWithContext(context: CoroutineContext = ASYNC_DISPATCHE
  * See [Update.commit].
  */
 fun Update.commitAsync(context: CoroutineContext = ASYNC_DISPATCHER): Deferred<Update.Result> =
-    CoroutineScope(context).async { commit { !isActive } }
\ No newline at end of file
+    CoroutineScope(context).async { commit { !isActive } }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [Update.commitInChunks].
+ */
+fun Update.commitInChunksAsync(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): Deferred<Update.Result> = CoroutineScope(context).async { commitInChunks { !isActive } }
\ No newline at end of file
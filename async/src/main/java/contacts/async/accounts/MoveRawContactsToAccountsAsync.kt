@@ -29,4 +29,30 @@ fun MoveRawContactsAcrossAccounts.commitAsync(
     context: CoroutineContext = ASYNC_DISPATCHER
 ): Deferred<MoveRawContactsAcrossAccounts.Result> = CoroutineScope(context).async {
     commit { !isActive }
+}
+
+/**
+ * Suspends the current coroutine, performs the operation in the given [context], then returns the
+ * result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [MoveRawContactsAcrossAccounts.commitInChunks].
+ */
+suspend fun MoveRawContactsAcrossAccounts.commitInChunksWithContext(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): MoveRawContactsAcrossAccounts.Result = withContext(context) { commitInChunks { !isActive } }
+
+/**
+ * Creates a [CoroutineScope] with the given [context], performs the operation in that scope, then
+ * returns the [Deferred] result.
+ *
+ * Computations automatically stops if the parent coroutine scope / job is cancelled.
+ *
+ * See [MoveRawContactsAcrossAccounts.commitInChunks].
+ */
+fun MoveRawContactsAcrossAccounts.commitInChunksAsync(
+    context: CoroutineContext = ASYNC_DISPATCHER
+): Deferred<MoveRawContactsAcrossAccounts.Result> = CoroutineScope(context).async {
+    commitInChunks { !isActive }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package contacts.async.groups
 
+import android.provider.ContactsContract
 import contacts.async.ASYNC_DISPATCHER
+import contacts.async.DEFAULT_DEBOUNCE_MILLIS
+import contacts.async.contentChanges
 import contacts.core.groups.GroupsQuery
 import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
 import kotlin.coroutines.CoroutineContext
 
 /**
@@ -25,4 +30,30 @@ suspend fun GroupsQuery.findWithContext(context: CoroutineContext = ASYNC_DISPAT
  * See [GroupsQuery.find].
  */
 fun GroupsQuery.findAsync(context: CoroutineContext = ASYNC_DISPATCHER):
-        Deferred<GroupsQuery.Result> = CoroutineScope(context).async { find { !isActive } }
\ No newline at end of file
+        Deferred<GroupsQuery.Result> = CoroutineScope(context).async { find { !isActive } }
+
+/**
+ * Returns a [Flow] that emits the result of [GroupsQuery.find] when collected and then again every
+ * time the Groups table has changed, for as long as it is being collected.
+ *
+ * Bursts of changes (e.g. while an account is being synced) only result in one query, which is
+ * performed once no changes have occurred for [debounceMillis]. Changes that occur while a query
+ * is in progress result in only one more query.
+ *
+ * The query is performed in the given [context]. Computations automatically stop if the collecting
+ * coroutine is cancelled.
+ *
+ * This is useful for keeping UI up-to-date without polling.
+ *
+ * Note that the Contacts Provider may notify changes to other tables as well. So, some emissions
+ * may have the same result as the previous one. Use [kotlinx.coroutines.flow.distinctUntilChanged]
+ * if that matters.
+ *
+ * See [GroupsQuery.find].
+ */
+fun GroupsQuery.asFlow(
+    context: CoroutineContext = ASYNC_DISPATCHER,
+    debounceMillis: Long = DEFAULT_DEBOUNCE_MILLIS
+): Flow<GroupsQuery.Result> = contactsApi.applicationContext.contentResolver
+    .contentChanges(listOf(ContactsContract.Groups.CONTENT_URI), debounceMillis)
+    .map { findWithContext(context) }
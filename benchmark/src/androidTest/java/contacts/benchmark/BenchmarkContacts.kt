@@ -0,0 +1,89 @@
+package contacts.benchmark
+
+import android.Manifest
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.rule.GrantPermissionRule
+import contacts.core.Contacts
+import contacts.core.entities.EmailEntity
+import contacts.core.entities.NewRawContact
+import contacts.core.entities.PhoneEntity
+import contacts.core.equalTo
+import contacts.core.util.addEmail
+import contacts.core.util.addPhone
+import contacts.core.util.setName
+import contacts.core.util.setNote
+
+/**
+ * Seeds the Contacts Provider of the device with local (no Account) Contacts to benchmark against.
+ *
+ * Seeded RawContacts have the [NOTE] so that they can be deleted without touching any of the
+ * other Contacts in the device. Still, only run these benchmarks on a test device or emulator!
+ */
+internal object BenchmarkContacts {
+
+    /**
+     * The number of seeded Contacts that each benchmark is run with.
+     */
+    val CONTACT_COUNTS = listOf(1_000, 10_000, 100_000)
+
+    const val NOTE = "contacts-android benchmark"
+
+    /**
+     * The number of Contacts currently seeded by this process, or null if Contacts seeded by a
+     * previous run may still be in the database.
+     */
+    private var seededCount: Int? = null
+
+    fun contacts(): Contacts = Contacts(InstrumentationRegistry.getInstrumentation().targetContext)
+
+    fun grantPermissionRule(): GrantPermissionRule = GrantPermissionRule.grant(
+        Manifest.permission.READ_CONTACTS, Manifest.permission.WRITE_CONTACTS
+    )
+
+    /**
+     * Makes sure that exactly [count] seeded Contacts exist. Seeding is only done when the count
+     * changes because it takes a long time for larger counts.
+     */
+    fun seed(contacts: Contacts, count: Int) {
+        if (seededCount == count) {
+            return
+        }
+
+        clear(contacts)
+        // Insert in slices so that not all of the new RawContacts are kept in memory at once.
+        for (indices in (0 until count).chunked(1_000)) {
+            contacts.insert()
+                .rawContacts(indices.map(::newRawContact))
+                .commitInChunks()
+        }
+        seededCount = count
+    }
+
+    /**
+     * Deletes all seeded Contacts.
+     */
+    fun clear(contacts: Contacts) {
+        contacts.delete()
+            .rawContactsWhereData { Note.Note equalTo NOTE }
+            .commit()
+        seededCount = 0
+    }
+
+    fun newRawContact(index: Int) = NewRawContact().apply {
+        setName {
+            givenName = "Benchmark"
+            familyName = "$index"
+        }
+        addPhone {
+            number = "555-%07d".format(index)
+            type = PhoneEntity.Type.MOBILE
+        }
+        addEmail {
+            address = "benchmark$index@example.com"
+            type = EmailEntity.Type.HOME
+        }
+        setNote {
+            note = NOTE
+        }
+    }
+}
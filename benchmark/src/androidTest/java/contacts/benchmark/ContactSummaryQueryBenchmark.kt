@@ -0,0 +1,50 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.ContactSummaryQuery.find] against the real Contacts Provider seeded
+ * with [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class ContactSummaryQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun contactSummaryQueryFindAll() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.contactSummaryQuery().find() }
+    }
+
+    @Test
+    fun contactSummaryQueryFindFirstPage() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.contactSummaryQuery().limit(50).find() }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,54 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import contacts.core.startsWith
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.data.DataQuery.find] against the real Contacts Provider seeded with
+ * [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class DataQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun dataQueryFindAllPhones() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.data().query().phones().find() }
+    }
+
+    @Test
+    fun dataQueryFindPhonesWhere() = benchmarkRule.measureRepeated {
+        // Matches the phones of the first 100 seeded Contacts.
+        percentiles.timed {
+            contacts.data().query().phones().where { Phone.Number startsWith "555-00000" }.find()
+        }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,48 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.groups.GroupsQuery.find] against the real Contacts Provider seeded with
+ * [contactCount] Contacts.
+ *
+ * Only the query is benchmarked because inserting, updating, and deleting groups requires an
+ * Account, which the test devices and emulators that these are run on usually do not have.
+ */
+@RunWith(Parameterized::class)
+class GroupsQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun groupsQueryFind() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.groups().query().find() }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
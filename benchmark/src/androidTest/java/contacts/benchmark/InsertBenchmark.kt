@@ -0,0 +1,67 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.Insert.commit] and [contacts.core.Insert.commitInChunks] against the
+ * real Contacts Provider seeded with [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class InsertBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun insertCommit() {
+        val rawContact = BenchmarkContacts.newRawContact(contactCount)
+        benchmarkRule.measureRepeated {
+            val result = percentiles.timed { contacts.insert().rawContacts(rawContact).commit() }
+
+            runWithMeasurementDisabled {
+                contacts.delete().rawContactsWithId(result.rawContactIds).commit()
+            }
+        }
+    }
+
+    @Test
+    fun insertCommitInChunks() {
+        val rawContacts = (contactCount until contactCount + 100)
+            .map(BenchmarkContacts::newRawContact)
+        benchmarkRule.measureRepeated {
+            val result = percentiles.timed {
+                contacts.insert().rawContacts(rawContacts).commitInChunks()
+            }
+
+            runWithMeasurementDisabled {
+                contacts.delete().rawContactsWithId(result.rawContactIds).commitInChunks()
+            }
+        }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,55 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.LookupQuery.find] against the real Contacts Provider seeded with
+ * [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class LookupQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    private lateinit var lookupKeys: List<String>
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+        lookupKeys = contacts.query().limit(100).find().mapNotNull { it.lookupKey }
+    }
+
+    @Test
+    fun lookupQueryFindOne() = benchmarkRule.measureRepeated {
+        percentiles.timed {
+            contacts.lookupQuery().whereLookupKeyMatches(lookupKeys.first()).find()
+        }
+    }
+
+    @Test
+    fun lookupQueryFindMany() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.lookupQuery().whereLookupKeyMatches(lookupKeys).find() }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,74 @@
+package contacts.benchmark
+
+import android.app.Instrumentation
+import android.os.Bundle
+import android.util.Log
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.rules.TestWatcher
+import org.junit.runner.Description
+import kotlin.math.ceil
+
+/**
+ * Reports the 50th, 90th, and 99th percentiles of the times of the code passed to [timed] when a
+ * benchmark succeeds. The benchmark library only reports the minimum, median, and maximum.
+ *
+ * Call [timed] once per iteration of [androidx.benchmark.junit4.measureRepeated], around the same
+ * code that is measured by the benchmark library (i.e. excluding the code run with measurement
+ * disabled).
+ *
+ * Percentiles are logged and sent as an instrumentation status so that they are printed along with
+ * the other results of `am instrument` and Gradle's connected checks.
+ */
+class PercentilesRule : TestWatcher() {
+
+    private val timesNanos = mutableListOf<Long>()
+
+    fun <T> timed(block: () -> T): T {
+        val startNanos = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            timesNanos.add(System.nanoTime() - startNanos)
+        }
+    }
+
+    override fun starting(description: Description) {
+        timesNanos.clear()
+    }
+
+    override fun succeeded(description: Description) {
+        if (timesNanos.isEmpty()) {
+            return
+        }
+
+        val sortedTimesNanos = timesNanos.sorted()
+        val report = "${description.className}.${description.methodName} " +
+                PERCENTILES.joinToString(", ") { percentile ->
+                    "p$percentile ${sortedTimesNanos.percentile(percentile)} ns"
+                } +
+                " (${sortedTimesNanos.size} iterations)"
+
+        Log.i(TAG, report)
+        InstrumentationRegistry.getInstrumentation().sendStatus(
+            STATUS_IN_PROGRESS,
+            Bundle().apply {
+                putString(Instrumentation.REPORT_KEY_STREAMRESULT, "$report\n")
+            }
+        )
+    }
+
+    private companion object {
+        const val TAG = "Benchmark"
+
+        // The status code that test runners use for output that is not a test result.
+        const val STATUS_IN_PROGRESS = 2
+
+        val PERCENTILES = listOf(50, 90, 99)
+    }
+}
+
+/**
+ * Returns the nearest-rank [percentile] of this sorted list.
+ */
+private fun List<Long>.percentile(percentile: Int): Long =
+    this[(ceil(percentile / 100.0 * size).toInt() - 1).coerceIn(indices)]
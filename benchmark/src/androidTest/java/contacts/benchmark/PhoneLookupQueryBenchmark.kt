@@ -0,0 +1,57 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.PhoneLookupQuery.find] against the real Contacts Provider seeded with
+ * [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class PhoneLookupQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    // Half of these match a seeded Contact, like the numbers of a typical call log.
+    private val phoneNumbers = (0 until 1_000).map { "555-%07d".format(it * 2) }
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun phoneLookupQueryFindOne() = benchmarkRule.measureRepeated {
+        percentiles.timed {
+            contacts.phoneLookupQuery().whereExactlyMatches(phoneNumbers.first()).find()
+        }
+    }
+
+    @Test
+    fun phoneLookupQueryFindMany() = benchmarkRule.measureRepeated {
+        percentiles.timed {
+            contacts.phoneLookupQuery().whereExactlyMatchesAny(phoneNumbers).find()
+        }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,64 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import contacts.core.startsWith
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.Query.find] and [contacts.core.BroadQuery.find] against the real
+ * Contacts Provider seeded with [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class QueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun queryFindAll() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.query().find() }
+    }
+
+    @Test
+    fun queryFindWhereData() = benchmarkRule.measureRepeated {
+        // Matches the first 100 seeded Contacts, regardless of the number of seeded Contacts.
+        percentiles.timed {
+            contacts.query().where { Phone.Number startsWith "555-00000" }.find()
+        }
+    }
+
+    @Test
+    fun queryFindFirstPage() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.query().limit(50).find() }
+    }
+
+    @Test
+    fun broadQueryFind() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.broadQuery().wherePartiallyMatches("Benchmark 1").find() }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,54 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import contacts.core.startsWith
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.RawContactsQuery.find] against the real Contacts Provider seeded with
+ * [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class RawContactsQueryBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+    }
+
+    @Test
+    fun rawContactsQueryFindAll() = benchmarkRule.measureRepeated {
+        percentiles.timed { contacts.rawContactsQuery().find() }
+    }
+
+    @Test
+    fun rawContactsQueryFindWhereData() = benchmarkRule.measureRepeated {
+        // Matches the first 100 seeded RawContacts, regardless of the number of seeded Contacts.
+        percentiles.timed {
+            contacts.rawContactsQuery().where { Phone.Number startsWith "555-00000" }.find()
+        }
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
@@ -0,0 +1,68 @@
+package contacts.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import contacts.core.entities.Contact
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Benchmarks [contacts.core.Update.commit] and [contacts.core.Update.commitInChunks] against the
+ * real Contacts Provider seeded with [contactCount] Contacts.
+ */
+@RunWith(Parameterized::class)
+class UpdateBenchmark(private val contactCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val permissionRule = BenchmarkContacts.grantPermissionRule()
+
+    @get:Rule
+    val percentiles = PercentilesRule()
+
+    private val contacts = BenchmarkContacts.contacts()
+
+    private lateinit var firstPage: List<Contact>
+
+    @Before
+    fun seed() {
+        BenchmarkContacts.seed(contacts, contactCount)
+        firstPage = contacts.query().limit(100).find()
+    }
+
+    @Test
+    fun updateCommit() {
+        var iteration = 0
+        benchmarkRule.measureRepeated {
+            val contact = firstPage.first().withMiddleName("${iteration++}")
+            percentiles.timed { contacts.update().contacts(contact).commit() }
+        }
+    }
+
+    @Test
+    fun updateCommitInChunks() {
+        var iteration = 0
+        benchmarkRule.measureRepeated {
+            val middleName = "${iteration++}"
+            val updatedContacts = firstPage.map { it.withMiddleName(middleName) }
+            percentiles.timed { contacts.update().contacts(updatedContacts).commitInChunks() }
+        }
+    }
+
+    // Only the middle name is changed so that the seeded names can still be searched for.
+    private fun Contact.withMiddleName(middleName: String) = mutableCopy {
+        rawContacts.first().name?.middleName = middleName
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "contactCount={0}")
+        fun contactCounts() = BenchmarkContacts.CONTACT_COUNTS
+    }
+}
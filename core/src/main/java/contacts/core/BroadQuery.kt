@@ -9,7 +9,6 @@ import contacts.core.entities.Contact
 import contacts.core.entities.Group
 import contacts.core.entities.cursor.contactsCursor
 import contacts.core.entities.cursor.dataCursor
-import contacts.core.entities.custom.CustomDataRegistry
 import contacts.core.util.*
 
 /**
@@ -341,6 +340,19 @@ interface BroadQuery : CrudApi {
      */
     fun offset(offset: Int): BroadQuery
 
+    /**
+     * Only returns the [Contact]s that come after the last [Contact] of a previous page, given its
+     * [Result.nextPageToken], in the [orderBy] order. Set to null (the default) to start from the
+     * first [Contact].
+     *
+     * This is an alternative to using the [offset] for pagination, which gets slower the deeper the
+     * page. See [Query.after] for more info.
+     *
+     * The [orderBy] must be the same as the one used to get the page token. Otherwise, a
+     * [ContactsException] is thrown when the query is executed.
+     */
+    fun after(pageToken: String?): BroadQuery
+
     /**
      * If the [limit] and [offset] functions are not supported by the device's database query
      * operation, all entities will be returned. In such cases, the [Result.isLimitBreached] will
@@ -402,6 +414,78 @@ interface BroadQuery : CrudApi {
     // fun find(cancel: () -> Boolean = { false }): Result
     fun find(cancel: () -> Boolean): Result
 
+    /**
+     * Passes each [Contact] matching the preceding query options to the given [action], in order,
+     * as soon as it is available instead of returning all of them in a single list.
+     *
+     * The Data of the Contacts are streamed from a single Data table cursor. Only the Data of one
+     * Contact (along with the Contacts and RawContacts without Data) is kept in memory. This is
+     * useful for processing very large numbers of Contacts without having all of them in memory
+     * at once. It also takes much less time for the first Contact to be available.
+     *
+     * For everything else (e.g. displaying contacts in a list), use [find] instead.
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread. The [action]
+     * is invoked in the same thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun forEach(action: (Contact) -> Unit): ForEachResult
+
+    /**
+     * See [BroadQuery.forEach].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true. No more Contacts will be
+     * passed to the [action] once cancelled. Contacts that have already been passed to the [action]
+     * before cancellation are, of course, not taken back.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun forEach(cancel: () -> Boolean = { false }, action: (Contact) -> Unit): ForEachResult
+    fun forEach(cancel: () -> Boolean, action: (Contact) -> Unit): ForEachResult
+
+    /**
+     * Returns the [Contact]s matching the preceding query options as [ContactsColumns], where
+     * every included field is stored as a column of primitives or Strings instead of as [Contact]
+     * object graphs.
+     *
+     * This is useful for analytics or exporting passes over a very large number of Contacts that
+     * scan only a few fields. No entities are created at all. For everything else, use [find].
+     *
+     * Only include the fields that you need. See [BroadQuery.include].
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun findColumns(): ContactsColumns
+
+    /**
+     * See [BroadQuery.findColumns].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true.
+     *
+     * **Empty columns will be returned if cancelled.**
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun findColumns(cancel: () -> Boolean = { false }): ContactsColumns
+    fun findColumns(cancel: () -> Boolean): ContactsColumns
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -566,9 +650,36 @@ interface BroadQuery : CrudApi {
     // only pair of APIs in the library that have the same name for its results interface.
     interface Result : List<Contact>, CrudApi.QueryResultWithLimit {
 
+        /**
+         * The page token to pass to [after] to get the next page, which is created from the last
+         * Contact in this list. This is null if this list has less Contacts than the [limit], in
+         * which case there is no next page. This is also null if the [limit] has been breached
+         * (see [isLimitBreached]) and [forceOffsetAndLimit] is false because this list is then
+         * not a page.
+         *
+         * The page token is only created the first time this is accessed, which requires a
+         * Contacts table query. So, most of the time, this should be accessed in a background
+         * thread.
+         */
+        val nextPageToken: String?
+
         // We have to cast the return type because we are not using recursive generic types.
         override fun redactedCopy(): Result
     }
+
+    /**
+     * The result of [forEach].
+     */
+    interface ForEachResult : CrudApi.QueryResultWithLimit {
+
+        /**
+         * The number of [Contact]s that have been passed to the action.
+         */
+        val count: Int
+
+        // We have to cast the return type because we are not using recursive generic types.
+        override fun redactedCopy(): ForEachResult
+    }
 }
 
 internal fun BroadQuery(contacts: Contacts): BroadQuery = BroadQueryImpl(contacts)
@@ -585,6 +696,7 @@ private class BroadQueryImpl(
     private var orderBy: CompoundOrderBy<ContactsField> = DEFAULT_ORDER_BY,
     private var limit: Int = DEFAULT_LIMIT,
     private var offset: Int = DEFAULT_OFFSET,
+    private var pageToken: String? = DEFAULT_PAGE_TOKEN,
     private var forceOffsetAndLimit: Boolean = DEFAULT_FORCE_OFFSET_AND_LIMIT,
 
     override val isRedacted: Boolean = false
@@ -602,6 +714,7 @@ private class BroadQueryImpl(
                 orderBy: $orderBy
                 limit: $limit
                 offset: $offset
+                pageToken: $pageToken
                 forceOffsetAndLimit: $forceOffsetAndLimit
                 isRedacted: $isRedacted
             }
@@ -621,6 +734,8 @@ private class BroadQueryImpl(
         orderBy,
         limit,
         offset,
+        // Redact the values in the page token.
+        pageToken?.redact(),
         forceOffsetAndLimit,
 
         isRedacted = true
@@ -721,6 +836,10 @@ private class BroadQueryImpl(
         }
     }
 
+    override fun after(pageToken: String?): BroadQuery = apply {
+        this.pageToken = pageToken?.redactStringOrThis(isRedacted)
+    }
+
     override fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): BroadQuery = apply {
         this.forceOffsetAndLimit = forceOffsetAndLimit
     }
@@ -728,6 +847,10 @@ private class BroadQueryImpl(
     override fun find(): BroadQuery.Result = find { false }
 
     override fun find(cancel: () -> Boolean): BroadQuery.Result {
+        // Parse the page token before onPreExecute so that an invalid page token does not throw
+        // between onPreExecute and onPostExecute.
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
         onPreExecute()
 
         var contacts = if (!permissions.canQuery()) {
@@ -735,11 +858,13 @@ private class BroadQueryImpl(
         } else {
             contactsApi.resolve(
                 customDataRegistry,
-                rawContactsWhere, groupMembershipWhere,
+                contactsApi.findContactIds(
+                    rawContactsWhere, groupMembershipWhere, match, searchString, cancel
+                ),
                 include, includeRawContactsFields,
-                match, searchString,
-                orderBy, limit, offset,
-                cancel
+                pageOrderBy, limit, offset,
+                cancel,
+                contactsWhere = contactsWhere
             )
         }
 
@@ -748,7 +873,86 @@ private class BroadQueryImpl(
             contacts = contacts.offsetAndLimit(offset, limit)
         }
 
-        return BroadQueryResult(contacts, isLimitBreached)
+        // The page token is only created if it is used because it requires another query. If the
+        // limit is breached and not forced, the contacts are not a page so there is no next page.
+        val lastContactIdInPage = if (
+            contacts.size >= limit && (!isLimitBreached || forceOffsetAndLimit)
+        ) {
+            contacts.lastOrNull()?.id
+        } else {
+            null
+        }
+        val nextPageOrderBy = pageOrderBy
+        val nextPageToken: (() -> String?)? = lastContactIdInPage?.let { contactId ->
+            { contactsApi.pageTokenOf(contactId, nextPageOrderBy) }
+        }
+
+        return BroadQueryResult(contacts, isLimitBreached, nextPageToken)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    // The Contact id is always in the order by so that page tokens work.
+    private val pageOrderBy: CompoundOrderBy<ContactsField>
+        get() = orderBy.withContactIdTieBreaker()
+
+    override fun forEach(action: (Contact) -> Unit): BroadQuery.ForEachResult =
+        forEach({ false }, action)
+
+    override fun forEach(
+        cancel: () -> Boolean,
+        action: (Contact) -> Unit
+    ): BroadQuery.ForEachResult {
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
+        onPreExecute()
+
+        var count = 0
+        val isLimitBreached = if (!permissions.canQuery()) {
+            false
+        } else {
+            contactsApi.resolveInPages(
+                customDataRegistry,
+                contactsApi.findContactIds(
+                    rawContactsWhere, groupMembershipWhere, match, searchString, cancel
+                ),
+                include, includeRawContactsFields,
+                pageOrderBy, limit, offset, forceOffsetAndLimit,
+                cancel,
+                contactsWhere = contactsWhere
+            ) {
+                action(it.redactedCopyOrThis(isRedacted))
+                count++
+            }
+        }
+
+        return BroadQueryForEachResult(count, isLimitBreached)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    override fun findColumns(): ContactsColumns = findColumns { false }
+
+    override fun findColumns(cancel: () -> Boolean): ContactsColumns {
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
+        onPreExecute()
+
+        val columns = if (!permissions.canQuery() || cancel()) {
+            contactsApi.emptyContactsColumns()
+        } else {
+            contactsApi.resolveColumns(
+                contactsApi.findContactIds(
+                    rawContactsWhere, groupMembershipWhere, match, searchString, cancel
+                ),
+                include, includeRawContactsFields,
+                pageOrderBy, limit, offset, forceOffsetAndLimit,
+                cancel,
+                contactsWhere = contactsWhere
+            )
+        }
+
+        return columns
             .redactedCopyOrThis(isRedacted)
             .also { onPostExecute(contactsApi, it) }
     }
@@ -765,23 +969,22 @@ private class BroadQueryImpl(
         val DEFAULT_ORDER_BY by lazy { CompoundOrderBy(setOf(ContactsFields.Id.asc())) }
         const val DEFAULT_LIMIT = Int.MAX_VALUE
         const val DEFAULT_OFFSET = 0
+        val DEFAULT_PAGE_TOKEN: String? = null
         const val DEFAULT_FORCE_OFFSET_AND_LIMIT = true
     }
 }
 
-private fun Contacts.resolve(
-    customDataRegistry: CustomDataRegistry,
+/**
+ * Returns the ids of the Contacts matching the given parameters. Returns null if all Contacts match
+ * and an empty set if there is no match or if cancelled.
+ */
+private fun Contacts.findContactIds(
     rawContactsWhere: Where<RawContactsField>?,
     groupMembershipWhere: Where<GroupMembershipField>?,
-    include: Include<AbstractDataField>?,
-    includeRawContactsFields: Include<RawContactsField>?,
     match: Match,
     searchString: String?,
-    orderBy: CompoundOrderBy<ContactsField>,
-    limit: Int,
-    offset: Int,
     cancel: () -> Boolean
-): List<Contact> {
+): MutableSet<Long>? {
 
     var contactIds: MutableSet<Long>? = null
 
@@ -792,55 +995,55 @@ private fun Contacts.resolve(
             addAll(findMatchingContactIds(match, searchString, cancel))
         }
 
-        // If no match, return empty list.
+        // If no match, return empty set.
         if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+            return mutableSetOf()
         }
     }
 
     // Get the Contact Ids matching groupMembershipWhere and contained in the contactIds from the
     // Data table. If groupMembershipWhere is null, skip.
     if (groupMembershipWhere != null && !cancel()) {
-        val dataTableWhere = groupMembershipWhere and contactIds?.let {
-            Fields.Contact.Id `in` it
+        val matchingContactIds = mutableSetOf<Long>()
+        for (chunk in contactIds.inClauseChunksOrNull()) {
+            val dataTableWhere = groupMembershipWhere and chunk?.let {
+                Fields.Contact.Id `in` it
+            }
+            matchingContactIds.addAll(findContactIdsInDataTable(dataTableWhere, cancel))
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInDataTable(dataTableWhere, cancel))
-        }
+        contactIds = matchingContactIds
 
-        // If no match, return empty list.
+        // If no match, return empty set.
         if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+            return mutableSetOf()
         }
     }
 
     // Get the Contact Ids matching rawContactsWhere and contained in the contactIds from the
     // RawContacts table. If rawContactsWhere is null, skip.
     if (rawContactsWhere != null && !cancel()) {
-        val rawContactsTableWhere = rawContactsWhere and contactIds?.let {
-            RawContactsFields.ContactId `in` it
+        val matchingContactIds = mutableSetOf<Long>()
+        for (chunk in contactIds.inClauseChunksOrNull()) {
+            val rawContactsTableWhere = rawContactsWhere and chunk?.let {
+                RawContactsFields.ContactId `in` it
+            }
+            matchingContactIds.addAll(
+                findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel)
+            )
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel))
-        }
+        contactIds = matchingContactIds
 
-        // If no match, return empty list.
+        // If no match, return empty set.
         if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+            return mutableSetOf()
         }
     }
 
-    return resolve(
-        customDataRegistry,
-        contactIds,
-        include, includeRawContactsFields,
-        orderBy, limit, offset,
-        cancel
-    )
+    return contactIds
 }
 
 private fun Contacts.findMatchingContactIds(
@@ -906,21 +1109,42 @@ private fun Contacts.findContactIdsInDataTable(
 private class BroadQueryResult private constructor(
     contacts: List<Contact>,
     override val isLimitBreached: Boolean,
+    // Null if there is no next page.
+    nextPageToken: (() -> String?)?,
     override val isRedacted: Boolean
 ) : ArrayList<Contact>(contacts), BroadQuery.Result {
 
-    constructor(contacts: List<Contact>, isLimitBreached: Boolean) : this(
+    constructor(
+        contacts: List<Contact>, isLimitBreached: Boolean, nextPageToken: (() -> String?)?
+    ) : this(
         contacts = contacts,
         isLimitBreached = isLimitBreached,
+        nextPageToken = nextPageToken,
         isRedacted = false
     )
 
-    override fun toString(): String =
+    // The string functions must not create the page token because it requires a query. They may
+    // be invoked in the UI thread (e.g. when debugging) and whenever the result is logged.
+    private val hasNextPage: Boolean = nextPageToken != null
+
+    override val nextPageToken: String? by lazy { nextPageToken?.invoke() }
+
+    override fun toString(): String = toString(
+        firstContact = firstOrNull(), isRedacted = isRedacted
+    )
+
+    // Only the first contact is logged so there is no need to redact a copy of every contact.
+    override fun redactedString(): String = toString(
+        firstContact = firstOrNull()?.redactedCopy(), isRedacted = true
+    )
+
+    private fun toString(firstContact: Contact?, isRedacted: Boolean): String =
         """
             BroadQuery.Result {
                 Number of contacts found: $size
-                First contact: ${firstOrNull()}
+                First contact: $firstContact
                 isLimitBreached: $isLimitBreached
+                hasNextPage: $hasNextPage
                 isRedacted: $isRedacted
             }
         """.trimIndent()
@@ -928,6 +1152,36 @@ private class BroadQueryResult private constructor(
     override fun redactedCopy(): BroadQuery.Result = BroadQueryResult(
         contacts = redactedCopies(),
         isLimitBreached = isLimitBreached,
+        // The page token of this is only created if the page token of the copy is accessed.
+        nextPageToken = { nextPageToken?.redactString() }.takeIf { hasNextPage },
         isRedacted = true
     )
-}
\ No newline at end of file
+}
+
+private class BroadQueryForEachResult private constructor(
+    override val count: Int,
+    override val isLimitBreached: Boolean,
+    override val isRedacted: Boolean
+) : BroadQuery.ForEachResult {
+
+    constructor(count: Int, isLimitBreached: Boolean) : this(
+        count = count,
+        isLimitBreached = isLimitBreached,
+        isRedacted = false
+    )
+
+    override fun toString(): String =
+        """
+            BroadQuery.ForEachResult {
+                Number of contacts found: $count
+                isLimitBreached: $isLimitBreached
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    override fun redactedCopy(): BroadQuery.ForEachResult = BroadQueryForEachResult(
+        count = count,
+        isLimitBreached = isLimitBreached,
+        isRedacted = true
+    )
+}
@@ -0,0 +1,509 @@
+package contacts.core
+
+import android.database.Cursor
+import android.net.Uri
+import contacts.core.entities.Contact
+import contacts.core.entities.ContactSummary
+import contacts.core.entities.table.Table
+import contacts.core.util.isEmpty
+import contacts.core.util.query
+
+/**
+ * A lightweight query on the Contacts table that returns [ContactSummary]s, which only contain the
+ * columns that are typically shown in a list of contacts; id, lookup key, display name (primary),
+ * photo thumbnail uri, and starred.
+ *
+ * Unlike [Query] and [BroadQuery], this does not query the RawContacts and Data tables at all. A
+ * single Contacts table query with a fixed projection is performed. The results are kept in
+ * parallel arrays (one per column) instead of one object graph per Contact. This uses a lot less
+ * memory and time, which matters for contact list screens showing all (e.g. 20k) contacts.
+ *
+ * Use [Query] or [LookupQuery] to get the full [Contact] (e.g. when a contact in the list is
+ * selected).
+ *
+ * ## Permissions
+ *
+ * The [ContactsPermissions.READ_PERMISSION] is assumed to have been granted already in these
+ * examples for brevity. If not granted, the query will do nothing and return an empty result.
+ *
+ * ## Usage
+ *
+ * Here is an example query that returns the summaries of all starred contacts, ordered by display
+ * name.
+ *
+ * In Kotlin,
+ *
+ * ```kotlin
+ * val summaries = contactSummaryQuery
+ *      .where { Options.Starred equalTo true }
+ *      .orderBy(ContactsFields.DisplayNamePrimary.asc())
+ *      .find()
+ *
+ * for (i in summaries.indices) {
+ *     bind(summaries.displayNamePrimaryAt(i), summaries.photoThumbnailUriAt(i))
+ * }
+ * ```
+ *
+ * In Java,
+ *
+ * ```java
+ * import static contacts.core.WhereKt.*;
+ * import static contacts.core.OrderByKt.*;
+ *
+ * ContactSummaryQuery.Result summaries = contactSummaryQuery
+ *      .where(equalTo(ContactsFields.Options.Starred, true))
+ *      .orderBy(asc(ContactsFields.DisplayNamePrimary))
+ *      .find();
+ * ```
+ */
+interface ContactSummaryQuery : CrudApi {
+
+    /**
+     * Filters the returned [ContactSummary]s matching the criteria defined by the [where]. If not
+     * specified or null, then all Contacts are returned.
+     *
+     * Use [ContactsFields] to construct the [where]. Only the Contacts table is queried so this
+     * cannot match data (e.g. emails and phone numbers). Use [Query] for that.
+     */
+    fun where(where: Where<ContactsField>?): ContactSummaryQuery
+
+    /**
+     * See [ContactSummaryQuery.where]
+     */
+    fun where(where: ContactsFields.() -> Where<ContactsField>?): ContactSummaryQuery
+
+    /**
+     * Orders the returned [ContactSummary]s using one or more [orderBy]s. If not specified, then
+     * contacts are ordered by ID in ascending order.
+     *
+     * Use [ContactsFields] to construct the [orderBy].
+     */
+    @SafeVarargs
+    fun orderBy(vararg orderBy: OrderBy<ContactsField>): ContactSummaryQuery
+
+    /**
+     * See [ContactSummaryQuery.orderBy].
+     */
+    fun orderBy(orderBy: Collection<OrderBy<ContactsField>>): ContactSummaryQuery
+
+    /**
+     * See [ContactSummaryQuery.orderBy].
+     */
+    fun orderBy(orderBy: Sequence<OrderBy<ContactsField>>): ContactSummaryQuery
+
+    /**
+     * See [ContactSummaryQuery.orderBy].
+     */
+    fun orderBy(
+        orderBy: ContactsFields.() -> Collection<OrderBy<ContactsField>>
+    ): ContactSummaryQuery
+
+    /**
+     * Limits the maximum number of returned [ContactSummary]s to the given [limit].
+     *
+     * If not specified, limit value of [Int.MAX_VALUE] is used.
+     */
+    fun limit(limit: Int): ContactSummaryQuery
+
+    /**
+     * Skips results 0 to [offset] (excluding the offset).
+     *
+     * If not specified, offset value of 0 is used.
+     */
+    fun offset(offset: Int): ContactSummaryQuery
+
+    /**
+     * If the [limit] and [offset] functions are not supported by the device's database query
+     * operation, all entities will be returned. In such cases, the [Result.isLimitBreached] will
+     * be true if the number of entities returned exceed the [limit].
+     *
+     * Setting [forceOffsetAndLimit] to true will ensure that the [offset] and [limit] will be
+     * applied after performing the internal database query, before returning the result to the
+     * caller (you).
+     *
+     * This defaults to true in order to seamlessly support pagination. However, it is recommended
+     * to set this to false and handle such cases yourself to prevent performing more than one query
+     * for devices that do not support pagination.
+     *
+     * For the full set of devices that do not support pagination, visit this discussion;
+     * https://github.com/vestrel00/contacts-android/discussions/242#discussioncomment-3337613
+     *
+     * ### Limitation
+     *
+     * If the number of entities found do not exceed the [limit] but an [offset] is provided, this
+     * is unable to detect/handle events where the [offset] is not supported. Sorry :P
+     */
+    fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): ContactSummaryQuery
+
+    /**
+     * Returns the [Result] matching the preceding query options.
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun find(): Result
+
+    /**
+     * Returns the [Result] matching the preceding query options.
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true. An empty result is
+     * returned if cancelled.
+     *
+     * This is useful when running this function in a background thread or coroutine.
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun find(cancel: () -> Boolean = { false }): Result
+    fun find(cancel: () -> Boolean): Result
+
+    /**
+     * Returns a redacted instance where all private user data are redacted.
+     *
+     * ## Redacted instances may produce invalid results!
+     *
+     * Redacted instance may have critical information redacted, which is required to make
+     * the operation work properly.
+     *
+     * **Redacted operations should typically only be used for logging in production!**
+     */
+    // We have to cast the return type because we are not using recursive generic types.
+    override fun redactedCopy(): ContactSummaryQuery
+
+    /**
+     * A list of [ContactSummary]s.
+     *
+     * The columns are stored in parallel arrays. [ContactSummary] instances are only created when
+     * they are accessed as elements of this list (e.g. when iterating). To avoid creating them
+     * altogether, use the column accessors; [contactIdAt], [lookupKeyAt], [displayNamePrimaryAt],
+     * [photoThumbnailUriAt], and [starredAt].
+     *
+     * ## The [toString] function
+     *
+     * The [toString] function of instances of this will not return the string representation of
+     * every summary in the list. It will instead return a summary of the summaries in the list and
+     * perhaps the first [ContactSummary] only.
+     */
+    interface Result : List<ContactSummary>, CrudApi.QueryResultWithLimit {
+
+        /**
+         * The [ContactSummary.id] at the given [index].
+         */
+        fun contactIdAt(index: Int): Long
+
+        /**
+         * The [ContactSummary.lookupKey] at the given [index].
+         */
+        fun lookupKeyAt(index: Int): String?
+
+        /**
+         * The [ContactSummary.displayNamePrimary] at the given [index].
+         */
+        fun displayNamePrimaryAt(index: Int): String?
+
+        /**
+         * The [ContactSummary.photoThumbnailUri] at the given [index].
+         */
+        fun photoThumbnailUriAt(index: Int): Uri?
+
+        /**
+         * The [ContactSummary.starred] at the given [index].
+         */
+        fun starredAt(index: Int): Boolean
+
+        // We have to cast the return type because we are not using recursive generic types.
+        override fun redactedCopy(): Result
+    }
+}
+
+internal fun ContactSummaryQuery(contacts: Contacts): ContactSummaryQuery =
+    ContactSummaryQueryImpl(contacts)
+
+private class ContactSummaryQueryImpl(
+    override val contactsApi: Contacts,
+
+    private var where: Where<ContactsField>? = DEFAULT_WHERE,
+    private var orderBy: CompoundOrderBy<ContactsField> = DEFAULT_ORDER_BY,
+    private var limit: Int = DEFAULT_LIMIT,
+    private var offset: Int = DEFAULT_OFFSET,
+    private var forceOffsetAndLimit: Boolean = DEFAULT_FORCE_OFFSET_AND_LIMIT,
+
+    override val isRedacted: Boolean = false
+) : ContactSummaryQuery {
+
+    override fun toString(): String =
+        """
+            ContactSummaryQuery {
+                where: $where
+                orderBy: $orderBy
+                limit: $limit
+                offset: $offset
+                forceOffsetAndLimit: $forceOffsetAndLimit
+                hasPermission: ${permissions.canQuery()}
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    override fun redactedCopy(): ContactSummaryQuery = ContactSummaryQueryImpl(
+        contactsApi,
+
+        // Redact search input.
+        where?.redactedCopy(),
+        orderBy,
+        limit,
+        offset,
+        forceOffsetAndLimit,
+
+        isRedacted = true
+    )
+
+    override fun where(where: Where<ContactsField>?): ContactSummaryQuery = apply {
+        // Yes, I know DEFAULT_WHERE is null. This reads better though.
+        this.where = (where ?: DEFAULT_WHERE)?.redactedCopyOrThis(isRedacted)
+    }
+
+    override fun where(where: ContactsFields.() -> Where<ContactsField>?) =
+        where(where(ContactsFields))
+
+    override fun orderBy(vararg orderBy: OrderBy<ContactsField>) = orderBy(orderBy.asSequence())
+
+    override fun orderBy(orderBy: Collection<OrderBy<ContactsField>>) =
+        orderBy(orderBy.asSequence())
+
+    override fun orderBy(orderBy: Sequence<OrderBy<ContactsField>>): ContactSummaryQuery = apply {
+        this.orderBy = if (orderBy.isEmpty()) {
+            DEFAULT_ORDER_BY
+        } else {
+            CompoundOrderBy(orderBy.toSet())
+        }
+    }
+
+    override fun orderBy(orderBy: ContactsFields.() -> Collection<OrderBy<ContactsField>>) =
+        orderBy(orderBy(ContactsFields))
+
+    override fun limit(limit: Int): ContactSummaryQuery = apply {
+        this.limit = if (limit > 0) {
+            limit
+        } else {
+            throw ContactsException("Limit must be greater than 0")
+        }
+    }
+
+    override fun offset(offset: Int): ContactSummaryQuery = apply {
+        this.offset = if (offset >= 0) {
+            offset
+        } else {
+            throw ContactsException("Offset must be greater than or equal to 0")
+        }
+    }
+
+    override fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): ContactSummaryQuery = apply {
+        this.forceOffsetAndLimit = forceOffsetAndLimit
+    }
+
+    override fun find(): ContactSummaryQuery.Result = find { false }
+
+    override fun find(cancel: () -> Boolean): ContactSummaryQuery.Result {
+        onPreExecute()
+
+        var columns = if (!permissions.canQuery() || cancel()) {
+            ContactSummaryColumns.EMPTY
+        } else {
+            contactsApi.resolve(where, orderBy, limit, offset, cancel)
+        }
+
+        val isLimitBreached = columns.size > limit
+        if (isLimitBreached && forceOffsetAndLimit) {
+            columns = columns.offsetAndLimit(offset, limit)
+        }
+
+        return ContactSummaryQueryResult(columns, isLimitBreached)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    private companion object {
+        val DEFAULT_WHERE: Where<ContactsField>? = null
+        val DEFAULT_ORDER_BY by lazy { CompoundOrderBy(setOf(ContactsFields.Id.asc())) }
+        const val DEFAULT_LIMIT = Int.MAX_VALUE
+        const val DEFAULT_OFFSET = 0
+        const val DEFAULT_FORCE_OFFSET_AND_LIMIT = true
+    }
+}
+
+private val INCLUDE by lazy {
+    Include(
+        ContactsFields.Id,
+        ContactsFields.LookupKey,
+        ContactsFields.DisplayNamePrimary,
+        ContactsFields.PhotoThumbnailUri,
+        ContactsFields.Options.Starred
+    )
+}
+
+private fun Contacts.resolve(
+    where: Where<ContactsField>?,
+    orderBy: CompoundOrderBy<ContactsField>,
+    limit: Int,
+    offset: Int,
+    cancel: () -> Boolean
+): ContactSummaryColumns = query(
+    Table.Contacts,
+    INCLUDE,
+    where,
+    sortOrder = "$orderBy LIMIT $limit OFFSET $offset",
+) {
+    // The column values are read directly from the cursor instead of using the entity cursors and
+    // mappers because this is all that is needed and there are no intermediate objects this way.
+    // The photo thumbnail uri is kept as a string and only parsed when it is accessed.
+    val cursor = it.cursor
+    val idIndex = cursor.getColumnIndexOrThrow(ContactsFields.Id.columnName)
+    val lookupKeyIndex = cursor.getColumnIndexOrThrow(ContactsFields.LookupKey.columnName)
+    val displayNamePrimaryIndex =
+        cursor.getColumnIndexOrThrow(ContactsFields.DisplayNamePrimary.columnName)
+    val photoThumbnailUriIndex =
+        cursor.getColumnIndexOrThrow(ContactsFields.PhotoThumbnailUri.columnName)
+    val starredIndex = cursor.getColumnIndexOrThrow(ContactsFields.Options.Starred.columnName)
+
+    val columns = ContactSummaryColumns(cursor.count)
+    var index = 0
+    while (!cancel() && cursor.moveToNext()) {
+        columns.contactIds[index] = cursor.getLong(idIndex)
+        columns.lookupKeys[index] = cursor.getStringOrNull(lookupKeyIndex)
+        columns.displayNamesPrimary[index] = cursor.getStringOrNull(displayNamePrimaryIndex)
+        columns.photoThumbnailUris[index] = cursor.getStringOrNull(photoThumbnailUriIndex)
+        columns.starred[index] = !cursor.isNull(starredIndex) && cursor.getInt(starredIndex) == 1
+        index++
+    }
+
+    // Ensure incomplete data sets are not returned.
+    if (cancel()) ContactSummaryColumns.EMPTY else columns
+
+} ?: ContactSummaryColumns.EMPTY
+
+private fun Cursor.getStringOrNull(columnIndex: Int): String? =
+    if (isNull(columnIndex)) null else getString(columnIndex)
+
+/**
+ * The columns of [ContactSummary]s in parallel arrays of the same [size].
+ */
+private class ContactSummaryColumns(
+    val contactIds: LongArray,
+    val lookupKeys: Array<String?>,
+    val displayNamesPrimary: Array<String?>,
+    val photoThumbnailUris: Array<String?>,
+    val starred: BooleanArray
+) {
+
+    constructor(size: Int) : this(
+        LongArray(size), arrayOfNulls(size), arrayOfNulls(size), arrayOfNulls(size),
+        BooleanArray(size)
+    )
+
+    val size: Int
+        get() = contactIds.size
+
+    /**
+     * Same as [contacts.core.util.offsetAndLimit] for lists except that the columns are copied so
+     * that the rest of the rows are not kept in memory.
+     */
+    fun offsetAndLimit(offset: Int, limit: Int): ContactSummaryColumns =
+        if (offset >= size || offset < 0 || limit <= 0) {
+            EMPTY
+        } else {
+            val toIndex = (offset.toLong() + limit.toLong()).coerceAtMost(size.toLong()).toInt()
+            ContactSummaryColumns(
+                contactIds.copyOfRange(offset, toIndex),
+                lookupKeys.copyOfRange(offset, toIndex),
+                displayNamesPrimary.copyOfRange(offset, toIndex),
+                photoThumbnailUris.copyOfRange(offset, toIndex),
+                starred.copyOfRange(offset, toIndex)
+            )
+        }
+
+    fun redactedCopy(): ContactSummaryColumns = ContactSummaryColumns(
+        contactIds,
+        lookupKeys,
+        Array(size) { displayNamesPrimary[it]?.redactString() },
+        photoThumbnailUris,
+        starred
+    )
+
+    companion object {
+        val EMPTY = ContactSummaryColumns(0)
+    }
+}
+
+private class ContactSummaryQueryResult private constructor(
+    private val columns: ContactSummaryColumns,
+    override val isLimitBreached: Boolean,
+    override val isRedacted: Boolean
+) : AbstractList<ContactSummary>(), ContactSummaryQuery.Result {
+
+    constructor(columns: ContactSummaryColumns, isLimitBreached: Boolean) : this(
+        columns = columns,
+        isLimitBreached = isLimitBreached,
+        isRedacted = false
+    )
+
+    override val size: Int
+        get() = columns.size
+
+    override fun get(index: Int): ContactSummary = ContactSummary(
+        id = contactIdAt(index),
+        lookupKey = lookupKeyAt(index),
+        displayNamePrimary = displayNamePrimaryAt(index),
+        photoThumbnailUri = photoThumbnailUriAt(index),
+        starred = starredAt(index),
+        isRedacted = isRedacted
+    )
+
+    override fun contactIdAt(index: Int): Long = columns.contactIds[index]
+
+    override fun lookupKeyAt(index: Int): String? = columns.lookupKeys[index]
+
+    override fun displayNamePrimaryAt(index: Int): String? = columns.displayNamesPrimary[index]
+
+    override fun photoThumbnailUriAt(index: Int): Uri? =
+        columns.photoThumbnailUris[index]?.let(Uri::parse)
+
+    override fun starredAt(index: Int): Boolean = columns.starred[index]
+
+    override fun toString(): String =
+        toString(firstContactSummary = firstOrNull(), isRedacted = isRedacted)
+
+    // Only the first contact summary is logged so there is no need to redact a copy of the columns.
+    override fun redactedString(): String =
+        toString(firstContactSummary = firstOrNull()?.redactedCopy(), isRedacted = true)
+
+    private fun toString(firstContactSummary: ContactSummary?, isRedacted: Boolean): String =
+        """
+            ContactSummaryQuery.Result {
+                Number of contact summaries found: $size
+                First contact summary: $firstContactSummary
+                isLimitBreached: $isLimitBreached
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    override fun redactedCopy(): ContactSummaryQuery.Result = ContactSummaryQueryResult(
+        columns = columns.redactedCopy(),
+        isLimitBreached = isLimitBreached,
+        isRedacted = true
+    )
+}
@@ -19,14 +19,14 @@ import contacts.core.profile.Profile
 import contacts.core.sim.SimContacts
 
 /**
- * Provides new [Query], [RawContactsQuery], [BroadQuery], [PhoneLookupQuery], [Insert], [Update],
- * [Delete], [AggregationExceptions], [Data], [Groups], [Profile], [Accounts], [BlockedNumbers],
- * and [SimContacts] instances.
+ * Provides new [Query], [RawContactsQuery], [BroadQuery], [PhoneLookupQuery],
+ * [ContactSummaryQuery], [Insert], [Update], [Delete], [AggregationExceptions], [Data], [Groups],
+ * [Profile], [Accounts], [BlockedNumbers], and [SimContacts] instances.
  *
  * ## Permissions
  *
  * - Add the "android.permission.READ_CONTACTS" to the AndroidManifest in order to [query],
- *   [rawContactsQuery], [phoneLookupQuery], and [broadQuery].
+ *   [rawContactsQuery], [phoneLookupQuery], [contactSummaryQuery], and [broadQuery].
  * - Add the "android.permission.WRITE_CONTACTS" to the AndroidManifest in order to [insert],
  *   [update], and [delete].
  *
@@ -63,6 +63,11 @@ interface Contacts {
      */
     fun phoneLookupQuery(): PhoneLookupQuery
 
+    /**
+     * Returns a new [ContactSummaryQuery] instance.
+     */
+    fun contactSummaryQuery(): ContactSummaryQuery
+
     /**
      * Returns a new [Insert] instance.
      */
@@ -262,6 +267,8 @@ private class ContactsImpl(
 
     override fun phoneLookupQuery() = PhoneLookupQuery(this)
 
+    override fun contactSummaryQuery() = ContactSummaryQuery(this)
+
     override fun insert() = Insert(this)
 
     override fun update() = Update(this)
@@ -0,0 +1,556 @@
+package contacts.core
+
+import android.database.Cursor
+import contacts.core.entities.MimeType
+import contacts.core.entities.MimeTypeResolver
+import contacts.core.entities.custom.CustomDataRegistry
+import contacts.core.entities.table.Table
+import contacts.core.util.LongObjectMap
+import contacts.core.util.inClauseChunks
+import contacts.core.util.offsetAndLimit
+import contacts.core.util.query
+import java.util.BitSet
+
+/**
+ * The Contacts, RawContacts, and Data matching a [Query.findColumns] or [BroadQuery.findColumns],
+ * stored by column instead of as [contacts.core.entities.Contact] object graphs.
+ *
+ * Every included field is stored in a [Column] of primitive longs or Strings, indexed by row.
+ * Contacts, RawContacts, and Data rows are each numbered from zero. The RawContacts of a Contact
+ * and the Data of a RawContact are contiguous ranges of rows, given by [rawContactsOf] and
+ * [dataOf]. For example,
+ *
+ * ```kotlin
+ * val displayNames = columns.contactsColumn(ContactsFields.DisplayNamePrimary)
+ * val emailAddresses = columns.dataColumn(Fields.Email.Address)
+ *
+ * for (contact in 0 until columns.contactCount) {
+ *     val displayName = displayNames?.getString(contact)
+ *     for (rawContact in columns.rawContactsOf(contact)) {
+ *         for (data in columns.dataOf(rawContact)) {
+ *             if (columns.mimeType(data) == MimeType.Email) {
+ *                 export(displayName, emailAddresses?.getString(data))
+ *             }
+ *         }
+ *     }
+ * }
+ * ```
+ *
+ * Contacts are in the order of the query. RawContacts of a Contact and Data of a RawContact are
+ * ordered by id.
+ *
+ * ## Data columns
+ *
+ * The Data table uses generic column names (e.g. data1, data2, ...) for the different kinds of
+ * data. Data columns are stored the same way. For example, [dataColumn] returns the same column for
+ * [Fields.Email.Address] and [Fields.Phone.Number]. Use [mimeType] to determine the kind of data of
+ * each row.
+ *
+ * Blob values (e.g. full-sized photos) are not stored. They are null.
+ *
+ * ## Why use this?
+ *
+ * Scanning a single field of all contacts (e.g. for analytics or exporting) only touches that
+ * field's array instead of chasing pointers through [contacts.core.entities.Contact],
+ * [contacts.core.entities.RawContact], and data objects. There are also no object headers per
+ * entity, which uses a lot less memory for large numbers of contacts.
+ *
+ * For everything else, using the entities returned by [Query.find] and [BroadQuery.find] is much
+ * more convenient.
+ */
+class ContactsColumns internal constructor(
+    private val customDataRegistry: CustomDataRegistry,
+    private val contacts: Map<String, Column>,
+    private val rawContactOffsets: IntArray,
+    private val rawContacts: Map<String, Column>,
+    private val dataOffsets: IntArray,
+    private val data: Map<String, Column>,
+    override val isLimitBreached: Boolean,
+    override val isRedacted: Boolean
+) : CrudApi.QueryResultWithLimit {
+
+    private val contactIds = contacts[ContactsFields.Id.columnName] ?: EMPTY_COLUMN
+    private val rawContactIds = rawContacts[RawContactsFields.Id.columnName] ?: EMPTY_COLUMN
+    private val dataIds = data[Fields.DataId.columnName] ?: EMPTY_COLUMN
+    private val mimeTypes = data[Fields.MimeType.columnName] ?: EMPTY_COLUMN
+
+    // Guarded by itself because results may be read from any thread.
+    private val mimeTypeResolver = MimeTypeResolver(customDataRegistry)
+
+    /**
+     * The number of Contacts rows.
+     */
+    val contactCount: Int
+        get() = rawContactOffsets.size - 1
+
+    /**
+     * The number of RawContacts rows.
+     */
+    val rawContactCount: Int
+        get() = dataOffsets.size - 1
+
+    /**
+     * The number of Data rows.
+     */
+    val dataCount: Int
+        get() = dataOffsets[dataOffsets.size - 1]
+
+    /**
+     * The id of the Contact at the given [contact] row.
+     */
+    fun contactId(contact: Int): Long = contactIds.getLong(contact)
+
+    /**
+     * The RawContacts rows of the Contact at the given [contact] row.
+     */
+    fun rawContactsOf(contact: Int): IntRange =
+        rawContactOffsets[contact] until rawContactOffsets[contact + 1]
+
+    /**
+     * The id of the RawContact at the given [rawContact] row.
+     */
+    fun rawContactId(rawContact: Int): Long = rawContactIds.getLong(rawContact)
+
+    /**
+     * The Data rows of the RawContact at the given [rawContact] row.
+     */
+    fun dataOf(rawContact: Int): IntRange =
+        dataOffsets[rawContact] until dataOffsets[rawContact + 1]
+
+    /**
+     * The id of the Data at the given [data] row.
+     */
+    fun dataId(data: Int): Long = dataIds.getLong(data)
+
+    /**
+     * The [MimeType] of the Data at the given [data] row.
+     */
+    fun mimeType(data: Int): MimeType {
+        val value = mimeTypes.getString(data)
+        return synchronized(mimeTypeResolver) { mimeTypeResolver.mimeTypeOf(value) }
+    }
+
+    /**
+     * The column of the given Contacts [field], or null if it was not included.
+     */
+    fun contactsColumn(field: ContactsField): Column? = contacts[field.columnName]
+
+    /**
+     * The column of the given RawContacts [field], or null if it was not included.
+     */
+    fun rawContactsColumn(field: RawContactsField): Column? = rawContacts[field.columnName]
+
+    /**
+     * The column of the given Data [field], or null if it was not included.
+     *
+     * Joined Contacts fields (e.g. [Fields.Contact.DisplayNamePrimary]) and RawContacts fields
+     * (other than the [Fields.RawContact.Id]) are not in here. Use [contactsColumn] and
+     * [rawContactsColumn] instead.
+     */
+    fun dataColumn(field: AbstractDataField): Column? = data[field.columnName]
+
+    override fun toString(): String = toString(isRedacted)
+
+    // Only the counts and column names are logged, which are not private user data. So, there is
+    // no need to redact a copy of every column.
+    override fun redactedString(): String = toString(isRedacted = true)
+
+    private fun toString(isRedacted: Boolean): String =
+        """
+            ContactsColumns {
+                Number of contacts found: $contactCount
+                Number of raw contacts found: $rawContactCount
+                Number of data found: $dataCount
+                Contacts columns: ${contacts.keys}
+                RawContacts columns: ${rawContacts.keys}
+                Data columns: ${data.keys}
+                isLimitBreached: $isLimitBreached
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    // All String values are redacted except for the mimetypes, which are not private user data.
+    override fun redactedCopy(): ContactsColumns = ContactsColumns(
+        customDataRegistry,
+        contacts.mapValues { it.value.redactedCopy() },
+        rawContactOffsets,
+        rawContacts.mapValues { it.value.redactedCopy() },
+        dataOffsets,
+        data.mapValues { if (it.value === mimeTypes) it.value else it.value.redactedCopy() },
+        isLimitBreached,
+        isRedacted = true
+    )
+
+    /**
+     * The values of a field, indexed by row.
+     *
+     * Values are stored as primitive longs if all of them are integers (or null). Otherwise, they
+     * are stored as Strings. Either way, they can be read as longs or Strings similar to
+     * [Cursor.getLong] and [Cursor.getString].
+     */
+    sealed class Column {
+
+        /**
+         * The number of rows.
+         */
+        abstract val size: Int
+
+        /**
+         * True if the value at the given [row] is null.
+         */
+        abstract fun isNull(row: Int): Boolean
+
+        /**
+         * The value at the given [row] as a long. Returns 0 if the value is null or not a number.
+         */
+        abstract fun getLong(row: Int): Long
+
+        /**
+         * The value at the given [row] as a String, or null if the value is null.
+         */
+        abstract fun getString(row: Int): String?
+
+        /**
+         * True if the value at the given [row] is not null and not 0.
+         */
+        fun getBoolean(row: Int): Boolean = getLong(row) != 0L
+
+        internal abstract fun redactedCopy(): Column
+    }
+}
+
+private class LongColumn(private val values: LongArray, private val nulls: BitSet) :
+    ContactsColumns.Column() {
+
+    override val size: Int
+        get() = values.size
+
+    override fun isNull(row: Int): Boolean = nulls[checkIndex(row)]
+
+    override fun getLong(row: Int): Long = values[row]
+
+    override fun getString(row: Int): String? = if (isNull(row)) null else values[row].toString()
+
+    // Numbers are not private user data.
+    override fun redactedCopy(): ContactsColumns.Column = this
+
+    private fun checkIndex(row: Int): Int =
+        if (row in values.indices) row else throw IndexOutOfBoundsException("$row")
+}
+
+private class StringColumn(private val values: Array<String?>) : ContactsColumns.Column() {
+
+    override val size: Int
+        get() = values.size
+
+    override fun isNull(row: Int): Boolean = values[row] == null
+
+    override fun getLong(row: Int): Long = values[row]?.toLongOrNull() ?: 0L
+
+    override fun getString(row: Int): String? = values[row]
+
+    override fun redactedCopy(): ContactsColumns.Column =
+        StringColumn(Array(values.size) { values[it]?.redactString() })
+}
+
+private val EMPTY_COLUMN: ContactsColumns.Column = LongColumn(LongArray(0), BitSet())
+
+/**
+ * Returns the [ContactsColumns] of the Contacts with the given [contactIds] (or all if null) that
+ * match the [contactsWhere], ordered by [orderBy], applying the [offset] and [limit].
+ *
+ * This does the same thing as [resolve] except that the values are read from the cursors directly
+ * into columns, without creating any entities. One Contacts, RawContacts, and Data table query is
+ * performed per chunk of Contact ids.
+ */
+internal fun Contacts.resolveColumns(
+    contactIds: Set<Long>?,
+    include: Include<AbstractDataField>?,
+    includeRawContactsFields: Include<RawContactsField>?,
+    orderBy: CompoundOrderBy<ContactsField>,
+    limit: Int,
+    offset: Int,
+    forceOffsetAndLimit: Boolean,
+    cancel: () -> Boolean,
+    contactsWhere: Where<ContactsField>? = null
+): ContactsColumns {
+
+    if (cancel() || (contactIds != null && contactIds.isEmpty())) {
+        return emptyContactsColumns()
+    }
+
+    var orderedContactIds =
+        findOrderedContactIds(contactIds, contactsWhere, orderBy, limit, offset, cancel)
+
+    val isLimitBreached = orderedContactIds.size > limit
+    if (isLimitBreached && forceOffsetAndLimit) {
+        orderedContactIds = orderedContactIds.offsetAndLimit(offset, limit)
+    }
+
+    val finalInclude = include.allFieldsIfNull(this)
+
+    // Collect Contacts. Contacts that have been deleted after their ids have been collected have
+    // no rows.
+    val contactsInclude = finalInclude.onlyContactsFields()
+    val contactRows = RowsBuilder(contactsInclude.columnNamesForQueryProjection)
+    val orderedContactIndices = LongObjectMap<Int>(orderedContactIds.size).apply {
+        orderedContactIds.forEachIndexed { index, contactId -> set(contactId, index) }
+    }
+    for (chunk in orderedContactIds.inClauseChunks()) {
+        if (cancel()) {
+            return emptyContactsColumns()
+        }
+
+        query(Table.Contacts, contactsInclude, ContactsFields.Id `in` chunk) {
+            contactRows.addRows(
+                it.cursor, ContactsFields.Id.columnName, orderedContactIndices, cancel
+            )
+        }
+    }
+    val contacts = contactRows.build(orderedContactIds.size)
+    val contactIndices = contacts.indicesOf(ContactsFields.Id.columnName)
+
+    // Collect RawContacts. Rows are read in order of id so that they remain in that order after
+    // being grouped by Contact.
+    val rawContactsInclude = Include(
+        includeRawContactsFields.allFieldsIfNull().fields + RequiredRawContactsFields.all
+    )
+    val rawContactRows = RowsBuilder(rawContactsInclude.columnNamesForQueryProjection)
+    for (chunk in contactIndices.keys.inClauseChunks()) {
+        if (cancel()) {
+            return emptyContactsColumns()
+        }
+
+        query(
+            Table.RawContacts, rawContactsInclude,
+            // There may be RawContacts that are marked for deletion that have not yet been deleted.
+            (RawContactsFields.Deleted notEqualTo true) and
+                    (RawContactsFields.ContactId `in` chunk),
+            sortOrder = "${RawContactsFields.Id.asc(ignoreCase = false)}"
+        ) {
+            rawContactRows.addRows(
+                it.cursor, RawContactsFields.ContactId.columnName, contactIndices, cancel
+            )
+        }
+    }
+    val rawContacts = rawContactRows.build(contacts.size)
+    val rawContactIndices = rawContacts.indicesOf(RawContactsFields.Id.columnName)
+
+    // Collect Data, skipping the joined Contacts and RawContacts fields, which have already been
+    // collected above. Rows are read in order of id, same as the RawContacts.
+    val dataInclude = Include(
+        finalInclude.fields.filter { it !is DataContactsField && it !is DataRawContactsField } +
+                RequiredDataFields.all.filter { it !is DataContactsField }
+    )
+    val dataRows = RowsBuilder(
+        dataInclude.columnNamesForQueryProjection, internedColumnName = Fields.MimeType.columnName
+    )
+    if (finalInclude.containsAtLeastOneDataField) {
+        val mimeTypesWhere = include.mimeTypesWhere()
+
+        for (chunk in contactIndices.keys.inClauseChunks()) {
+            if (cancel()) {
+                return emptyContactsColumns()
+            }
+
+            query(
+                Table.Data, dataInclude,
+                (Fields.Contact.Id `in` chunk) and mimeTypesWhere,
+                sortOrder = "${Fields.DataId.asc(ignoreCase = false)}"
+            ) {
+                dataRows.addRows(
+                    it.cursor, Fields.RawContact.Id.columnName, rawContactIndices, cancel
+                )
+            }
+        }
+    }
+    val data = dataRows.build(rawContacts.size)
+
+    return if (cancel()) {
+        emptyContactsColumns()
+    } else {
+        ContactsColumns(
+            customDataRegistry,
+            contacts.columns,
+            rawContacts.offsets,
+            rawContacts.columns,
+            data.offsets,
+            data.columns,
+            isLimitBreached,
+            isRedacted = false
+        )
+    }
+}
+
+internal fun Contacts.emptyContactsColumns() = ContactsColumns(
+    customDataRegistry,
+    emptyMap(), IntArray(1), emptyMap(), IntArray(1), emptyMap(),
+    isLimitBreached = false,
+    isRedacted = false
+)
+
+/**
+ * Collects rows of the given [columnNames], each belonging to a parent row (e.g. the Contact of a
+ * RawContact), and then groups them by parent.
+ */
+private class RowsBuilder(columnNames: Set<String>, internedColumnName: String? = null) {
+
+    private val columns = columnNames.map { it to ColumnBuilder(intern = it == internedColumnName) }
+
+    private var parents = IntArray(INITIAL_CAPACITY)
+    private var size = 0
+
+    /**
+     * Adds all rows of the given [cursor] whose parent, identified by the id in the
+     * [parentIdColumnName], is in the [parentIndices]. Other rows are skipped.
+     */
+    fun addRows(
+        cursor: Cursor,
+        parentIdColumnName: String,
+        parentIndices: LongObjectMap<Int>,
+        cancel: () -> Boolean
+    ) {
+        val parentIdIndex = cursor.getColumnIndexOrThrow(parentIdColumnName)
+        val columnIndices = IntArray(columns.size) {
+            cursor.getColumnIndexOrThrow(columns[it].first)
+        }
+
+        while (!cancel() && cursor.moveToNext()) {
+            val parent = parentIndices[cursor.getLong(parentIdIndex)] ?: continue
+
+            if (size == parents.size) {
+                parents = parents.copyOf(size * 2)
+            }
+            parents[size++] = parent
+
+            for (i in columns.indices) {
+                columns[i].second.add(cursor, columnIndices[i])
+            }
+        }
+    }
+
+    /**
+     * Returns the rows grouped by parent, keeping the order in which they were added within the
+     * same parent (a stable counting sort).
+     */
+    fun build(parentCount: Int): Rows {
+        val offsets = IntArray(parentCount + 1)
+        for (i in 0 until size) {
+            offsets[parents[i] + 1]++
+        }
+        for (parent in 0 until parentCount) {
+            offsets[parent + 1] += offsets[parent]
+        }
+
+        val nextRows = offsets.copyOf(parentCount)
+        val order = IntArray(size)
+        for (i in 0 until size) {
+            order[nextRows[parents[i]]++] = i
+        }
+
+        return Rows(offsets, columns.associate { (name, column) -> name to column.build(order) })
+    }
+}
+
+private class Rows(
+    // The rows of the parent at index i are from offsets[i] until offsets[i + 1].
+    val offsets: IntArray,
+    val columns: Map<String, ContactsColumns.Column>
+) {
+    val size: Int
+        get() = offsets[offsets.size - 1]
+
+    /**
+     * Returns the row indices keyed by the id in the [idColumnName].
+     */
+    fun indicesOf(idColumnName: String): LongObjectMap<Int> {
+        val ids = columns.getValue(idColumnName)
+        return LongObjectMap<Int>(size).apply {
+            for (row in 0 until size) {
+                set(ids.getLong(row), row)
+            }
+        }
+    }
+}
+
+/**
+ * Collects the values of a column, as primitive longs until a value that is not an integer is
+ * added. Then, all values are converted to Strings. SQLite columns may contain values of different
+ * types, though this rarely happens.
+ */
+private class ColumnBuilder(private val intern: Boolean) {
+
+    private var longs = LongArray(INITIAL_CAPACITY)
+    private val nulls = BitSet()
+    private var strings: Array<String?>? = null
+    private val internedStrings = mutableMapOf<String, String>()
+    private var size = 0
+
+    fun add(cursor: Cursor, columnIndex: Int) {
+        ensureCapacity()
+
+        when (cursor.getType(columnIndex)) {
+            Cursor.FIELD_TYPE_NULL, Cursor.FIELD_TYPE_BLOB -> nulls.set(size)
+            Cursor.FIELD_TYPE_INTEGER -> {
+                val value = cursor.getLong(columnIndex)
+                val strings = strings
+                if (strings != null) {
+                    strings[size] = value.toString()
+                } else {
+                    longs[size] = value
+                }
+            }
+            else -> {
+                val value = cursor.getString(columnIndex)
+                stringsConvertingLongs()[size] =
+                    if (intern) internedStrings.getOrPut(value) { value } else value
+            }
+        }
+
+        size++
+    }
+
+    /**
+     * Returns the column containing the values in the given [order] of indices.
+     */
+    fun build(order: IntArray): ContactsColumns.Column {
+        val strings = strings
+        return if (strings != null) {
+            StringColumn(Array(order.size) { strings[order[it]] })
+        } else {
+            val orderedNulls = BitSet()
+            for (i in order.indices) {
+                if (nulls[order[i]]) {
+                    orderedNulls.set(i)
+                }
+            }
+            LongColumn(LongArray(order.size) { longs[order[it]] }, orderedNulls)
+        }
+    }
+
+    private fun ensureCapacity() {
+        val strings = strings
+        if (strings != null) {
+            if (size == strings.size) {
+                this.strings = strings.copyOf(size * 2)
+            }
+        } else if (size == longs.size) {
+            longs = longs.copyOf(size * 2)
+        }
+    }
+
+    private fun stringsConvertingLongs(): Array<String?> = strings ?: arrayOfNulls<String>(
+        longs.size
+    ).also { strings ->
+        for (i in 0 until size) {
+            if (!nulls[i]) {
+                strings[i] = longs[i].toString()
+            }
+        }
+        this.strings = strings
+        // The longs are no longer used.
+        longs = LongArray(0)
+    }
+}
+
+private const val INITIAL_CAPACITY = 16
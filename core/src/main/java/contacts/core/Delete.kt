@@ -209,6 +209,35 @@ interface Delete : CrudApi {
     // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
     fun commitInOneTransaction(): Result
 
+    /**
+     * Deletes the [ExistingContactEntity]s and [ExistingRawContactEntity]s in the queue **in
+     * chunks** and returns the [Result].
+     *
+     * ## [commitInChunks] vs [commit] vs [commitInOneTransaction]
+     *
+     * The [commit] function deletes each Contact and RawContact specified via [contacts],
+     * [contactsWithId], [rawContacts], and [rawContactsWithId] in its own transaction. The
+     * [commitInChunks] function deletes up to a hundred of them per transaction, which is much
+     * faster when deleting hundreds or thousands of Contacts and RawContacts.
+     *
+     * Like [commit], the [Result] indicates whether each Contact and RawContact has been deleted.
+     * Unlike [commitInOneTransaction], some deletes may succeed while others fail. Note that an
+     * error in one transaction fails all deletes in that transaction.
+     *
+     * Deletes specified via [rawContactsWhere], [rawContactsWhereData], [contactsWhere], and
+     * [contactsWhereData] are performed the same way as [commit].
+     *
+     * ## Permissions
+     *
+     * Requires the [ContactsPermissions.WRITE_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun commitInChunks(): Result
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -455,37 +484,55 @@ private class DeleteImpl(
                 }
             }
 
-            val whereResultMap = mutableMapOf<String, Boolean>()
-            rawContactsWhere?.let {
-                whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhere(it)
-            }
-            rawContactsWhereData?.let {
-                val reducedWhere = contactsApi.reduceDataTableWhereForMatchingRawContactIds(it)
-                whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhere(
-                    RawContactsFields.Id
-                            `in` contactsApi.findRawContactIdsInDataTable(reducedWhere)
-                )
-            }
-            contactsWhere?.let {
-                whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhere(
-                    RawContactsFields.ContactId
-                            `in` contactsApi.findContactIdsInContactsTable(it)
-                )
-            }
-            contactsWhereData?.let {
-                val reducedWhere = contactsApi.reduceDataTableWhereForMatchingContactIds(it)
-                whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhere(
-                    RawContactsFields.ContactId
-                            `in` contactsApi.findContactIdsInDataTable(reducedWhere)
-                )
-            }
+            DeleteResult(rawContactsResult, contactsResults, deleteWheres())
+        }
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    override fun commitInChunks(): Delete.Result {
+        onPreExecute()
+
+        return if (!permissions.canUpdateDelete() || hasNothingToCommit) {
+            DeleteAllResult(isSuccessful = false)
+        } else {
+            val rawContactsResult =
+                contactsApi.deleteRawContactsInChunks(RawContactsFields.Id, rawContactIds)
+            val contactsResults =
+                contactsApi.deleteRawContactsInChunks(RawContactsFields.ContactId, contactIds)
 
-            DeleteResult(rawContactsResult, contactsResults, whereResultMap)
+            DeleteResult(rawContactsResult, contactsResults, deleteWheres())
         }
             .redactedCopyOrThis(isRedacted)
             .also { onPostExecute(contactsApi, it) }
     }
 
+    /**
+     * Deletes the RawContacts matching the where clauses, if any, and returns the result of each.
+     */
+    private fun deleteWheres(): Map<String, Boolean> {
+        val whereResultMap = mutableMapOf<String, Boolean>()
+        rawContactsWhere?.let {
+            whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhere(it)
+        }
+        rawContactsWhereData?.let {
+            whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhereIn(
+                RawContactsFields.Id, contactsApi.findMatchingRawContactIdsInDataTable(it)
+            )
+        }
+        contactsWhere?.let {
+            whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhereIn(
+                RawContactsFields.ContactId, contactsApi.findContactIdsInContactsTable(it)
+            )
+        }
+        contactsWhereData?.let {
+            whereResultMap[it.toString()] = contactsApi.deleteRawContactsWhereIn(
+                RawContactsFields.ContactId, contactsApi.findMatchingContactIdsInDataTable(it)
+            )
+        }
+        return whereResultMap
+    }
+
     override fun commitInOneTransaction(): Delete.Result {
         onPreExecute()
 
@@ -504,37 +551,35 @@ private class DeleteImpl(
                 val operations = arrayListOf<ContentProviderOperation>()
 
                 if (nonProfileRawContactIds.isNotEmpty()) {
-                    contactsApi.deleteOperationFor(RawContactsFields.Id `in` nonProfileRawContactIds)
-                        .let(operations::add)
+                    contactsApi.deleteOperationsFor(RawContactsFields.Id, nonProfileRawContactIds)
+                        .let(operations::addAll)
                 }
 
                 if (nonProfileContactIds.isNotEmpty()) {
-                    contactsApi.deleteOperationFor(RawContactsFields.ContactId `in` nonProfileContactIds)
-                        .let(operations::add)
+                    contactsApi.deleteOperationsFor(RawContactsFields.ContactId, nonProfileContactIds)
+                        .let(operations::addAll)
                 }
 
                 rawContactsWhere?.let {
                     contactsApi.deleteOperationFor(it).let(operations::add)
                 }
                 rawContactsWhereData?.let {
-                    val reducedWhere = contactsApi.reduceDataTableWhereForMatchingRawContactIds(it)
-                    contactsApi.deleteOperationFor(
-                        RawContactsFields.Id
-                                `in` contactsApi.findRawContactIdsInDataTable(reducedWhere)
-                    ).let(operations::add)
+                    contactsApi.deleteOperationsFor(
+                        RawContactsFields.Id,
+                        contactsApi.findMatchingRawContactIdsInDataTable(it)
+                    ).let(operations::addAll)
                 }
                 contactsWhere?.let {
-                    contactsApi.deleteOperationFor(
-                        RawContactsFields.ContactId
-                                `in` contactsApi.findContactIdsInContactsTable(it)
-                    ).let(operations::add)
+                    contactsApi.deleteOperationsFor(
+                        RawContactsFields.ContactId,
+                        contactsApi.findContactIdsInContactsTable(it)
+                    ).let(operations::addAll)
                 }
                 contactsWhereData?.let {
-                    val reducedWhere = contactsApi.reduceDataTableWhereForMatchingContactIds(it)
-                    contactsApi.deleteOperationFor(
-                        RawContactsFields.ContactId
-                                `in` contactsApi.findContactIdsInDataTable(reducedWhere)
-                    ).let(operations::add)
+                    contactsApi.deleteOperationsFor(
+                        RawContactsFields.ContactId,
+                        contactsApi.findMatchingContactIdsInDataTable(it)
+                    ).let(operations::addAll)
                 }
 
                 DeleteAllResult(isSuccessful = contentResolver.applyBatch(operations).deleteSuccess)
@@ -548,12 +593,74 @@ private class DeleteImpl(
 internal fun Contacts.deleteRawContactsWhere(where: Where<RawContactsField>): Boolean =
     contentResolver.applyBatch(deleteOperationFor(where)).deleteSuccess
 
-private fun Contacts.deleteOperationFor(where: Where<RawContactsField>): ContentProviderOperation =
+internal fun Contacts.deleteOperationFor(where: Where<RawContactsField>): ContentProviderOperation =
     RawContactsOperation(
         callerIsSyncAdapter = callerIsSyncAdapter,
         isProfile = false
     ).deleteRawContactsWhere(where)
 
+/**
+ * Deletes the RawContacts whose [field] value is one of the given [ids]. The ids are split into
+ * chunks so that the selection does not grow unbounded with the number of matches.
+ *
+ * Returns true if at least one RawContact has been deleted.
+ */
+private fun Contacts.deleteRawContactsWhereIn(
+    field: RawContactsField, ids: Collection<Long>
+): Boolean {
+    var isSuccessful = false
+    for (chunk in ids.inClauseChunks()) {
+        // Do not short-circuit! All chunks must be deleted.
+        if (deleteRawContactsWhere(field `in` chunk)) {
+            isSuccessful = true
+        }
+    }
+    return isSuccessful
+}
+
+/**
+ * Deletes the RawContacts whose [field] value is each of the given [ids], using one delete
+ * operation per id and up to [MAX_OPERATIONS_PER_BATCH] operations per batch.
+ *
+ * Returns a map of each id to true if at least one RawContact has been deleted for it. The
+ * [android.content.ContentProviderResult.count] of each operation is the number of RawContacts it
+ * deleted. Ids of profile RawContacts or Contacts always fail.
+ */
+private fun Contacts.deleteRawContactsInChunks(
+    field: RawContactsField, ids: Collection<Long>
+): Map<Long, Boolean> {
+    val results = mutableMapOf<Long, Boolean>()
+
+    val (profileIds, nonProfileIds) = ids.partition { it.isProfileId }
+    // Intentionally fail the operation to ensure that this is only used for non-profile deletes.
+    // Otherwise, operation can succeed. This is only done to enforce API design.
+    for (profileId in profileIds) {
+        results[profileId] = false
+    }
+
+    for (chunk in nonProfileIds.chunked(MAX_OPERATIONS_PER_BATCH)) {
+        val operationResults = contentResolver.applyBatch(
+            chunk.mapTo(arrayListOf()) { deleteOperationFor(field equalTo it) }
+        )
+        for ((index, id) in chunk.withIndex()) {
+            // If the batch failed, none of the deletes in it have been applied.
+            results[id] = operationResults?.getOrNull(index)?.count?.let { it > 0 } == true
+        }
+    }
+
+    return results
+}
+
+/**
+ * Returns the operations that deletes the RawContacts whose [field] value is one of the given
+ * [ids], one operation per chunk of ids.
+ */
+private fun Contacts.deleteOperationsFor(
+    field: RawContactsField, ids: Collection<Long>
+): List<ContentProviderOperation> = ids.inClauseChunks()
+    .map { deleteOperationFor(field `in` it) }
+    .toList()
+
 private class DeleteResult private constructor(
     private val rawContactIdsResultMap: Map<Long, Boolean>,
     private val contactIdsResultMap: Map<Long, Boolean>,
@@ -497,6 +497,10 @@ class DataRawContactsFields internal constructor() : AbstractDataFieldSet<DataRa
     @JvmField
     val Id = DataRawContactsField(Data.RAW_CONTACT_ID, required = true)
 
+    // This is internal (and not in all) because it is only used to exclude RawContacts that are
+    // marked for deletion when reading RawContacts from the Data table.
+    internal val Deleted = DataRawContactsField(RawContacts.DELETED)
+
     override val all by lazy {
         setOf(Id)
     }
@@ -1174,6 +1178,8 @@ data object RawContactsFields : FieldSet<RawContactsField>() {
 
     internal val Deleted = RawContactsField(RawContacts.DELETED)
 
+    internal val Version = RawContactsField(RawContacts.VERSION)
+
     /**
      * See [RequiredRawContactsFields].
      */
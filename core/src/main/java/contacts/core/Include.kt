@@ -112,4 +112,22 @@ internal fun Include<RawContactsField>?.allFieldsIfNull(): Include<RawContactsFi
  * The only fields we are interested in are instances of [DataField].
  */
 internal val Include<AbstractDataField>.containsAtLeastOneDataField: Boolean
-    get() = fields.find { it is DataField } != null
\ No newline at end of file
+    get() = fields.find { it is DataField } != null
+
+/**
+ * Returns a where that only matches Data rows of the mimetypes of the [DataField]s in this include,
+ * or null if this is null (all fields are included).
+ *
+ * Data rows of mimetypes that have no included fields are mapped to blank entities, which are
+ * discarded. Excluding them in the query prevents them (e.g. photo blobs) from being read at all.
+ *
+ * Note that registered custom data that overrides a built-in mimetype has the same mimetype value.
+ */
+internal fun Include<AbstractDataField>?.mimeTypesWhere(): Where<AbstractDataField>? =
+    this?.let { include ->
+        Fields.MimeType `in` include.fields
+            .asSequence()
+            .filterIsInstance<DataField>()
+            .map { it.mimeType.value }
+            .toSet()
+    }
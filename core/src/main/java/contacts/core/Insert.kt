@@ -24,6 +24,7 @@ import contacts.core.entities.operation.RawContactsOperation
 import contacts.core.entities.operation.RelationOperation
 import contacts.core.entities.operation.SipAddressOperation
 import contacts.core.entities.operation.WebsiteOperation
+import contacts.core.util.MAX_OPERATIONS_PER_BATCH
 import contacts.core.util.PhotoDataOperation
 import contacts.core.util.applyBatch
 import contacts.core.util.isEmpty
@@ -778,10 +779,6 @@ private class InsertImpl(
 
     private companion object {
         const val IS_PROFILE = false
-
-        // According to this discussion thread, this is the max number of operations in a batch that
-        // may succeed; https://github.com/vestrel00/contacts-android/discussions/317#discussion-5650555
-        const val MAX_OPERATIONS_PER_BATCH = 100
     }
 }
 
@@ -851,6 +848,86 @@ internal fun Contacts.insertRawContact(
         }
 }
 
+/**
+ * Inserts a [NewRawContact] created by [newRawContactOf] for each of the given [sources] in batches
+ * of at most [MAX_OPERATIONS_PER_BATCH] operations, without any account, group membership, or
+ * include field validation.
+ *
+ * The [NewRawContact]s are only created when they are about to be added to a batch and are not
+ * kept once that batch has been applied. This way, only one batch is in memory at any given time.
+ * The [onInserted] function is invoked with the source and ID of each inserted RawContact once its
+ * batch has been applied.
+ *
+ * Returns the IDs of the inserted RawContacts in the same order as [sources]. The ID is null
+ * if the insert failed or was cancelled. Unlike [Insert.commitInChunks], results are positional so
+ * that equal [NewRawContact]s each get their own result.
+ */
+internal fun <T> Contacts.insertRawContactsInChunks(
+    sources: List<T>,
+    newRawContactOf: (T) -> NewRawContact,
+    cancel: () -> Boolean,
+    onInserted: (source: T, rawContactId: Long) -> Unit = { _, _ -> }
+): List<Long?> {
+    val rawContactIds = arrayOfNulls<Long>(sources.size)
+
+    val accumulatedOperations = arrayListOf<ContentProviderOperation>()
+    // Index in sources to the RawContact in the batch and the index of its insert operation in
+    // accumulatedOperations.
+    val pendingRawContacts = mutableMapOf<Int, Pair<NewRawContact, Int>>()
+
+    fun flush() {
+        if (accumulatedOperations.isEmpty()) {
+            return
+        }
+
+        val results = contentResolver.applyBatch(accumulatedOperations)
+        for ((index, pendingRawContact) in pendingRawContacts) {
+            val (rawContact, resultsIndex) = pendingRawContact
+            val rawContactId = results?.getOrNull(resultsIndex)?.rawContactId
+            rawContactIds[index] = rawContactId
+            if (rawContactId != null) {
+                executePhotoDataOperation(rawContact, rawContactId)
+                onInserted(sources[index], rawContactId)
+            }
+        }
+
+        accumulatedOperations.clear()
+        pendingRawContacts.clear()
+    }
+
+    fun operationsFor(rawContact: NewRawContact) = insertOperationsForRawContact(
+        null, null, null, null, rawContact, accumulatedOperations.size, false
+    )
+
+    for ((index, source) in sources.withIndex()) {
+        if (cancel()) {
+            break
+        }
+
+        val rawContact = newRawContactOf(source)
+        var operations = operationsFor(rawContact)
+        if (operations.isEmpty()) {
+            continue
+        }
+
+        if (accumulatedOperations.isNotEmpty()
+            && accumulatedOperations.size + operations.size > MAX_OPERATIONS_PER_BATCH
+        ) {
+            flush()
+            // The back references must be rebuilt as they point to indices in the batch.
+            operations = operationsFor(rawContact)
+        }
+
+        pendingRawContacts[index] = rawContact to accumulatedOperations.size
+        accumulatedOperations.addAll(operations)
+    }
+    if (!cancel()) {
+        flush()
+    }
+
+    return rawContactIds.toList()
+}
+
 private fun Contacts.executePhotoDataOperation(rawContact: NewRawContact, rawContactId: Long) {
     // We will attempt to set the photo, ignoring whether it fails or succeeds. Users of this
     // library can submit a request to change this behavior if they want =)
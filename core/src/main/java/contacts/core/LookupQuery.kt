@@ -9,9 +9,12 @@ import contacts.core.entities.Contact
 import contacts.core.entities.Group
 import contacts.core.entities.cursor.contactsCursor
 import contacts.core.entities.custom.CustomDataRegistry
+import contacts.core.entities.table.Table
 import contacts.core.util.findContactIdsInDataTable
 import contacts.core.util.findContactIdsInRawContactsTable
 import contacts.core.util.forSyncAdapter
+import contacts.core.util.inClauseChunks
+import contacts.core.util.inClauseChunksOrNull
 import contacts.core.util.isEmpty
 import contacts.core.util.offsetAndLimit
 import contacts.core.util.query
@@ -719,14 +722,16 @@ private fun Contacts.resolve(
     // Get the Contact Ids matching groupMembershipWhere and contained in the contactIds from the
     // Data table. If groupMembershipWhere is null, skip.
     if (groupMembershipWhere != null && !cancel()) {
-        val dataTableWhere = groupMembershipWhere and contactIds?.let {
-            Fields.Contact.Id `in` it
+        val matchingContactIds = mutableSetOf<Long>()
+        for (chunk in contactIds.inClauseChunksOrNull()) {
+            val dataTableWhere = groupMembershipWhere and chunk?.let {
+                Fields.Contact.Id `in` it
+            }
+            matchingContactIds.addAll(findContactIdsInDataTable(dataTableWhere, cancel))
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInDataTable(dataTableWhere, cancel))
-        }
+        contactIds = matchingContactIds
 
         // If no match, return empty list.
         if (contactIds.isEmpty() || cancel()) {
@@ -737,14 +742,18 @@ private fun Contacts.resolve(
     // Get the Contact Ids matching rawContactsWhere and contained in the contactIds from the
     // RawContacts table. If rawContactsWhere is null, skip.
     if (rawContactsWhere != null && !cancel()) {
-        val rawContactsTableWhere = rawContactsWhere and contactIds?.let {
-            RawContactsFields.ContactId `in` it
+        val matchingContactIds = mutableSetOf<Long>()
+        for (chunk in contactIds.inClauseChunksOrNull()) {
+            val rawContactsTableWhere = rawContactsWhere and chunk?.let {
+                RawContactsFields.ContactId `in` it
+            }
+            matchingContactIds.addAll(
+                findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel)
+            )
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel))
-        }
+        contactIds = matchingContactIds
 
         // If no match, return empty list.
         if (contactIds.isEmpty() || cancel()) {
@@ -761,16 +770,56 @@ private fun Contacts.resolve(
     )
 }
 
+/**
+ * The max number of lookup keys placed in a single `IN` clause.
+ *
+ * Lookup keys are made up of a segment per RawContact so their length is unbounded.
+ */
+private const val MAX_LOOKUP_KEYS_PER_IN_CLAUSE = 100
+
 private fun Contacts.findMatchingContactIds(
     lookupKeys: Set<LookupQuery.LookupKeyWithId>, cancel: () -> Boolean
 ): Set<Long> {
     val contactIds = mutableSetOf<Long>()
 
+    // Most lookup keys are still up to date, meaning that they exactly match the lookup key of an
+    // existing Contact. These are resolved in bulk with a few Contacts table queries instead of one
+    // CONTENT_LOOKUP_URI query per key. An exact match is the same Contact that the Contacts
+    // Provider would return for the lookup uri, with or without the contact id.
+    val resolvedLookupKeys = mutableSetOf<String>()
+    val distinctLookupKeys = lookupKeys.mapTo(mutableSetOf()) { it.lookupKey }
+    // Lookup keys are much longer than ids so fewer of them are placed in a single IN clause.
+    for (chunk in distinctLookupKeys.inClauseChunks(MAX_LOOKUP_KEYS_PER_IN_CLAUSE)) {
+        if (cancel()) {
+            break
+        }
+
+        query(
+            Table.Contacts,
+            Include(ContactsFields.Id, ContactsFields.LookupKey),
+            ContactsFields.LookupKey `in` chunk
+        ) {
+            val contactsCursor = it.contactsCursor()
+            while (!cancel() && it.moveToNext()) {
+                val lookupKey = contactsCursor.lookupKey ?: continue
+                contactIds.add(contactsCursor.contactId)
+                resolvedLookupKeys.add(lookupKey)
+            }
+        }
+    }
+
+    // Lookup keys that did not exactly match any Contact may have been retrieved before the
+    // Contact was linked or unlinked. The Contacts Provider is able to find the best match for
+    // these by their individual RawContact segments so they are resolved via lookup uris.
     for (lookupKey in lookupKeys) {
         if (cancel()) {
             break
         }
 
+        if (lookupKey.lookupKey in resolvedLookupKeys) {
+            continue
+        }
+
         var lookupUri =
             Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_LOOKUP_URI, lookupKey.lookupKey)
         if (lookupKey.contactId > 0) {
@@ -806,11 +855,17 @@ private class LookupQueryResult private constructor(
         isRedacted = false
     )
 
-    override fun toString(): String =
+    override fun toString(): String = toString(firstContact = firstOrNull(), isRedacted = isRedacted)
+
+    // Only the first contact is logged so there is no need to redact a copy of every contact.
+    override fun redactedString(): String =
+        toString(firstContact = firstOrNull()?.redactedCopy(), isRedacted = true)
+
+    private fun toString(firstContact: Contact?, isRedacted: Boolean): String =
         """
             LookupQuery.Result {
                 Number of contacts found: $size
-                First contact: ${firstOrNull()}
+                First contact: $firstContact
                 isLimitBreached: $isLimitBreached
                 isRedacted: $isRedacted
             }
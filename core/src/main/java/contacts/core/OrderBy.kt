@@ -93,7 +93,7 @@ internal class Descending<T : Field>(override val field: T, override val ignoreC
  * The type [T] is not exactly used in this class itself. Rather, it is used for adding type
  * restrictions when constructing instances at compile time.
  */
-internal class CompoundOrderBy<out T : Field>(private val orderBys: Set<OrderBy<T>>) {
+internal class CompoundOrderBy<out T : Field>(internal val orderBys: Set<OrderBy<T>>) {
 
     override fun toString(): String = orderBys.joinToString(", ")
 }
\ No newline at end of file
@@ -5,18 +5,26 @@ import android.content.ContentResolver
 import android.net.Uri
 import android.os.Build
 import android.provider.ContactsContract
+import android.telephony.PhoneNumberUtils
 import contacts.core.PhoneLookupQuery.Match
 import contacts.core.entities.Contact
 import contacts.core.entities.Group
+import contacts.core.entities.MimeType
+import contacts.core.entities.cursor.dataContactsCursor
+import contacts.core.entities.cursor.phoneCursor
 import contacts.core.entities.cursor.phoneLookupCursor
+import contacts.core.entities.cursor.sipAddressCursor
 import contacts.core.entities.custom.CustomDataRegistry
+import contacts.core.entities.table.Table
 import contacts.core.util.findContactIdsInDataTable
 import contacts.core.util.findContactIdsInRawContactsTable
 import contacts.core.util.forSyncAdapter
+import contacts.core.util.inClauseChunks
 import contacts.core.util.isEmpty
 import contacts.core.util.offsetAndLimit
 import contacts.core.util.query
 import contacts.core.util.toRawContactsWhere
+import java.util.Locale
 
 /**
  * Performs a highly optimized query using a phone number or SIP address.
@@ -53,6 +61,20 @@ import contacts.core.util.toRawContactsWhere
  * List<Contact> contacts = phoneLookupQuery.whereExactlyMatches("123").find();
  * ```
  *
+ * ## Bulk lookups
+ *
+ * To look up many phone numbers at once (e.g. caller IDs for a call log), use
+ * [whereExactlyMatchesAny] with [findBySearchString]. Matching contacts are resolved in one pass
+ * instead of one full query per phone number. Unless [include] is used, only the fields needed
+ * for caller IDs are included;
+ *
+ * ```kotlin
+ * val contactsByNumber = phoneLookupQuery
+ *      .whereExactlyMatchesAny(numbers)
+ *      .findBySearchString()
+ * val callerIds = contactsByNumber["123"]
+ * ```
+ *
  * ## Developer notes
  *
  * This query will typically only return one or a handful of matching contacts. Therefore, it is
@@ -278,6 +300,33 @@ interface PhoneLookupQuery : CrudApi {
      */
     fun whereExactlyMatches(searchString: String?): PhoneLookupQuery
 
+    /**
+     * Filters the [Contact]s exactly matching any of the [searchStrings]. If not specified or
+     * empty, then no [Contact]s are returned. Empty search strings are ignored.
+     *
+     * This replaces the search string set by [whereExactlyMatches] and vice versa.
+     *
+     * Search strings that only differ in formatting (e.g. "(123) 456-7890" and "123-456-7890") are
+     * looked up only once. Use [findBySearchString] to get the matching [Contact]s of each search
+     * string. The [find] function returns all [Contact]s matching at least one search string.
+     *
+     * Specify the type of contact data that should be used in the matching process using the
+     * [match] function.
+     *
+     * **Custom data are not included in the matching process!** To match custom data, use [Query].
+     */
+    fun whereExactlyMatchesAny(vararg searchStrings: String): PhoneLookupQuery
+
+    /**
+     * See [PhoneLookupQuery.whereExactlyMatchesAny].
+     */
+    fun whereExactlyMatchesAny(searchStrings: Collection<String>): PhoneLookupQuery
+
+    /**
+     * See [PhoneLookupQuery.whereExactlyMatchesAny].
+     */
+    fun whereExactlyMatchesAny(searchStrings: Sequence<String>): PhoneLookupQuery
+
     /**
      * Orders the [Contact]s using one or more [orderBy]s. If not specified, then contacts are
      * ordered by ID in ascending order.
@@ -410,6 +459,64 @@ interface PhoneLookupQuery : CrudApi {
     // fun find(cancel: () -> Boolean = { false }): Result
     fun find(cancel: () -> Boolean): Result
 
+    /**
+     * Returns the [Contact]s matching each search string specified in [whereExactlyMatches] or
+     * [whereExactlyMatchesAny] and the other preceding query options.
+     *
+     * Every search string is in the result, including those that have no matching [Contact]s.
+     * The [Contact]s of each search string are ordered by [orderBy]. The [limit], [offset], and
+     * [forceOffsetAndLimit] are not used by this function.
+     *
+     * The matching [Contact]s of all search strings are resolved together, regardless of how many
+     * search strings there are. A [Contact] matching several search strings is only read once from
+     * the database and is shared by those search strings.
+     *
+     * ## Included fields
+     *
+     * Unlike [find], if [include] is not called (or called with no fields), then only the fields
+     * needed for caller IDs are included instead of all fields; the [Fields.Contact.LookupKey],
+     * [Fields.Contact.DisplayNamePrimary], [Fields.Contact.PhotoThumbnailUri], [Fields.Phone.Type],
+     * [Fields.Phone.Label], and [Fields.Phone.Number]. This keeps bulk lookups (e.g. for a call log)
+     * from reading every Data row of every matching Contact. To include all fields, pass in
+     * [Fields.all] (and custom data fields, if any) to [include].
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun findBySearchString(): BySearchStringResult
+
+    /**
+     * Returns the [Contact]s matching each search string specified in [whereExactlyMatches] or
+     * [whereExactlyMatchesAny] and the other preceding query options.
+     *
+     * See [findBySearchString] for more info.
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true. This will return an empty
+     * result if cancelled.
+     *
+     * This is useful when running this function in a background thread or coroutine.
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun findBySearchString(cancel: () -> Boolean = { false }): BySearchStringResult
+    fun findBySearchString(cancel: () -> Boolean): BySearchStringResult
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -492,6 +599,20 @@ interface PhoneLookupQuery : CrudApi {
         // We have to cast the return type because we are not using recursive generic types.
         override fun redactedCopy(): Result
     }
+
+    /**
+     * A map of search strings to the list of [Contact]s matching them.
+     *
+     * ## The [toString] function
+     *
+     * The [toString] function of instances of this will not return the string representation of
+     * every contact in the map. It will instead return a summary of the contents of the map.
+     */
+    interface BySearchStringResult : Map<String, List<Contact>>, CrudApi.Result {
+
+        // We have to cast the return type because we are not using recursive generic types.
+        override fun redactedCopy(): BySearchStringResult
+    }
 }
 
 internal fun PhoneLookupQuery(contacts: Contacts): PhoneLookupQuery = PhoneLookupQueryImpl(contacts)
@@ -504,7 +625,7 @@ private class PhoneLookupQueryImpl(
     private var include: Include<AbstractDataField>? = null,
     private var includeRawContactsFields: Include<RawContactsField>? = null,
     private var match: Match = DEFAULT_MATCH,
-    private var searchString: String? = DEFAULT_SEARCH_STRING,
+    private var searchStrings: Set<String> = DEFAULT_SEARCH_STRINGS,
     private var orderBy: CompoundOrderBy<ContactsField> = DEFAULT_ORDER_BY,
     private var limit: Int = DEFAULT_LIMIT,
     private var offset: Int = DEFAULT_OFFSET,
@@ -521,7 +642,7 @@ private class PhoneLookupQueryImpl(
                 include: $include
                 includeRawContactsFields: $includeRawContactsFields
                 match: $match
-                searchString: $searchString
+                searchStrings: $searchStrings
                 orderBy: $orderBy
                 limit: $limit
                 offset: $offset
@@ -540,7 +661,7 @@ private class PhoneLookupQueryImpl(
         includeRawContactsFields,
         match,
         // Redact search input.
-        searchString?.redact(),
+        searchStrings.mapTo(mutableSetOf()) { it.redact() },
         orderBy,
         limit,
         offset,
@@ -612,10 +733,22 @@ private class PhoneLookupQueryImpl(
         }
     }
 
-    override fun whereExactlyMatches(searchString: String?): PhoneLookupQuery = apply {
-        // Yes, I know DEFAULT_SEARCH_STRING is null. This reads better though.
-        this.searchString = (searchString ?: DEFAULT_SEARCH_STRING)?.redactStringOrThis(isRedacted)
-    }
+    override fun whereExactlyMatches(searchString: String?): PhoneLookupQuery =
+        whereExactlyMatchesAny(listOfNotNull(searchString))
+
+    override fun whereExactlyMatchesAny(vararg searchStrings: String) =
+        whereExactlyMatchesAny(searchStrings.asSequence())
+
+    override fun whereExactlyMatchesAny(searchStrings: Collection<String>) =
+        whereExactlyMatchesAny(searchStrings.asSequence())
+
+    override fun whereExactlyMatchesAny(searchStrings: Sequence<String>): PhoneLookupQuery =
+        apply {
+            this.searchStrings = searchStrings
+                .filter { it.isNotEmpty() }
+                .map { it.redactStringOrThis(isRedacted) }
+                .toSet()
+        }
 
     override fun orderBy(vararg orderBy: OrderBy<ContactsField>) = orderBy(orderBy.asSequence())
 
@@ -665,7 +798,7 @@ private class PhoneLookupQueryImpl(
                 customDataRegistry,
                 rawContactsWhere, groupMembershipWhere,
                 include, includeRawContactsFields,
-                match, searchString,
+                match, searchStrings,
                 orderBy, limit, offset,
                 cancel
             )
@@ -681,15 +814,53 @@ private class PhoneLookupQueryImpl(
             .also { onPostExecute(contactsApi, it) }
     }
 
+    override fun findBySearchString(): PhoneLookupQuery.BySearchStringResult =
+        findBySearchString { false }
+
+    override fun findBySearchString(
+        cancel: () -> Boolean
+    ): PhoneLookupQuery.BySearchStringResult {
+        onPreExecute()
+
+        val contactsBySearchString = if (!permissions.canQuery()) {
+            emptyMap()
+        } else {
+            contactsApi.resolveBySearchString(
+                customDataRegistry,
+                rawContactsWhere, groupMembershipWhere,
+                include ?: CALLER_ID_INCLUDE, includeRawContactsFields,
+                match, searchStrings,
+                orderBy,
+                cancel
+            )
+        }
+
+        return PhoneLookupQueryBySearchStringResult(contactsBySearchString)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
     private companion object {
         val DEFAULT_RAW_CONTACTS_WHERE: Where<RawContactsField>? = null
         val DEFAULT_GROUP_MEMBERSHIP_WHERE: Where<GroupMembershipField>? = null
         val REQUIRED_INCLUDE_FIELDS by lazy { Fields.Required.all.asSequence() }
+        val CALLER_ID_INCLUDE by lazy {
+            Include(
+                sequenceOf<AbstractDataField>(
+                    Fields.Contact.LookupKey,
+                    Fields.Contact.DisplayNamePrimary,
+                    Fields.Contact.PhotoThumbnailUri,
+                    Fields.Phone.Type,
+                    Fields.Phone.Label,
+                    Fields.Phone.Number
+                ) + REQUIRED_INCLUDE_FIELDS
+            )
+        }
         val REQUIRED_INCLUDE_RAW_CONTACTS_FIELDS by lazy {
             RawContactsFields.Required.all.asSequence()
         }
         val DEFAULT_MATCH: Match = Match.PHONE
-        val DEFAULT_SEARCH_STRING: String? = null
+        val DEFAULT_SEARCH_STRINGS: Set<String> = emptySet()
         val DEFAULT_ORDER_BY by lazy { CompoundOrderBy(setOf(ContactsFields.Id.asc())) }
         const val DEFAULT_LIMIT = Int.MAX_VALUE
         const val DEFAULT_OFFSET = 0
@@ -704,74 +875,278 @@ private fun Contacts.resolve(
     include: Include<AbstractDataField>?,
     includeRawContactsFields: Include<RawContactsField>?,
     match: Match,
-    searchString: String?,
+    searchStrings: Set<String>,
     orderBy: CompoundOrderBy<ContactsField>,
     limit: Int,
     offset: Int,
     cancel: () -> Boolean
 ): List<Contact> {
 
-    if (searchString.isNullOrEmpty()) {
+    if (searchStrings.isEmpty()) {
         return emptyList()
     }
 
-    var contactIds: MutableSet<Long>? = null
+    // Get Contact Ids exactly matching the searchStrings from the PhoneLookup table.
+    val contactIds = findContactIds(
+        rawContactsWhere, groupMembershipWhere,
+        findContactIdsBySearchString(match, searchStrings, cancel).values.flatten().toSet(),
+        cancel
+    )
 
-    // Get Contact Ids exactly matching the searchString from the PhoneLookup table.
-    if (!cancel()) {
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findMatchingContactIds(match, searchString, cancel))
-        }
+    // If no match, return empty list.
+    if (contactIds.isEmpty() || cancel()) {
+        return emptyList()
+    }
 
-        // If no match, return empty list.
-        if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
-        }
+    return resolve(
+        customDataRegistry,
+        contactIds,
+        include, includeRawContactsFields,
+        orderBy, limit, offset,
+        cancel
+    )
+}
+
+private fun Contacts.resolveBySearchString(
+    customDataRegistry: CustomDataRegistry,
+    rawContactsWhere: Where<RawContactsField>?,
+    groupMembershipWhere: Where<GroupMembershipField>?,
+    include: Include<AbstractDataField>?,
+    includeRawContactsFields: Include<RawContactsField>?,
+    match: Match,
+    searchStrings: Set<String>,
+    orderBy: CompoundOrderBy<ContactsField>,
+    cancel: () -> Boolean
+): Map<String, List<Contact>> {
+
+    if (searchStrings.isEmpty()) {
+        return emptyMap()
+    }
+
+    // Get Contact Ids exactly matching the searchStrings from the PhoneLookup table.
+    val contactIdsBySearchString = findContactIdsBySearchString(match, searchStrings, cancel)
+    val contactIds = findContactIds(
+        rawContactsWhere, groupMembershipWhere,
+        contactIdsBySearchString.values.flatten().toSet(),
+        cancel
+    )
+
+    // The Contacts of all search strings are resolved at once instead of once per search string.
+    val contacts = if (contactIds.isEmpty() || cancel()) {
+        emptyList()
+    } else {
+        resolve(
+            customDataRegistry,
+            contactIds,
+            include, includeRawContactsFields,
+            orderBy, Int.MAX_VALUE, 0,
+            cancel
+        )
+    }
+
+    if (cancel()) {
+        return emptyMap()
+    }
+
+    // Used to keep the Contacts of each search string in the order specified by orderBy. Contacts
+    // that do not match the rawContactsWhere and groupMembershipWhere are not in here.
+    val indexByContactId = contacts.withIndex().associate { it.value.id to it.index }
+
+    return searchStrings.associateWith { searchString ->
+        contactIdsBySearchString[searchString].orEmpty()
+            .filter(indexByContactId::containsKey)
+            .sortedBy(indexByContactId::getValue)
+            .map { contacts[indexByContactId.getValue(it)] }
+    }
+}
+
+/**
+ * Returns the ids in [contactIds] of the Contacts matching the [rawContactsWhere] and
+ * [groupMembershipWhere].
+ */
+private fun Contacts.findContactIds(
+    rawContactsWhere: Where<RawContactsField>?,
+    groupMembershipWhere: Where<GroupMembershipField>?,
+    contactIds: Set<Long>,
+    cancel: () -> Boolean
+): Set<Long> {
+
+    var matchingContactIds = contactIds
+
+    // If no match, return empty set.
+    if (matchingContactIds.isEmpty() || cancel()) {
+        return emptySet()
     }
 
     // Get the Contact Ids matching groupMembershipWhere and contained in the contactIds from the
     // Data table. If groupMembershipWhere is null, skip.
     if (groupMembershipWhere != null && !cancel()) {
-        val dataTableWhere = groupMembershipWhere and contactIds?.let {
-            Fields.Contact.Id `in` it
+        val groupMembershipContactIds = mutableSetOf<Long>()
+        for (chunk in matchingContactIds.inClauseChunks()) {
+            val dataTableWhere = groupMembershipWhere and (Fields.Contact.Id `in` chunk)
+            groupMembershipContactIds.addAll(findContactIdsInDataTable(dataTableWhere, cancel))
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInDataTable(dataTableWhere, cancel))
-        }
+        matchingContactIds = groupMembershipContactIds
 
-        // If no match, return empty list.
-        if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+        // If no match, return empty set.
+        if (matchingContactIds.isEmpty() || cancel()) {
+            return emptySet()
         }
     }
 
     // Get the Contact Ids matching rawContactsWhere and contained in the contactIds from the
     // RawContacts table. If rawContactsWhere is null, skip.
     if (rawContactsWhere != null && !cancel()) {
-        val rawContactsTableWhere = rawContactsWhere and contactIds?.let {
-            RawContactsFields.ContactId `in` it
+        val rawContactsContactIds = mutableSetOf<Long>()
+        for (chunk in matchingContactIds.inClauseChunks()) {
+            val rawContactsTableWhere =
+                rawContactsWhere and (RawContactsFields.ContactId `in` chunk)
+            rawContactsContactIds.addAll(
+                findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel)
+            )
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel))
-        }
+        matchingContactIds = rawContactsContactIds
 
-        // If no match, return empty list.
-        if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+        // If no match, return empty set.
+        if (matchingContactIds.isEmpty() || cancel()) {
+            return emptySet()
         }
     }
 
-    return resolve(
-        customDataRegistry,
-        contactIds,
-        include, includeRawContactsFields,
-        orderBy, limit, offset,
-        cancel
+    return matchingContactIds
+}
+
+/**
+ * Returns the ids of the Contacts exactly matching each of the [searchStrings].
+ *
+ * The PhoneLookup table only supports one search string per query, which is way too slow when
+ * there are thousands of search strings (e.g. caller IDs for a call log). So, search strings are
+ * first matched against the Data table in chunks; see [findContactIdsByLookupValueInDataTable].
+ * Only the search strings that have no match there are looked up in the PhoneLookup table, one
+ * query per search string. Search strings that only differ in formatting share the same query so
+ * that the minimum number of queries are performed.
+ */
+private fun Contacts.findContactIdsBySearchString(
+    match: Match, searchStrings: Set<String>, cancel: () -> Boolean
+): Map<String, Set<Long>> {
+    val searchStringsByLookupValue = searchStrings.groupBy { it.lookupValue(match) }
+    val dataTableContactIdsByLookupValue = findContactIdsByLookupValueInDataTable(
+        match, searchStringsByLookupValue.keys, cancel
     )
+    val contactIdsBySearchString = mutableMapOf<String, Set<Long>>()
+
+    for ((lookupValue, lookupValueSearchStrings) in searchStringsByLookupValue) {
+        if (cancel()) {
+            break
+        }
+
+        val contactIds = dataTableContactIdsByLookupValue[lookupValue]
+            ?: findMatchingContactIds(match, lookupValueSearchStrings.first(), cancel)
+        for (searchString in lookupValueSearchStrings) {
+            contactIdsBySearchString[searchString] = contactIds
+        }
+    }
+
+    return contactIdsBySearchString
+}
+
+/**
+ * Returns the ids of the Contacts that have a phone number or SIP address (depending on the
+ * [match]) that is exactly the same as one of the [lookupValues], keyed by lookup value. Lookup
+ * values that have no match are not in the returned map.
+ *
+ * Phone numbers are matched against the [Fields.Phone.NormalizedNumber], which is in E164 format.
+ * Therefore, lookup values are also matched in their E164 format (using the current country) so
+ * that local numbers (e.g. "(555) 123-4567") match. Many lookup values are placed in each `IN`
+ * clause (see [inClauseChunks]), which keeps the number of queries to a minimum.
+ *
+ * This does not do the looser matching of the PhoneLookup table (e.g. numbers with and without
+ * country codes), which is why lookup values that have no match here must still be looked up in
+ * the PhoneLookup table.
+ */
+private fun Contacts.findContactIdsByLookupValueInDataTable(
+    match: Match, lookupValues: Set<String>, cancel: () -> Boolean
+): Map<String, Set<Long>> {
+    val dataField: AbstractDataField = when (match) {
+        Match.PHONE -> Fields.Phone.NormalizedNumber
+        Match.SIP -> @Suppress("Deprecation") Fields.SipAddress.SipAddress
+    }
+    val lookupValuesByDataValue = mutableMapOf<String, MutableList<String>>()
+    val countryIso = if (match == Match.PHONE) currentCountryIso() else null
+    for (lookupValue in lookupValues) {
+        lookupValuesByDataValue.getOrPut(lookupValue) { mutableListOf() }.add(lookupValue)
+        if (countryIso != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            PhoneNumberUtils.formatNumberToE164(lookupValue, countryIso)
+                ?.takeIf { it != lookupValue }
+                ?.let {
+                    lookupValuesByDataValue.getOrPut(it) { mutableListOf() }.add(lookupValue)
+                }
+        }
+    }
+
+    val contactIdsByLookupValue = mutableMapOf<String, MutableSet<Long>>()
+    for (chunk in lookupValuesByDataValue.keys.inClauseChunks()) {
+        if (cancel()) {
+            break
+        }
+
+        val where = when (match) {
+            Match.PHONE -> (Fields.MimeType equalTo MimeType.Phone) and
+                    (Fields.Phone.NormalizedNumber `in` chunk)
+
+            Match.SIP -> (Fields.MimeType equalTo MimeType.SipAddress) and
+                    (@Suppress("Deprecation") Fields.SipAddress.SipAddress `in` chunk)
+        }
+
+        query(Table.Data, Include(Fields.Contact.Id, dataField), where) {
+            val contactsCursor = it.dataContactsCursor()
+            val phoneCursor = it.phoneCursor()
+            val sipAddressCursor = it.sipAddressCursor()
+            while (!cancel() && it.moveToNext()) {
+                val dataValue = when (match) {
+                    Match.PHONE -> phoneCursor.normalizedNumber
+                    Match.SIP -> sipAddressCursor.sipAddress
+                }
+                for (lookupValue in lookupValuesByDataValue[dataValue].orEmpty()) {
+                    contactIdsByLookupValue.getOrPut(lookupValue) { mutableSetOf() }
+                        .add(contactsCursor.contactId)
+                }
+            }
+        }
+    }
+
+    return contactIdsByLookupValue
+}
+
+/**
+ * Returns the ISO 3166-1 two letter country code used to format phone numbers to E164.
+ *
+ * Like the Contacts Provider, the network country is preferred over the SIM country, which is
+ * preferred over the country of the default locale.
+ */
+private fun Contacts.currentCountryIso(): String? = telephonyManager.networkCountryIso
+    .ifEmpty { telephonyManager.simCountryIso }
+    .ifEmpty { Locale.getDefault().country }
+    .ifEmpty { null }
+    ?.uppercase(Locale.US)
+
+/**
+ * Returns a value that is the same for search strings that the PhoneLookup table treats the same.
+ *
+ * For phone numbers, keypad letters are converted to digits and separators such as spaces, dashes,
+ * and parentheses are removed just like the Contacts Provider does before looking up numbers. SIP
+ * addresses are used as is.
+ */
+private fun String.lookupValue(match: Match): String = when (match) {
+    Match.PHONE -> PhoneNumberUtils.stripSeparators(
+        PhoneNumberUtils.convertKeypadLettersToDigits(this)
+    ).ifEmpty { this }
+
+    Match.SIP -> this
 }
 
 private fun Contacts.findMatchingContactIds(
@@ -835,11 +1210,17 @@ private class PhoneLookupQueryResult private constructor(
         isRedacted = false
     )
 
-    override fun toString(): String =
+    override fun toString(): String = toString(firstContact = firstOrNull(), isRedacted = isRedacted)
+
+    // Only the first contact is logged so there is no need to redact a copy of every contact.
+    override fun redactedString(): String =
+        toString(firstContact = firstOrNull()?.redactedCopy(), isRedacted = true)
+
+    private fun toString(firstContact: Contact?, isRedacted: Boolean): String =
         """
             PhoneLookupQuery.Result {
                 Number of contacts found: $size
-                First contact: ${firstOrNull()}
+                First contact: $firstContact
                 isLimitBreached: $isLimitBreached
                 isRedacted: $isRedacted
             }
@@ -850,4 +1231,35 @@ private class PhoneLookupQueryResult private constructor(
         isLimitBreached = isLimitBreached,
         isRedacted = true
     )
+}
+
+private class PhoneLookupQueryBySearchStringResult private constructor(
+    contactsBySearchString: Map<String, List<Contact>>,
+    override val isRedacted: Boolean
+) : LinkedHashMap<String, List<Contact>>(contactsBySearchString),
+    PhoneLookupQuery.BySearchStringResult {
+
+    constructor(contactsBySearchString: Map<String, List<Contact>>) : this(
+        contactsBySearchString = contactsBySearchString,
+        isRedacted = false
+    )
+
+    override fun toString(): String =
+        """
+            PhoneLookupQuery.BySearchStringResult {
+                Number of search strings: $size
+                Number of search strings with matches: ${values.count { it.isNotEmpty() }}
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    override fun redactedCopy(): PhoneLookupQuery.BySearchStringResult =
+        PhoneLookupQueryBySearchStringResult(
+            // Search strings of the same length are redacted into the same key so some entries
+            // may be lost. This is fine as redacted copies are only meant for logging.
+            contactsBySearchString = entries.associate {
+                it.key.redactString() to it.value.redactedCopies()
+            },
+            isRedacted = true
+        )
 }
\ No newline at end of file
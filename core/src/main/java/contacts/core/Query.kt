@@ -3,10 +3,13 @@ package contacts.core
 import android.accounts.Account
 import android.content.ContentResolver
 import contacts.core.entities.Contact
+import contacts.core.entities.cursor.contactsCursor
 import contacts.core.entities.custom.CustomDataRegistry
 import contacts.core.entities.mapper.ContactsMapper
+import contacts.core.entities.mapper.StreamingContactsMapper
 import contacts.core.entities.table.Table
 import contacts.core.util.*
+import java.util.concurrent.Executor
 
 /**
  * Queries the Contacts Provider tables and returns a list of contacts matching a specific search
@@ -185,6 +188,14 @@ interface Query : CrudApi {
      *
      * It is recommended to only include fields that will be used to save CPU and memory.
      *
+     * If only the [RawContactsFields.Required] fields are included, the RawContacts are read along
+     * with their Data in the same Data table query instead of in a separate RawContacts table
+     * query. Only blank RawContacts (those that have no Data) are then read from the RawContacts
+     * table, which is a lot less work when there are a lot of RawContacts. This only applies if at
+     * least one Data field is included. If no [limit], [offset], or page token ([after]) is set,
+     * then the Contacts are also read in the same Data table query instead of in a separate
+     * Contacts table query.
+     *
      * #### Developer notes
      *
      * So, why not just add these fields to [DataRawContactsFields]?
@@ -370,6 +381,34 @@ interface Query : CrudApi {
      */
     fun offset(offset: Int): Query
 
+    /**
+     * Only returns the [Contact]s that come after the last [Contact] of a previous page, given its
+     * [Result.nextPageToken], in the [orderBy] order. Set to null (the default) to start from the
+     * first [Contact].
+     *
+     * This is an alternative to using the [offset] for pagination. The [offset] requires the
+     * database to skip all of the Contacts in the previous pages, which gets slower the deeper the
+     * page. With a page token, the database directly looks up the Contacts after the previous page
+     * so every page takes the same amount of time. This also works on devices that do not support
+     * the [limit] and [offset] (see [forceOffsetAndLimit]) without reading all of the previous
+     * pages into memory.
+     *
+     * ```kotlin
+     * val firstPage = query.limit(50).find()
+     * val secondPage = query.limit(50).after(firstPage.nextPageToken).find()
+     * ```
+     *
+     * The [orderBy] must be the same as the one used to get the page token. Otherwise, a
+     * [ContactsException] is thrown when the query is executed. The Contact id is appended to the
+     * [orderBy] (if not already included) so that Contacts that have the same values for all
+     * [orderBy] fields are always in the same order.
+     *
+     * Page tokens only contain the values of the [orderBy] fields of a Contact so they may be
+     * persisted. Contacts that have been inserted, updated, or deleted since the previous page do
+     * not affect the pages that follow, except that they may show up (or disappear) in them.
+     */
+    fun after(pageToken: String?): Query
+
     /**
      * If the [limit] and [offset] functions are not supported by the device's database query
      * operation, all entities will be returned. In such cases, the [Result.isLimitBreached] will
@@ -393,6 +432,29 @@ interface Query : CrudApi {
      */
     fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): Query
 
+    /**
+     * Runs the Contacts Provider queries that do not depend on each other concurrently using the
+     * given [executor]. Set to null (the default) to run all queries in the calling thread, one
+     * after another.
+     *
+     * The ids of the Contacts matching the [where] are looked up in the Data, RawContacts, and
+     * Contacts tables. A [where] that matches different kinds of data (e.g. emails AND phones)
+     * requires one Data table lookup per kind. Once the Contacts have been collected, their
+     * RawContacts and Data are also looked up. These lookups are independent of each other so they
+     * can be done at the same time, which reduces the time it takes to [find] Contacts when the
+     * Contacts Provider is slow (e.g. when there are a lot of contacts). The results are exactly
+     * the same either way.
+     *
+     * The calling thread still does some of the work and waits for the rest to complete. So, the
+     * [find] and [forEach] functions should still be called in a background thread. Queries that
+     * have not yet been started by the [executor] when they are needed are run in the calling
+     * thread instead of waiting. Therefore, it is safe to use an executor that is also used to call
+     * [find] and [forEach].
+     *
+     * To use a CoroutineDispatcher, use its `asExecutor()` function.
+     */
+    fun executor(executor: Executor?): Query
+
     /**
      * Returns a list of [Contact]s matching the preceding query options.
      *
@@ -433,6 +495,79 @@ interface Query : CrudApi {
     // fun find(cancel: () -> Boolean = { false }): Result
     fun find(cancel: () -> Boolean): Result
 
+    /**
+     * Passes each [Contact] matching the preceding query options to the given [action], in order,
+     * as soon as it is available instead of returning all of them in a single list.
+     *
+     * The Data of the Contacts are streamed from a single Data table cursor. Only the Data of one
+     * Contact (along with the Contacts and RawContacts without Data) is kept in memory. This is
+     * useful for processing very large numbers of Contacts (e.g. exporting the entire address
+     * book) without having all of them in memory at once. It also takes much less time for the
+     * first Contact to be available.
+     *
+     * For everything else (e.g. displaying contacts in a list), use [find] instead.
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread. The [action]
+     * is invoked in the same thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun forEach(action: (Contact) -> Unit): ForEachResult
+
+    /**
+     * See [Query.forEach].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true. No more Contacts will be
+     * passed to the [action] once cancelled. Contacts that have already been passed to the [action]
+     * before cancellation are, of course, not taken back.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun forEach(cancel: () -> Boolean = { false }, action: (Contact) -> Unit): ForEachResult
+    fun forEach(cancel: () -> Boolean, action: (Contact) -> Unit): ForEachResult
+
+    /**
+     * Returns the [Contact]s matching the preceding query options as [ContactsColumns], where
+     * every included field is stored as a column of primitives or Strings instead of as [Contact]
+     * object graphs.
+     *
+     * This is useful for analytics or exporting passes over a very large number of Contacts that
+     * scan only a few fields. No entities are created at all. For everything else, use [find].
+     *
+     * Only include the fields that you need. See [Query.include].
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun findColumns(): ContactsColumns
+
+    /**
+     * See [Query.findColumns].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true.
+     *
+     * **Empty columns will be returned if cancelled.**
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun findColumns(cancel: () -> Boolean = { false }): ContactsColumns
+    fun findColumns(cancel: () -> Boolean): ContactsColumns
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -465,9 +600,36 @@ interface Query : CrudApi {
     // only pair of APIs in the library that have the same name for its results interface.
     interface Result : List<Contact>, CrudApi.QueryResultWithLimit {
 
+        /**
+         * The page token to pass to [after] to get the next page, which is created from the last
+         * Contact in this list. This is null if this list has less Contacts than the [limit], in
+         * which case there is no next page. This is also null if the [limit] has been breached
+         * (see [isLimitBreached]) and [forceOffsetAndLimit] is false because this list is then
+         * not a page.
+         *
+         * The page token is only created the first time this is accessed, which requires a
+         * Contacts table query. So, most of the time, this should be accessed in a background
+         * thread.
+         */
+        val nextPageToken: String?
+
         // We have to cast the return type because we are not using recursive generic types.
         override fun redactedCopy(): Result
     }
+
+    /**
+     * The result of [forEach].
+     */
+    interface ForEachResult : CrudApi.QueryResultWithLimit {
+
+        /**
+         * The number of [Contact]s that have been passed to the action.
+         */
+        val count: Int
+
+        // We have to cast the return type because we are not using recursive generic types.
+        override fun redactedCopy(): ForEachResult
+    }
 }
 
 internal fun Query(contacts: Contacts): Query = QueryImpl(contacts)
@@ -482,7 +644,9 @@ private class QueryImpl(
     private var orderBy: CompoundOrderBy<ContactsField> = DEFAULT_ORDER_BY,
     private var limit: Int = DEFAULT_LIMIT,
     private var offset: Int = DEFAULT_OFFSET,
+    private var pageToken: String? = DEFAULT_PAGE_TOKEN,
     private var forceOffsetAndLimit: Boolean = DEFAULT_FORCE_OFFSET_AND_LIMIT,
+    private var executor: Executor? = DEFAULT_EXECUTOR,
 
     override val isRedacted: Boolean = false
 ) : Query {
@@ -497,7 +661,9 @@ private class QueryImpl(
                 orderBy: $orderBy
                 limit: $limit
                 offset: $offset
+                pageToken: $pageToken
                 forceOffsetAndLimit: $forceOffsetAndLimit
+                executor: $executor
                 hasPermission: ${permissions.canQuery()}
                 isRedacted: $isRedacted
             }
@@ -515,7 +681,10 @@ private class QueryImpl(
         orderBy,
         limit,
         offset,
+        // Redact the values in the page token.
+        pageToken?.redactString(),
         forceOffsetAndLimit,
+        executor,
 
         isRedacted = true
     )
@@ -600,13 +769,25 @@ private class QueryImpl(
         }
     }
 
+    override fun after(pageToken: String?): Query = apply {
+        this.pageToken = pageToken?.redactStringOrThis(isRedacted)
+    }
+
     override fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): Query = apply {
         this.forceOffsetAndLimit = forceOffsetAndLimit
     }
 
+    override fun executor(executor: Executor?): Query = apply {
+        this.executor = executor
+    }
+
     override fun find(): Query.Result = find { false }
 
     override fun find(cancel: () -> Boolean): Query.Result {
+        // Parse the page token before onPreExecute so that an invalid page token does not throw
+        // between onPreExecute and onPostExecute.
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
         onPreExecute()
 
         var contacts = if (!permissions.canQuery() || cancel()) {
@@ -621,10 +802,11 @@ private class QueryImpl(
 
             contactsApi.resolve(
                 customDataRegistry,
+                contactsApi.findContactIds(rawContactsWhere, where, cancel, executor),
                 include, includeRawContactsFields,
-                rawContactsWhere, where,
-                orderBy, limit, offset,
-                cancel
+                pageOrderBy, limit, offset,
+                cancel, executor,
+                contactsWhere = contactsWhere
             )
         }
 
@@ -633,7 +815,90 @@ private class QueryImpl(
             contacts = contacts.offsetAndLimit(offset, limit)
         }
 
-        return QueryResult(contacts, isLimitBreached)
+        // The page token is only created if it is used because it requires another query. If the
+        // limit is breached and not forced, the contacts are not a page so there is no next page.
+        val lastContactIdInPage = if (
+            contacts.size >= limit && (!isLimitBreached || forceOffsetAndLimit)
+        ) {
+            contacts.lastOrNull()?.id
+        } else {
+            null
+        }
+        val nextPageOrderBy = pageOrderBy
+        val nextPageToken: (() -> String?)? = lastContactIdInPage?.let { contactId ->
+            { contactsApi.pageTokenOf(contactId, nextPageOrderBy) }
+        }
+
+        return QueryResult(contacts, isLimitBreached, nextPageToken)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    // The Contact id is always in the order by so that page tokens work.
+    private val pageOrderBy: CompoundOrderBy<ContactsField>
+        get() = orderBy.withContactIdTieBreaker()
+
+    override fun forEach(action: (Contact) -> Unit): Query.ForEachResult =
+        forEach({ false }, action)
+
+    override fun forEach(
+        cancel: () -> Boolean,
+        action: (Contact) -> Unit
+    ): Query.ForEachResult {
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
+        onPreExecute()
+
+        var count = 0
+        val isLimitBreached = if (!permissions.canQuery() || cancel()) {
+            false
+        } else {
+            // See the comments in find.
+            include(include?.fields ?: emptySet())
+            where(where)
+
+            contactsApi.resolveInPages(
+                customDataRegistry,
+                contactsApi.findContactIds(rawContactsWhere, where, cancel, executor),
+                include, includeRawContactsFields,
+                pageOrderBy, limit, offset, forceOffsetAndLimit,
+                cancel, executor,
+                contactsWhere = contactsWhere
+            ) {
+                action(it.redactedCopyOrThis(isRedacted))
+                count++
+            }
+        }
+
+        return QueryForEachResult(count, isLimitBreached)
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    override fun findColumns(): ContactsColumns = findColumns { false }
+
+    override fun findColumns(cancel: () -> Boolean): ContactsColumns {
+        val contactsWhere = pageToken?.let { contactsWhereAfter(it, pageOrderBy) }
+
+        onPreExecute()
+
+        val columns = if (!permissions.canQuery() || cancel()) {
+            contactsApi.emptyContactsColumns()
+        } else {
+            // See the comments in find.
+            include(include?.fields ?: emptySet())
+            where(where)
+
+            contactsApi.resolveColumns(
+                contactsApi.findContactIds(rawContactsWhere, where, cancel, executor),
+                include, includeRawContactsFields,
+                pageOrderBy, limit, offset, forceOffsetAndLimit,
+                cancel,
+                contactsWhere = contactsWhere
+            )
+        }
+
+        return columns
             .redactedCopyOrThis(isRedacted)
             .also { onPostExecute(contactsApi, it) }
     }
@@ -648,98 +913,110 @@ private class QueryImpl(
         val DEFAULT_ORDER_BY by lazy { CompoundOrderBy(setOf(ContactsFields.Id.asc())) }
         const val DEFAULT_LIMIT = Int.MAX_VALUE
         const val DEFAULT_OFFSET = 0
+        val DEFAULT_PAGE_TOKEN: String? = null
         const val DEFAULT_FORCE_OFFSET_AND_LIMIT = true
+        val DEFAULT_EXECUTOR: Executor? = null
     }
 }
 
-private fun Contacts.resolve(
-    customDataRegistry: CustomDataRegistry,
-    include: Include<AbstractDataField>?,
-    includeRawContactsFields: Include<RawContactsField>?,
+/**
+ * Returns the ids of the Contacts matching the [rawContactsWhere] and [where]. Returns null if all
+ * Contacts match (both are null) and an empty set if there is no match or if cancelled.
+ *
+ * If an [executor] is provided, the Data, RawContacts, and Contacts table lookups of the [where]
+ * are done concurrently.
+ */
+private fun Contacts.findContactIds(
     rawContactsWhere: Where<RawContactsField>?,
     where: Where<AbstractDataField>?,
-    orderBy: CompoundOrderBy<ContactsField>,
-    limit: Int,
-    offset: Int,
-    cancel: () -> Boolean
-): List<Contact> {
+    cancel: () -> Boolean,
+    executor: Executor? = null
+): LongHashSet? {
 
-    var contactIds: MutableSet<Long>? = null
+    var contactIds: LongHashSet? = null
 
     // Get Contact Ids matching where from the Data table. If where is null, skip.
     if (where != null && !cancel()) {
-        contactIds = mutableSetOf<Long>().apply {
-            val reducedWhere = reduceDataTableWhereForMatchingContactIds(where, cancel)
-            addAll(findContactIdsInDataTable(reducedWhere, cancel))
-        }
-
         // Get the RawContacts Ids of blank RawContacts matching the where from the RawContacts
         // table.
         val rawContactsTableWhere = where.toRawContactsTableWhere()
-        if (rawContactsTableWhere != null) {
-            // We do not actually need to suppress DB exceptions anymore because we are making
-            // sure that only RawContacts fields are in rawContactsTableWhere. However, it
-            // does not hurt to be extra safe... though this will mask programming errors in
-            // toRawContactsTableWhere by not crashing. Unit tests should cover this though!
-            contactIds.addAll(
+        val rawContactsTableContactIds = executor.submit {
+            if (rawContactsTableWhere != null) {
+                // We do not actually need to suppress DB exceptions anymore because we are making
+                // sure that only RawContacts fields are in rawContactsTableWhere. However, it
+                // does not hurt to be extra safe... though this will mask programming errors in
+                // toRawContactsTableWhere by not crashing. Unit tests should cover this though!
                 findContactIdsInRawContactsTable(rawContactsTableWhere, true, cancel)
-            )
+            } else {
+                emptySet()
+            }
         }
 
         // Get the Contacts Ids of blank Contacts matching the where from the Contacts table.
         val contactsTableWhere = where.toContactsTableWhere()
-        if (contactsTableWhere != null) {
-            // We do not actually need to suppress DB exceptions anymore because we are making
-            // sure that only Contacts fields are in contactsTableWhere. However, it does not
-            // hurt to be extra safe... though this will mask programming errors in
-            // toContactsTableWhere by not crashing. Unit tests should cover this though!
-            contactIds.addAll(
+        val contactsTableContactIds = executor.submit {
+            if (contactsTableWhere != null) {
+                // We do not actually need to suppress DB exceptions anymore because we are making
+                // sure that only Contacts fields are in contactsTableWhere. However, it does not
+                // hurt to be extra safe... though this will mask programming errors in
+                // toContactsTableWhere by not crashing. Unit tests should cover this though!
                 findContactIdsInContactsTable(contactsTableWhere, true, cancel)
-            )
+            } else {
+                emptySet()
+            }
+        }
+
+        // The Data table lookup is done in this thread while the others are (possibly) being
+        // done in the executor.
+        contactIds = LongHashSet().apply {
+            addAllFrom(findMatchingContactIdsInDataTable(where, cancel, executor))
+            addAllFrom(rawContactsTableContactIds())
+            addAllFrom(contactsTableContactIds())
         }
 
-        // If no match, return empty list.
+        // If no match, return empty set.
         if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+            return LongHashSet()
         }
     }
 
     // Get the Contact Ids matching rawContactsWhere and contained in the contactIds from the
     // RawContacts table. If rawContactsWhere is null, skip.
     if (rawContactsWhere != null && !cancel()) {
-        val rawContactsTableWhere = rawContactsWhere and contactIds?.let {
-            RawContactsFields.ContactId `in` it
+        val matchingContactIds = LongHashSet()
+        for (chunk in contactIds.inClauseChunksOrNull()) {
+            val rawContactsTableWhere = rawContactsWhere and chunk?.let {
+                RawContactsFields.ContactId `in` it
+            }
+            matchingContactIds.addAllFrom(
+                findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel)
+            )
         }
 
         // Intentionally replace the contactsIds instead of adding to it.
-        contactIds = mutableSetOf<Long>().apply {
-            addAll(findContactIdsInRawContactsTable(rawContactsTableWhere, false, cancel))
-        }
+        contactIds = matchingContactIds
 
-        // If no match, return empty list.
+        // If no match, return empty set.
         if (contactIds.isEmpty() || cancel()) {
-            return emptyList()
+            return LongHashSet()
         }
     }
 
-    return resolve(
-        customDataRegistry,
-        contactIds,
-        include, includeRawContactsFields,
-        orderBy, limit, offset,
-        cancel
-    )
+    return contactIds
 }
 
 internal fun Contacts.resolve(
     customDataRegistry: CustomDataRegistry,
-    contactIds: MutableSet<Long>?,
+    contactIds: Set<Long>?,
     include: Include<AbstractDataField>?,
     includeRawContactsFields: Include<RawContactsField>?,
     orderBy: CompoundOrderBy<ContactsField>,
     limit: Int,
     offset: Int,
-    cancel: () -> Boolean
+    cancel: () -> Boolean,
+    executor: Executor? = null,
+    // An additional restriction on the Contacts table, such as a page token.
+    contactsWhere: Where<ContactsField>? = null
 ): List<Contact> {
 
     if (cancel() || (contactIds != null && contactIds.isEmpty())) {
@@ -748,47 +1025,280 @@ internal fun Contacts.resolve(
 
     val finalInclude = include.allFieldsIfNull(this)
 
-    var offsetAndLimitedContactIds: Collection<Long>? = contactIds
+    // If all of the included RawContacts fields are also in the Data table, then RawContacts and
+    // Data are read from the same Data table cursor.
+    val joinedInclude = includeRawContactsFields?.joinedDataFieldsOrNull()
+        ?.takeIf { finalInclude.containsAtLeastOneDataField }
+        ?.let { Include(finalInclude.fields + it) }
+
+    // If the Contacts table query would only restrict Contacts to ids that fit in one selection,
+    // then the Contacts are also read from the same Data table cursor.
+    if (joinedInclude != null && includeRawContactsFields != null
+        && contactsWhere == null && offset == 0 && limit == Int.MAX_VALUE
+        && (contactIds == null || contactIds.size <= MAX_IDS_PER_IN_CLAUSE)
+    ) {
+        return resolveFromDataTable(
+            customDataRegistry, contactIds,
+            joinedInclude, include.mimeTypesWhere(), includeRawContactsFields, orderBy,
+            // Ignore include field checks if include is null.
+            setCursorHolderIncludeFieldsToNull = include == null,
+            cancel
+        )
+    }
 
     // Collect Contacts, RawContacts, and Data with this mapper.
     val contactsMapper = ContactsMapper(customDataRegistry, cancel)
 
-    // Collect Contacts. If contactIds is null, then all Contacts are collected.
-    query(
-        Table.Contacts, finalInclude.onlyContactsFields(), contactIds?.let {
-            ContactsFields.Id `in` it
-        },
-        sortOrder = "$orderBy LIMIT $limit OFFSET $offset",
+    // Collect Contacts. If contactIds and contactsWhere are null, then all Contacts are collected.
+    val offsetAndLimitedContactIds = collectContacts(
+        contactsMapper, contactIds, finalInclude.onlyContactsFields(),
         // Ignore include field checks if include is null.
         setCursorHolderIncludeFieldsToNull = include == null,
-        processCursor = {
-            contactsMapper.processContactsCursor(it)
-            // We need to make sure we only use the contact ids after this call, which have been
-            // trimmed by the offset and limit.
-            offsetAndLimitedContactIds = contactsMapper.contactIds
-        }
+        orderBy, limit, offset, contactsWhere
     )
 
     if (cancel()) {
         return emptyList()
     }
 
-    // This redeclaration is just here to get rid of compiler not being able to smart cast
-    // offsetAndLimitedContactIds as non-null because it is a var.
-    val finalOffsetAndLimitedContactIds = offsetAndLimitedContactIds
+    if (joinedInclude != null && includeRawContactsFields != null) {
+        collectRawContactsAndDataFromDataTable(
+            contactsMapper, offsetAndLimitedContactIds,
+            joinedInclude, include.mimeTypesWhere(), includeRawContactsFields,
+            // Ignore include field checks if include is null.
+            setCursorHolderIncludeFieldsToNull = include == null,
+            cancel
+        )
+
+        return if (cancel()) emptyList() else contactsMapper.mapContacts()
+    }
 
-    // Collect RawContacts.
-    query(
-        Table.RawContacts, includeRawContactsFields.allFieldsIfNull(),
+    // Collect RawContacts. The contact ids are split into chunks so that the selection does not
+    // grow unbounded with the number of matching Contacts. Each chunk is processed by the same
+    // mapper as it is read.
+    val collectRawContacts = executor.submit {
+        for (chunk in offsetAndLimitedContactIds.inClauseChunksOrNull()) {
+            if (cancel()) {
+                break
+            }
+
+            query(
+                Table.RawContacts, includeRawContactsFields.allFieldsIfNull(),
+                // There may be RawContacts that are marked for deletion that have not yet been
+                // deleted.
+                (RawContactsFields.Deleted notEqualTo true)
+                    .and(chunk?.let { RawContactsFields.ContactId `in` it }),
+                // Ignore include field checks if includeRawContactsFields is null.
+                setCursorHolderIncludeFieldsToNull = includeRawContactsFields == null,
+                processCursor = contactsMapper::processRawContactsCursor
+            )
+        }
+    }
+
+    // Skip querying the Data table if there are no data fields included.
+    if (finalInclude.containsAtLeastOneDataField) {
+        val mimeTypesWhere = include.mimeTypesWhere()
+
+        // Collect Data. If offsetAndLimitedContactIds is null, then all Data are collected.
+        for (chunk in offsetAndLimitedContactIds.inClauseChunksOrNull()) {
+            if (cancel()) {
+                return emptyList()
+            }
+
+            query(
+                Table.Data, finalInclude,
+                chunk?.let { (Fields.Contact.Id `in` it) and mimeTypesWhere } ?: mimeTypesWhere,
+                // Ignore include field checks if include is null.
+                setCursorHolderIncludeFieldsToNull = include == null,
+                processCursor = {
+                    // The Data query may be done while the RawContacts are being collected by
+                    // the executor. However, Data can only be processed after all RawContacts
+                    // have been collected. The mapper is not thread-safe but it is only used by one
+                    // thread at a time.
+                    collectRawContacts()
+                    contactsMapper.processDataCursor(it)
+                }
+            )
+        }
+    }
+
+    // Make sure that RawContacts are collected even if there is no Data.
+    collectRawContacts()
+
+    // Output all collected Contacts, RawContacts, and Data.
+    return if (cancel()) emptyList() else contactsMapper.mapContacts()
+}
+
+/**
+ * Collects the Contacts with the given [contactIds] (or all if null) that match the
+ * [contactsWhere], ordered by [orderBy], applying the [offset] and [limit].
+ *
+ * Returns the ids of the collected Contacts, or null if all Contacts have been collected. In that
+ * case, there is no need to restrict the RawContacts and Data by contact id.
+ */
+private fun Contacts.collectContacts(
+    contactsMapper: ContactsMapper,
+    contactIds: Set<Long>?,
+    include: Include<ContactsField>,
+    setCursorHolderIncludeFieldsToNull: Boolean,
+    orderBy: CompoundOrderBy<ContactsField>,
+    limit: Int,
+    offset: Int,
+    contactsWhere: Where<ContactsField>?
+): Collection<Long>? {
+    var offsetAndLimitedContactIds: Collection<Long>? = contactIds
+
+    if (contactIds == null || contactIds.size <= MAX_IDS_PER_IN_CLAUSE) {
+        query(
+            Table.Contacts, include, contactIds?.let {
+                (ContactsFields.Id `in` it) and contactsWhere
+            } ?: contactsWhere,
+            sortOrder = "$orderBy LIMIT $limit OFFSET $offset",
+            setCursorHolderIncludeFieldsToNull = setCursorHolderIncludeFieldsToNull,
+            processCursor = {
+                contactsMapper.processContactsCursor(it)
+                // We need to make sure we only use the contact ids after this call, which have been
+                // trimmed by the offset and limit.
+                offsetAndLimitedContactIds = if (
+                    contactIds == null && contactsWhere == null
+                    && offset == 0 && contactsMapper.contactIds.size < limit
+                ) {
+                    null
+                } else {
+                    contactsMapper.contactIds
+                }
+            }
+        )
+    } else {
+        // Splitting the contactIds across several queries would break the ORDER BY, LIMIT, and
+        // OFFSET. Instead, all Contacts are read in order (only the Contacts table, which has a
+        // lot less rows than the Data table) and only those with the contactIds are collected,
+        // applying the offset and limit the same way the database would.
+        query(
+            Table.Contacts, include, contactsWhere,
+            sortOrder = "$orderBy",
+            setCursorHolderIncludeFieldsToNull = setCursorHolderIncludeFieldsToNull,
+            processCursor = {
+                contactsMapper.processContactsCursor(it, contactIds, offset, limit)
+                offsetAndLimitedContactIds = contactsMapper.contactIds
+            }
+        )
+    }
+
+    return offsetAndLimitedContactIds
+}
+
+/**
+ * Collects the RawContacts and Data of the Contacts with the given [contactIds] (or all if null)
+ * using one Data table query per chunk of ids, instead of separate RawContacts and Data table
+ * queries. The given [include] must contain the [joinedDataFieldsOrNull] of the
+ * [includeRawContactsFields].
+ *
+ * Only the Data rows matching the [mimeTypesWhere] are read. RawContacts that only have Data rows
+ * of other mimetypes are collected along with the blank RawContacts.
+ *
+ * Blank RawContacts have no rows in the Data table. So, a RawContacts table query is still needed.
+ * However, it excludes the RawContacts that have already been read from the Data table so it
+ * usually matches nothing.
+ */
+private fun Contacts.collectRawContactsAndDataFromDataTable(
+    contactsMapper: ContactsMapper,
+    contactIds: Collection<Long>?,
+    include: Include<AbstractDataField>,
+    mimeTypesWhere: Where<AbstractDataField>?,
+    includeRawContactsFields: Include<RawContactsField>,
+    setCursorHolderIncludeFieldsToNull: Boolean,
+    cancel: () -> Boolean
+) {
+    for (chunk in contactIds.inClauseChunksOrNull()) {
+        if (cancel()) {
+            return
+        }
+
+        val rawContactIdsInDataTable = query(
+            Table.Data, include,
+            // There may be RawContacts that are marked for deletion that have not yet been deleted.
+            (Fields.RawContact.Deleted notEqualTo true)
+                .and(mimeTypesWhere)
+                .and(chunk?.let { Fields.Contact.Id `in` it }),
+            setCursorHolderIncludeFieldsToNull = setCursorHolderIncludeFieldsToNull,
+            processCursor = { contactsMapper.processJoinedDataCursor(it) }
+        ) ?: emptySet()
+
+        if (cancel()) {
+            return
+        }
+
+        // Collect blank RawContacts. If all Contacts are being collected (chunk is null), then
+        // excluding the RawContacts that have already been read would make the selection grow
+        // unbounded. Those are skipped by the mapper anyways. Either way, only the joined fields
+        // (the ids) of the RawContacts are read, which are all there is to load for the missing
+        // ones.
+        query(
+            Table.RawContacts, includeRawContactsFields,
+            (RawContactsFields.Deleted notEqualTo true)
+                .and(chunk?.let { RawContactsFields.ContactId `in` it })
+                .and(
+                    rawContactIdsInDataTable
+                        .takeIf { chunk != null && it.isNotEmpty() }
+                        ?.let { RawContactsFields.Id notIn it }
+                ),
+            processCursor = contactsMapper::processRawContactsCursor
+        )
+    }
+}
+
+/**
+ * Resolves the Contacts with the given [contactIds] (or all if null), ordered by [orderBy], using a
+ * single Data table query for the Contacts, RawContacts, and Data instead of separate Contacts,
+ * RawContacts, and Data table queries. The given [include] must contain the
+ * [joinedDataFieldsOrNull] of the [includeRawContactsFields].
+ *
+ * The Contacts columns are joined into every Data row. So, the Contacts are read from the first
+ * Data row of each Contact and the order is done by the Data table query.
+ *
+ * Blank RawContacts have no rows in the Data table. So, a RawContacts table query is still needed.
+ * However, it only reads the ids of the RawContacts. Contacts that have no Data rows matching the
+ * [mimeTypesWhere] (e.g. all of their RawContacts are blank) are then not yet collected. Only in
+ * that case, a Contacts table query is done to collect them and to put them in order.
+ */
+private fun Contacts.resolveFromDataTable(
+    customDataRegistry: CustomDataRegistry,
+    contactIds: Set<Long>?,
+    include: Include<AbstractDataField>,
+    mimeTypesWhere: Where<AbstractDataField>?,
+    includeRawContactsFields: Include<RawContactsField>,
+    orderBy: CompoundOrderBy<ContactsField>,
+    setCursorHolderIncludeFieldsToNull: Boolean,
+    cancel: () -> Boolean
+): List<Contact> {
+    val contactsMapper = ContactsMapper(customDataRegistry, cancel)
+
+    val rawContactIdsInDataTable = query(
+        Table.Data, include,
         // There may be RawContacts that are marked for deletion that have not yet been deleted.
+        (Fields.RawContact.Deleted notEqualTo true)
+            .and(mimeTypesWhere)
+            .and(contactIds?.let { Fields.Contact.Id `in` it }),
+        sortOrder = "${orderBy.toDataTableOrderBy()}",
+        setCursorHolderIncludeFieldsToNull = setCursorHolderIncludeFieldsToNull,
+        processCursor = { contactsMapper.processJoinedDataCursor(it, collectContacts = true) }
+    ) ?: emptySet()
+
+    if (cancel()) {
+        return emptyList()
+    }
+
+    // Collect blank RawContacts. See the comments in collectRawContactsAndDataFromDataTable.
+    query(
+        Table.RawContacts, includeRawContactsFields,
         (RawContactsFields.Deleted notEqualTo true)
+            .and(contactIds?.let { RawContactsFields.ContactId `in` it })
             .and(
-                finalOffsetAndLimitedContactIds?.let {
-                    RawContactsFields.ContactId `in` finalOffsetAndLimitedContactIds
-                }
+                rawContactIdsInDataTable
+                    .takeIf { contactIds != null && it.isNotEmpty() }
+                    ?.let { RawContactsFields.Id notIn it }
             ),
-        // Ignore include field checks if includeRawContactsFields is null.
-        setCursorHolderIncludeFieldsToNull = includeRawContactsFields == null,
         processCursor = contactsMapper::processRawContactsCursor
     )
 
@@ -796,41 +1306,274 @@ internal fun Contacts.resolve(
         return emptyList()
     }
 
-    // Skip querying the Data table if there are no data fields included.
-    if (finalInclude.containsAtLeastOneDataField) {
-        // Collect Data. If finalOffsetAndLimitedContactIds is null, then all Data are collected.
-        query(
-            Table.Data, finalInclude, finalOffsetAndLimitedContactIds?.let {
-                Fields.Contact.Id `in` it
-            },
+    if (!contactsMapper.hasRawContactsWithoutContact) {
+        return contactsMapper.mapContacts()
+    }
+
+    // Collect the Contacts that are not in the Data table query along with the order of all of
+    // them. This is rare unless only a few mimetypes are included.
+    val orderedContactIds = query(
+        Table.Contacts, include.onlyContactsFields(),
+        contactIds?.let { ContactsFields.Id `in` it },
+        sortOrder = "$orderBy",
+        setCursorHolderIncludeFieldsToNull = setCursorHolderIncludeFieldsToNull,
+        processCursor = {
+            contactsMapper.processContactsCursor(it)
+
+            buildList {
+                val contactsCursor = it.contactsCursor()
+                it.resetPosition()
+                while (!cancel() && it.moveToNext()) {
+                    add(contactsCursor.contactId)
+                }
+            }
+        }
+    ) ?: emptyList()
+
+    if (cancel()) {
+        return emptyList()
+    }
+
+    val contactsById = contactsMapper.mapContacts().associateBy { it.id }
+    return orderedContactIds.mapNotNull(contactsById::get)
+}
+
+/**
+ * Returns this order by for Data table queries. The Contacts columns are joined into the Data
+ * table using the same names, except for the Contact id.
+ */
+private fun CompoundOrderBy<ContactsField>.toDataTableOrderBy():
+        CompoundOrderBy<AbstractDataField> = CompoundOrderBy(
+    orderBys.map { orderBy ->
+        // The ContactsFields.Options.Id is structurally equal to ContactsFields.Id.
+        val field = if (orderBy.field == ContactsFields.Id) {
+            Fields.Contact.Id
+        } else {
+            DataContactsField(orderBy.field.columnName)
+        }
+
+        when (orderBy) {
+            is Ascending -> Ascending(field, orderBy.ignoreCase)
+            is Descending -> Descending(field, orderBy.ignoreCase)
+        }
+    }.toSet()
+)
+
+/**
+ * Returns the fields in the Data table that correspond to all of the RawContacts fields in this,
+ * or null if some of them are not in the Data table.
+ */
+private fun Include<RawContactsField>.joinedDataFieldsOrNull(): Set<AbstractDataField>? =
+    fields.map { JOINED_RAW_CONTACTS_FIELDS[it] ?: return null }.toSet()
+
+/**
+ * The RawContacts fields that are also in the Data table, mapped to the Data table fields.
+ *
+ * See the developer notes in [Query.includeRawContactsFields] about why the other fields are not
+ * in here.
+ */
+private val JOINED_RAW_CONTACTS_FIELDS: Map<RawContactsField, AbstractDataField> by lazy {
+    mapOf(
+        // The RawContactsFields.Options.Id is structurally equal to RawContactsFields.Id.
+        RawContactsFields.Id to Fields.RawContact.Id,
+        RawContactsFields.ContactId to Fields.Contact.Id,
+        RawContactsFields.Deleted to Fields.RawContact.Deleted
+    )
+}
+
+/**
+ * Same as [resolve] except that the Contacts are passed to the [action] in order, as soon as they
+ * are available, instead of being collected in a single list.
+ *
+ * The Contacts (without RawContacts) are collected first. Then, the RawContacts are read and the
+ * Data are streamed from a single Data table cursor that is in the same order as the Contacts.
+ * Each Contact is passed to the [action] as soon as all of its Data rows have been read. Only the
+ * Contacts and RawContacts without Data, and the Data of one Contact, are kept in memory at any
+ * given time.
+ *
+ * If not all Contacts are resolved, the RawContacts and Data are read one page of Contacts at a
+ * time. A page has as many Contacts as fit in one selection.
+ *
+ * Returns true if the [limit] has been breached. If [forceOffsetAndLimit] is true, the [offset]
+ * and [limit] are applied manually in this case.
+ */
+internal fun Contacts.resolveInPages(
+    customDataRegistry: CustomDataRegistry,
+    contactIds: Set<Long>?,
+    include: Include<AbstractDataField>?,
+    includeRawContactsFields: Include<RawContactsField>?,
+    orderBy: CompoundOrderBy<ContactsField>,
+    limit: Int,
+    offset: Int,
+    forceOffsetAndLimit: Boolean,
+    cancel: () -> Boolean,
+    executor: Executor? = null,
+    contactsWhere: Where<ContactsField>? = null,
+    action: (Contact) -> Unit
+): Boolean {
+
+    if (cancel() || (contactIds != null && contactIds.isEmpty())) {
+        return false
+    }
+
+    val finalInclude = include.allFieldsIfNull(this)
+
+    val contactsMapper = ContactsMapper(customDataRegistry, cancel)
+    val offsetAndLimitedContactIds = collectContacts(
+        contactsMapper, contactIds, finalInclude.onlyContactsFields(),
+        // Ignore include field checks if include is null.
+        setCursorHolderIncludeFieldsToNull = include == null,
+        orderBy, limit, offset, contactsWhere
+    )
+
+    if (cancel()) {
+        return false
+    }
+
+    var contacts = contactsMapper.mapContacts()
+
+    val isLimitBreached = contacts.size > limit
+    if (isLimitBreached && forceOffsetAndLimit) {
+        contacts = contacts.offsetAndLimit(offset, limit)
+    }
+
+    val pages = if (offsetAndLimitedContactIds == null) {
+        sequenceOf(contacts)
+    } else {
+        contacts.asSequence().chunked(MAX_IDS_PER_IN_CLAUSE)
+    }
+    val mimeTypesWhere = include.mimeTypesWhere()
+    // The Data rows of each Contact must be next to each other.
+    val dataOrderBy = orderBy.withContactIdTieBreaker().toDataTableOrderBy()
+
+    for (page in pages) {
+        if (cancel()) {
+            break
+        }
+
+        val pageContactIds = offsetAndLimitedContactIds?.let { page.map(Contact::id) }
+        val streamingMapper = StreamingContactsMapper(customDataRegistry, cancel)
+
+        val collectRawContacts = executor.submit {
+            query(
+                Table.RawContacts, includeRawContactsFields.allFieldsIfNull(),
+                // There may be RawContacts that are marked for deletion that have not yet been
+                // deleted.
+                (RawContactsFields.Deleted notEqualTo true)
+                    .and(pageContactIds?.let { RawContactsFields.ContactId `in` it }),
+                // Ignore include field checks if includeRawContactsFields is null.
+                setCursorHolderIncludeFieldsToNull = includeRawContactsFields == null,
+                processCursor = streamingMapper::processRawContactsCursor
+            )
+        }
+
+        // Skip querying the Data table if there are no data fields included.
+        val isDataProcessed = finalInclude.containsAtLeastOneDataField && query(
+            Table.Data, finalInclude,
+            pageContactIds?.let { (Fields.Contact.Id `in` it) and mimeTypesWhere }
+                ?: mimeTypesWhere,
+            sortOrder = "$dataOrderBy",
             // Ignore include field checks if include is null.
             setCursorHolderIncludeFieldsToNull = include == null,
-            processCursor = contactsMapper::processDataCursor
-        )
+            processCursor = {
+                // See the comments in resolve.
+                collectRawContacts()
+                streamingMapper.processDataCursor(page, it, action)
+            }
+        ) != null
+
+        if (!isDataProcessed) {
+            collectRawContacts()
+            streamingMapper.processDataCursor(page, null, action)
+        }
     }
 
-    // Output all collected Contacts, RawContacts, and Data.
-    return if (cancel()) emptyList() else contactsMapper.mapContacts()
+    return isLimitBreached
+}
+
+/**
+ * Returns the ids of the Contacts in the [contactIds] (or all Contacts if null) that match the
+ * [contactsWhere] ordered by [orderBy], applying the [offset] and [limit].
+ *
+ * This does the same thing as the Contacts table query in [resolve] except that only ids are
+ * collected.
+ */
+internal fun Contacts.findOrderedContactIds(
+    contactIds: Set<Long>?,
+    contactsWhere: Where<ContactsField>?,
+    orderBy: CompoundOrderBy<ContactsField>,
+    limit: Int,
+    offset: Int,
+    cancel: () -> Boolean
+): List<Long> = if (contactIds == null || contactIds.size <= MAX_IDS_PER_IN_CLAUSE) {
+    query(
+        Table.Contacts, Include(ContactsFields.Id), contactIds?.let {
+            (ContactsFields.Id `in` it) and contactsWhere
+        } ?: contactsWhere,
+        sortOrder = "$orderBy LIMIT $limit OFFSET $offset"
+    ) {
+        buildList {
+            val contactsCursor = it.contactsCursor()
+            while (!cancel() && it.moveToNext()) {
+                add(contactsCursor.contactId)
+            }
+        }
+    } ?: emptyList()
+} else {
+    // See the comments in resolve about not splitting the contactIds across several queries.
+    query(Table.Contacts, Include(ContactsFields.Id), contactsWhere, sortOrder = "$orderBy") {
+        buildList {
+            val contactsCursor = it.contactsCursor()
+            var matchCount = 0
+            while (!cancel() && size < limit && it.moveToNext()) {
+                val contactId = contactsCursor.contactId
+                if (contactId in contactIds && matchCount++ >= offset) {
+                    add(contactId)
+                }
+            }
+        }
+    } ?: emptyList()
 }
 
 private class QueryResult private constructor(
     contacts: List<Contact>,
     override val isLimitBreached: Boolean,
+    // Null if there is no next page.
+    nextPageToken: (() -> String?)?,
     override val isRedacted: Boolean
 ) : ArrayList<Contact>(contacts), Query.Result {
 
-    constructor(contacts: List<Contact>, isLimitBreached: Boolean) : this(
+    constructor(
+        contacts: List<Contact>, isLimitBreached: Boolean, nextPageToken: (() -> String?)?
+    ) : this(
         contacts = contacts,
         isLimitBreached = isLimitBreached,
+        nextPageToken = nextPageToken,
         isRedacted = false
     )
 
-    override fun toString(): String =
+    // The string functions must not create the page token because it requires a query. They may
+    // be invoked in the UI thread (e.g. when debugging) and whenever the result is logged.
+    private val hasNextPage: Boolean = nextPageToken != null
+
+    override val nextPageToken: String? by lazy { nextPageToken?.invoke() }
+
+    override fun toString(): String = toString(
+        firstContact = firstOrNull(), isRedacted = isRedacted
+    )
+
+    // Only the first contact is logged so there is no need to redact a copy of every contact.
+    override fun redactedString(): String = toString(
+        firstContact = firstOrNull()?.redactedCopy(), isRedacted = true
+    )
+
+    private fun toString(firstContact: Contact?, isRedacted: Boolean): String =
         """
             Query.Result {
                 Number of contacts found: $size
-                First contact: ${firstOrNull()}
+                First contact: $firstContact
                 isLimitBreached: $isLimitBreached
+                hasNextPage: $hasNextPage
                 isRedacted: $isRedacted
             }
         """.trimIndent()
@@ -838,6 +1581,36 @@ private class QueryResult private constructor(
     override fun redactedCopy(): Query.Result = QueryResult(
         contacts = redactedCopies(),
         isLimitBreached = isLimitBreached,
+        // The page token of this is only created if the page token of the copy is accessed.
+        nextPageToken = { nextPageToken?.redactString() }.takeIf { hasNextPage },
         isRedacted = true
     )
-}
\ No newline at end of file
+}
+
+private class QueryForEachResult private constructor(
+    override val count: Int,
+    override val isLimitBreached: Boolean,
+    override val isRedacted: Boolean
+) : Query.ForEachResult {
+
+    constructor(count: Int, isLimitBreached: Boolean) : this(
+        count = count,
+        isLimitBreached = isLimitBreached,
+        isRedacted = false
+    )
+
+    override fun toString(): String =
+        """
+            Query.ForEachResult {
+                Number of contacts found: $count
+                isLimitBreached: $isLimitBreached
+                isRedacted: $isRedacted
+            }
+        """.trimIndent()
+
+    override fun redactedCopy(): Query.ForEachResult = QueryForEachResult(
+        count = count,
+        isLimitBreached = isLimitBreached,
+        isRedacted = true
+    )
+}
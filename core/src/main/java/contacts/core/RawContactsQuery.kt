@@ -614,8 +614,7 @@ private fun Contacts.resolve(
     // Get RawContact Ids matching where from the Data table. If where is null, skip.
     if (where != null && !cancel()) {
         rawContactIds = mutableSetOf<Long>().apply {
-            val reducedWhere = reduceDataTableWhereForMatchingRawContactIds(where, cancel)
-            addAll(findRawContactIdsInDataTable(reducedWhere, cancel))
+            addAll(findMatchingRawContactIdsInDataTable(where, cancel))
         }
 
         // Get the RawContacts Ids of blank RawContacts matching the where from the RawContacts
@@ -717,9 +716,10 @@ private fun Contacts.resolve(
     if (finalInclude.containsAtLeastOneDataField) {
         // Collect Data. If finalOffsetAndLimitedRawContactIds is null, then all Data are collected.
         query(
-            Table.Data, finalInclude, finalOffsetAndLimitedRawContactIds?.let {
-                Fields.RawContact.Id `in` it
-            },
+            Table.Data, finalInclude,
+            finalOffsetAndLimitedRawContactIds?.let {
+                (Fields.RawContact.Id `in` it) and include.mimeTypesWhere()
+            } ?: include.mimeTypesWhere(),
             // Ignore include field checks if include is null.
             setCursorHolderIncludeFieldsToNull = include == null,
             processCursor = contactsMapper::processDataCursor
@@ -743,10 +743,17 @@ private class RawContactsQueryResult private constructor(
     )
 
     override fun toString(): String =
+        toString(firstRawContact = firstOrNull(), isRedacted = isRedacted)
+
+    // Only the first raw contact is logged so there is no need to redact a copy of every one.
+    override fun redactedString(): String =
+        toString(firstRawContact = firstOrNull()?.redactedCopy(), isRedacted = true)
+
+    private fun toString(firstRawContact: RawContact?, isRedacted: Boolean): String =
         """
             RawContactsQuery.Result {
                 Number of raw contacts found: $size
-                First raw contact: ${firstOrNull()}
+                First raw contact: $firstRawContact
                 isLimitBreached: $isLimitBreached
                 isRedacted: $isRedacted
             }
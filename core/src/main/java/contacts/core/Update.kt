@@ -1,7 +1,7 @@
 package contacts.core
 
 import android.content.ContentProviderOperation
-import android.content.ContentResolver
+import android.content.ContentProviderResult
 import contacts.core.entities.ExistingContactEntity
 import contacts.core.entities.ExistingRawContactEntity
 import contacts.core.entities.MimeType
@@ -11,6 +11,8 @@ import contacts.core.entities.custom.CustomDataRegistry
 import contacts.core.entities.operation.AddressOperation
 import contacts.core.entities.operation.EmailOperation
 import contacts.core.entities.operation.EventOperation
+import contacts.core.entities.operation.ExistingDataRowIds
+import contacts.core.entities.operation.ExistingGroupMemberships
 import contacts.core.entities.operation.GroupMembershipOperation
 import contacts.core.entities.operation.ImOperation
 import contacts.core.entities.operation.NameOperation
@@ -23,6 +25,9 @@ import contacts.core.entities.operation.RawContactsOperation
 import contacts.core.entities.operation.RelationOperation
 import contacts.core.entities.operation.SipAddressOperation
 import contacts.core.entities.operation.WebsiteOperation
+import contacts.core.entities.operation.prefetchExistingDataRowIds
+import contacts.core.entities.operation.prefetchExistingGroupMemberships
+import contacts.core.util.MAX_OPERATIONS_PER_BATCH
 import contacts.core.util.PhotoDataOperation
 import contacts.core.util.applyBatch
 import contacts.core.util.isEmpty
@@ -287,6 +292,90 @@ interface Update : CrudApi {
     // fun commit(cancel: () -> Boolean = { false }): Result
     fun commit(cancel: () -> Boolean): Result
 
+    /**
+     * Updates the [ExistingRawContactEntity]s in the queue (added via [rawContacts] and [contacts])
+     * **in chunks** and returns the [Result].
+     *
+     * ## [commitInChunks] vs [commit]
+     *
+     * When updating just one [ExistingRawContactEntity] or [ExistingContactEntity], the
+     * [commitInChunks] function behaves and performs identically to [commit].
+     *
+     * When updating more than one, the [commitInChunks] function is faster than [commit] because
+     * the operations of several Contacts and RawContacts are applied together in one batch
+     * (or "chunk") instead of one batch per Contact or RawContact. This performance improvement is
+     * negligible for small amounts of Contacts and RawContacts (e.g. 5, 10, 20,...) BUT is very
+     * noticeable for much larger amounts (e.g. 500, 1000, 5000, ...).
+     *
+     * A caveat to using [commitInChunks] is that failure to update one Contact or RawContact will
+     * result in failure to update the other Contacts and RawContacts that happen to be updated in
+     * the same "chunk". Using [commit] does not have this caveat. By using [commit], each Contact
+     * and RawContact is updated separately, guaranteeing that an error in the update of one does
+     * not affect another.
+     *
+     * It is recommended to use [commit] when updating a few Contacts or RawContacts. When updating
+     * several hundreds or thousands, then you should probably use [commitInChunks] if you want to
+     * optimize for speed over "correctness".
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.WRITE_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun commitInChunks(): Result
+
+    /**
+     * Updates the [ExistingRawContactEntity]s in the queue (added via [rawContacts] and [contacts])
+     * **in chunks** and returns the [Result].
+     *
+     * ## [commitInChunks] vs [commit]
+     *
+     * When updating just one [ExistingRawContactEntity] or [ExistingContactEntity], the
+     * [commitInChunks] function behaves and performs identically to [commit].
+     *
+     * When updating more than one, the [commitInChunks] function is faster than [commit] because
+     * the operations of several Contacts and RawContacts are applied together in one batch
+     * (or "chunk") instead of one batch per Contact or RawContact. This performance improvement is
+     * negligible for small amounts of Contacts and RawContacts (e.g. 5, 10, 20,...) BUT is very
+     * noticeable for much larger amounts (e.g. 500, 1000, 5000, ...).
+     *
+     * A caveat to using [commitInChunks] is that failure to update one Contact or RawContact will
+     * result in failure to update the other Contacts and RawContacts that happen to be updated in
+     * the same "chunk". Using [commit] does not have this caveat. By using [commit], each Contact
+     * and RawContact is updated separately, guaranteeing that an error in the update of one does
+     * not affect another.
+     *
+     * It is recommended to use [commit] when updating a few Contacts or RawContacts. When updating
+     * several hundreds or thousands, then you should probably use [commitInChunks] if you want to
+     * optimize for speed over "correctness".
+     *
+     * ## Permissions
+     *
+     * Requires [ContactsPermissions.WRITE_PERMISSION].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true.
+     *
+     * This is useful when running this function in a background thread or coroutine.
+     *
+     * **Cancelling does not undo updates. This means that depending on when the cancellation
+     * occurs, some if not all of the RawContacts in the update queue may have already been
+     * updated.**
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun commitInChunks(cancel: () -> Boolean = { false }): Result
+    fun commitInChunks(cancel: () -> Boolean): Result
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -441,6 +530,12 @@ private class UpdateImpl(
             val contactIdsResultMap = mutableMapOf<Long, Boolean>()
             val rawContactIdsResultMap = mutableMapOf<Long, Boolean>()
 
+            val rawContactIds = nonProfileRawContactIds()
+            val existingDataRowIds =
+                contactsApi.prefetchExistingDataRowIds(rawContactIds, isProfile = false)
+            val existingGroupMemberships =
+                contactsApi.prefetchExistingGroupMemberships(rawContactIds, isProfile = false)
+
             for (contact in contacts) {
                 if (cancel()) {
                     break
@@ -458,6 +553,8 @@ private class UpdateImpl(
                         include?.fields,
                         includeRawContactsFields?.fields,
                         contact,
+                        existingDataRowIds,
+                        existingGroupMemberships,
                         cancel
                     )
                 }
@@ -480,6 +577,8 @@ private class UpdateImpl(
                         include?.fields,
                         includeRawContactsFields?.fields,
                         rawContact,
+                        existingDataRowIds,
+                        existingGroupMemberships,
                         cancel
                     )
                 }
@@ -493,6 +592,248 @@ private class UpdateImpl(
             .redactedCopyOrThis(isRedacted)
             .also { onPostExecute(contactsApi, it) }
     }
+
+    override fun commitInChunks(): Update.Result = commitInChunks { false }
+
+    override fun commitInChunks(cancel: () -> Boolean): Update.Result {
+        onPreExecute()
+
+        return if (
+            (contacts.isEmpty() && rawContacts.isEmpty()) ||
+            !permissions.canUpdateDelete() ||
+            cancel()
+        ) {
+            UpdateFailed()
+        } else {
+            val rawContactIds = nonProfileRawContactIds()
+            val updateInChunksOperation = UpdateInChunksOperation(
+                contactsApi.prefetchExistingDataRowIds(rawContactIds, isProfile = false),
+                contactsApi.prefetchExistingGroupMemberships(rawContactIds, isProfile = false),
+                cancel
+            )
+
+            for (contact in contacts) {
+                if (cancel()) {
+                    break
+                }
+
+                updateInChunksOperation.update(contact)
+            }
+
+            for (rawContact in rawContacts) {
+                if (cancel()) {
+                    break
+                }
+
+                updateInChunksOperation.update(rawContact)
+            }
+            updateInChunksOperation.updateLeftovers()
+
+            UpdateResult(
+                contactIdsResultMap = updateInChunksOperation.contactIdsResultMap,
+                rawContactIdsResultMap = updateInChunksOperation.rawContactIdsResultMap
+            )
+        }
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+
+    /**
+     * The ids of all non-profile RawContacts in the update queue, whose existing Data rows and
+     * group memberships are prefetched for all of them at once instead of per RawContact.
+     */
+    private fun nonProfileRawContactIds(): Set<Long> = buildSet {
+        for (contact in contacts) {
+            if (!contact.isProfile) {
+                contact.rawContacts.forEach { add(it.id) }
+            }
+        }
+        for (rawContact in rawContacts) {
+            if (!rawContact.isProfile) {
+                add(rawContact.id)
+            }
+        }
+    }
+
+    private inner class UpdateInChunksOperation(
+        private val existingDataRowIds: ExistingDataRowIds,
+        private val existingGroupMemberships: ExistingGroupMemberships,
+        private val cancel: () -> Boolean
+    ) {
+
+        /**
+         * The combined operations for updating (or deleting) the accumulated Contacts and
+         * RawContacts.
+         */
+        private val accumulatedOperations = arrayListOf<ContentProviderOperation>()
+
+        /**
+         * The Contacts whose operations are in [accumulatedOperations] mapped to the index of
+         * their delete operation in [accumulatedOperations], or null if it is not being deleted.
+         */
+        private val contactsIndices = mutableMapOf<ExistingContactEntity, Int?>()
+
+        /**
+         * The RawContacts whose operations are in [accumulatedOperations] mapped to the index of
+         * their delete operation in [accumulatedOperations], or null if it is not being deleted.
+         */
+        private val rawContactsIndices = mutableMapOf<ExistingRawContactEntity, Int?>()
+
+        /**
+         * The ids of all RawContacts whose operations are in [accumulatedOperations], including
+         * those of the Contacts in [contactsIndices].
+         *
+         * The same RawContact may be passed in more than once (e.g. in a Contact and on its own).
+         * Its operations must be built from the Data rows that exist after its pending operations
+         * have been applied, which only happens when [flush] invalidates [existingDataRowIds] and
+         * [existingGroupMemberships].
+         */
+        private val pendingRawContactIds = mutableSetOf<Long>()
+
+        val contactIdsResultMap = mutableMapOf<Long, Boolean>()
+
+        val rawContactIdsResultMap = mutableMapOf<Long, Boolean>()
+
+        fun update(contact: ExistingContactEntity) {
+            if (contact.isProfile) {
+                // Intentionally fail the operation to ensure that this is only used for
+                // non-profile updates. Otherwise, operation can succeed. This is only done to
+                // enforce API design.
+                contactIdsResultMap[contact.id] = false
+                return
+            }
+
+            if (contact.rawContacts.any { it.id in pendingRawContactIds }) {
+                flush()
+            }
+
+            val isDelete = contact.isBlank && deleteBlanks
+            val operations = if (isDelete) {
+                arrayListOf(
+                    contactsApi.deleteOperationFor(RawContactsFields.ContactId equalTo contact.id)
+                )
+            } else {
+                contactsApi.updateOperationsForContact(
+                    include?.fields,
+                    includeRawContactsFields?.fields,
+                    contact,
+                    existingDataRowIds,
+                    existingGroupMemberships,
+                    cancel
+                )
+            }
+
+            flushIfFull(operations.size)
+            contactsIndices[contact] = if (isDelete) accumulatedOperations.size else null
+            contact.rawContacts.mapTo(pendingRawContactIds) { it.id }
+            accumulatedOperations.addAll(operations)
+        }
+
+        fun update(rawContact: ExistingRawContactEntity) {
+            if (rawContact.isProfile) {
+                // Intentionally fail the operation to ensure that this is only used for
+                // non-profile updates. Otherwise, operation can succeed. This is only done to
+                // enforce API design.
+                rawContactIdsResultMap[rawContact.id] = false
+                return
+            }
+
+            if (rawContact.id in pendingRawContactIds) {
+                flush()
+            }
+
+            val isDelete = rawContact.isBlank && deleteBlanks
+            val operations = if (isDelete) {
+                arrayListOf(
+                    contactsApi.deleteOperationFor(RawContactsFields.Id equalTo rawContact.id)
+                )
+            } else {
+                contactsApi.updateOperationsForRawContact(
+                    include?.fields,
+                    includeRawContactsFields?.fields,
+                    rawContact,
+                    existingDataRowIds,
+                    existingGroupMemberships,
+                    cancel
+                )
+            }
+
+            flushIfFull(operations.size)
+            rawContactsIndices[rawContact] = if (isDelete) accumulatedOperations.size else null
+            pendingRawContactIds.add(rawContact.id)
+            accumulatedOperations.addAll(operations)
+        }
+
+        fun updateLeftovers() {
+            flush()
+        }
+
+        private fun flushIfFull(numberOfOperationsToAdd: Int) {
+            // If a single entity produces more than MAX_OPERATIONS_PER_BATCH, it is applied in its
+            // own batch. This is the same behavior as commit.
+            if (accumulatedOperations.size + numberOfOperationsToAdd > MAX_OPERATIONS_PER_BATCH) {
+                flush()
+            }
+        }
+
+        /**
+         * Apply the [accumulatedOperations], process the results, and clear the
+         * [accumulatedOperations], [contactsIndices], [rawContactsIndices], and
+         * [pendingRawContactIds].
+         */
+        private fun flush() {
+            if (contactsIndices.isEmpty() && rawContactsIndices.isEmpty()) {
+                return
+            }
+
+            /*
+             * Atomically perform all of the accumulated operations. All will either succeed or all
+             * will fail.
+             */
+            val results = contentResolver.applyBatch(accumulatedOperations)
+
+            for ((contact, deleteResultIndex) in contactsIndices) {
+                contactIdsResultMap[contact.id] = results.isSuccessful(deleteResultIndex)
+
+                for (rawContact in contact.rawContacts) {
+                    existingDataRowIds.invalidate(rawContact.id)
+                    existingGroupMemberships.invalidate(rawContact.id)
+                    if (deleteResultIndex == null && results != null) {
+                        contactsApi.executePendingPhotoDataOperationFor(rawContact)
+                    }
+                }
+            }
+
+            for ((rawContact, deleteResultIndex) in rawContactsIndices) {
+                rawContactIdsResultMap[rawContact.id] = results.isSuccessful(deleteResultIndex)
+
+                existingDataRowIds.invalidate(rawContact.id)
+
+                existingGroupMemberships.invalidate(rawContact.id)
+                if (deleteResultIndex == null && results != null) {
+                    contactsApi.executePendingPhotoDataOperationFor(rawContact)
+                }
+            }
+
+            accumulatedOperations.clear()
+            contactsIndices.clear()
+            rawContactsIndices.clear()
+            pendingRawContactIds.clear()
+        }
+
+        /**
+         * Updates are successful if the batch succeeded. Deletes are successful if the batch
+         * succeeded and at least one row has been deleted.
+         */
+        private fun Array<ContentProviderResult>?.isSuccessful(deleteResultIndex: Int?): Boolean =
+            if (this == null) {
+                false
+            } else if (deleteResultIndex == null) {
+                true
+            } else {
+                getOrNull(deleteResultIndex)?.count?.let { it > 0 } == true
+            }
+    }
 }
 
 /**
@@ -504,15 +845,57 @@ internal fun Contacts.updateContact(
     // Disable include checks when field set is null.
     includeRawContactsFields: Set<RawContactsField>?,
     contact: ExistingContactEntity,
+    existingDataRowIds: ExistingDataRowIds,
+    existingGroupMemberships: ExistingGroupMemberships,
     cancel: () -> Boolean
 ): Boolean {
 
+    val operations = updateOperationsForContact(
+        includeFields, includeRawContactsFields, contact,
+        existingDataRowIds, existingGroupMemberships, cancel
+    )
+
+    /*
+     * Atomically perform all of the operations. All will either succeed or all will fail.
+     */
+    val success = contentResolver.applyBatch(operations) != null
+
+    // The Data rows of these RawContacts may have changed.
+    for (rawContact in contact.rawContacts) {
+        existingDataRowIds.invalidate(rawContact.id)
+        existingGroupMemberships.invalidate(rawContact.id)
+    }
+
+    if (success) {
+        // We will attempt to set or remove the photos, ignoring whether they fails or succeeds.
+        // Users of this library can submit a request to change this behavior if they want =)
+        for (rawContact in contact.rawContacts) {
+            executePendingPhotoDataOperationFor(rawContact)
+        }
+        // Note that the contact photo operations are just propagated to the raw contacts.
+    }
+
+    return success
+}
+
+private fun Contacts.updateOperationsForContact(
+    // Disable include checks when field set is null.
+    includeFields: Set<AbstractDataField>?,
+    // Disable include checks when field set is null.
+    includeRawContactsFields: Set<RawContactsField>?,
+    contact: ExistingContactEntity,
+    existingDataRowIds: ExistingDataRowIds,
+    existingGroupMemberships: ExistingGroupMemberships,
+    cancel: () -> Boolean
+): ArrayList<ContentProviderOperation> {
+
     val operations = arrayListOf<ContentProviderOperation>()
 
     for (rawContact in contact.rawContacts) {
         operations.addAll(
             updateOperationsForRawContact(
-                includeFields, includeRawContactsFields, rawContact, cancel
+                includeFields, includeRawContactsFields, rawContact,
+                existingDataRowIds, existingGroupMemberships, cancel
             )
         )
     }
@@ -527,21 +910,7 @@ internal fun Contacts.updateContact(
         includeFields?.let(Fields.Contact.Options::intersect)
     )?.let(operations::add)
 
-    /*
-     * Atomically perform all of the operations. All will either succeed or all will fail.
-     */
-    val success = contentResolver.applyBatch(operations) != null
-
-    if (success) {
-        // We will attempt to set or remove the photos, ignoring whether they fails or succeeds.
-        // Users of this library can submit a request to change this behavior if they want =)
-        for (rawContact in contact.rawContacts) {
-            executePendingPhotoDataOperationFor(rawContact)
-        }
-        // Note that the contact photo operations are just propagated to the raw contacts.
-    }
-
-    return success
+    return operations
 }
 
 /**
@@ -559,11 +928,14 @@ internal fun Contacts.updateRawContact(
     // Disable include checks when field set is null.
     includeRawContactsFields: Set<RawContactsField>?,
     rawContact: ExistingRawContactEntity,
+    existingDataRowIds: ExistingDataRowIds,
+    existingGroupMemberships: ExistingGroupMemberships,
     cancel: () -> Boolean
 ): Boolean {
 
     val operations = updateOperationsForRawContact(
-        includeFields, includeRawContactsFields, rawContact, cancel
+        includeFields, includeRawContactsFields, rawContact,
+        existingDataRowIds, existingGroupMemberships, cancel
     )
 
     /*
@@ -571,6 +943,10 @@ internal fun Contacts.updateRawContact(
      */
     val success = contentResolver.applyBatch(operations) != null
 
+    // The Data rows of this RawContact may have changed.
+    existingDataRowIds.invalidate(rawContact.id)
+    existingGroupMemberships.invalidate(rawContact.id)
+
     if (success) {
         // We will attempt to set or remove the photo, ignoring whether it fails or succeeds.
         // Users of this library can submit a request to change this behavior if they want =)
@@ -603,6 +979,8 @@ private fun Contacts.updateOperationsForRawContact(
     // Disable include checks when field set is null.
     includeRawContactsFields: Set<RawContactsField>?,
     rawContact: ExistingRawContactEntity,
+    existingDataRowIds: ExistingDataRowIds,
+    existingGroupMemberships: ExistingGroupMemberships,
     cancel: () -> Boolean
 ): ArrayList<ContentProviderOperation> {
     val isProfile = rawContact.isProfile
@@ -624,7 +1002,7 @@ private fun Contacts.updateOperationsForRawContact(
     operations.addAll(
         rawContact.customDataUpdateInsertOrDeleteOperations(
             callerIsSyncAdapter = callerIsSyncAdapter,
-            contentResolver, includeFields, customDataRegistry
+            existingDataRowIds, includeFields, customDataRegistry
         )
     )
 
@@ -637,7 +1015,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Address::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.addresses, rawContact.id, contentResolver
+                rawContact.addresses, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -651,7 +1029,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Email::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.emails, rawContact.id, contentResolver
+                rawContact.emails, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -665,7 +1043,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Event::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.events, rawContact.id, contentResolver
+                rawContact.events, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -679,7 +1057,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.GroupMembership::intersect)
             ).updateInsertOrDelete(
-                rawContact.groupMemberships, rawContact.id, this, cancel
+                rawContact.groupMemberships, rawContact.id, existingGroupMemberships, cancel
             )
         )
     }
@@ -694,7 +1072,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Im::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.ims, rawContact.id, contentResolver
+                rawContact.ims, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -707,7 +1085,7 @@ private fun Contacts.updateOperationsForRawContact(
             isProfile = isProfile,
             includeFields?.let(Fields.Name::intersect)
         ).updateInsertOrDeleteDataForRawContact(
-            rawContact.name, rawContact.id, contentResolver
+            rawContact.name, rawContact.id, existingDataRowIds
         )?.let(operations::add)
     }
 
@@ -719,7 +1097,7 @@ private fun Contacts.updateOperationsForRawContact(
             isProfile = isProfile,
             includeFields?.let(Fields.Nickname::intersect)
         ).updateInsertOrDeleteDataForRawContact(
-            rawContact.nickname, rawContact.id, contentResolver
+            rawContact.nickname, rawContact.id, existingDataRowIds
         )?.let(operations::add)
     }
 
@@ -731,7 +1109,7 @@ private fun Contacts.updateOperationsForRawContact(
             isProfile = isProfile,
             includeFields?.let(Fields.Note::intersect)
         ).updateInsertOrDeleteDataForRawContact(
-            rawContact.note, rawContact.id, contentResolver
+            rawContact.note, rawContact.id, existingDataRowIds
         )?.let(operations::add)
     }
 
@@ -755,7 +1133,7 @@ private fun Contacts.updateOperationsForRawContact(
             isProfile = isProfile,
             includeFields?.let(Fields.Organization::intersect)
         ).updateInsertOrDeleteDataForRawContact(
-            rawContact.organization, rawContact.id, contentResolver
+            rawContact.organization, rawContact.id, existingDataRowIds
         )?.let(operations::add)
     }
 
@@ -768,7 +1146,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Phone::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.phones, rawContact.id, contentResolver
+                rawContact.phones, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -785,7 +1163,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Relation::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.relations, rawContact.id, contentResolver
+                rawContact.relations, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -799,7 +1177,7 @@ private fun Contacts.updateOperationsForRawContact(
             isProfile = isProfile,
             includeFields?.let(Fields.SipAddress::intersect)
         ).updateInsertOrDeleteDataForRawContact(
-            rawContact.sipAddress, rawContact.id, contentResolver
+            rawContact.sipAddress, rawContact.id, existingDataRowIds
         )?.let(operations::add)
     }
 
@@ -812,7 +1190,7 @@ private fun Contacts.updateOperationsForRawContact(
                 isProfile = isProfile,
                 includeFields?.let(Fields.Website::intersect)
             ).updateInsertOrDeleteDataForRawContact(
-                rawContact.websites, rawContact.id, contentResolver
+                rawContact.websites, rawContact.id, existingDataRowIds
             )
         )
     }
@@ -822,7 +1200,7 @@ private fun Contacts.updateOperationsForRawContact(
 
 private fun ExistingRawContactEntity.customDataUpdateInsertOrDeleteOperations(
     callerIsSyncAdapter: Boolean,
-    contentResolver: ContentResolver,
+    existingDataRowIds: ExistingDataRowIds,
     // Disable include checks when field set is null.
     includeFields: Set<AbstractDataField>?,
     customDataRegistry: CustomDataRegistry
@@ -841,7 +1219,7 @@ private fun ExistingRawContactEntity.customDataUpdateInsertOrDeleteOperations(
             CustomDataCountRestriction.AT_MOST_ONE -> {
                 customDataOperation
                     .updateInsertOrDeleteDataForRawContact(
-                        customDataEntityHolder.entities.firstOrNull(), id, contentResolver
+                        customDataEntityHolder.entities.firstOrNull(), id, existingDataRowIds
                     )?.let(::add)
             }
 
@@ -850,7 +1228,7 @@ private fun ExistingRawContactEntity.customDataUpdateInsertOrDeleteOperations(
                     .updateInsertOrDeleteDataForRawContact(
                         customDataEntityHolder.entities,
                         id,
-                        contentResolver
+                        existingDataRowIds
                     )
                     .let(::addAll)
             }
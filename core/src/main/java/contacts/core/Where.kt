@@ -5,6 +5,7 @@ import contacts.core.entities.DataEntity
 import contacts.core.entities.EventDate
 import contacts.core.entities.MimeType
 import contacts.core.entities.toWhereString
+import contacts.core.util.LongSet
 import contacts.core.util.copyWithFieldValueSubstitutions
 import java.util.Date
 
@@ -656,6 +657,72 @@ class Where<out T : Field> private constructor(
         whereString
     }
 
+    /**
+     * The selection passed to the Contacts Provider. This is the same as [toString] except that
+     * values are replaced with "?" placeholders, whose values are in [selectionArgs].
+     *
+     * This allows the Contacts Provider to reuse compiled SQL statements for wheres that only
+     * differ in values (e.g. user input) and avoids building and escaping string literals.
+     *
+     * Values that are not bound as arguments are inlined the same way as in [toString]; null,
+     * booleans, and dates. Each element of collections (e.g. `in` and `notIn`) is bound as its own
+     * argument, "(?, ?, ...)", so that chunked queries of ids (see
+     * [contacts.core.util.inClauseChunks]) of the same size share the same selection. If there are
+     * more arguments than the statement allows, then all values are inlined instead.
+     */
+    internal val selection: String
+        get() = compiledSelection.first
+
+    /**
+     * The values of the "?" placeholders in [selection].
+     */
+    internal val selectionArgs: Array<String>
+        get() = compiledSelection.second
+
+    // Only evaluate this once to save some CPU. Same assumptions as evaluatedWhereString.
+    private val compiledSelection: Pair<String, Array<String>> by lazy {
+        val selection = StringBuilder()
+        val selectionArgs = mutableListOf<String>()
+        appendSelectionTo(selection, selectionArgs)
+
+        if (selectionArgs.size > MAX_SELECTION_ARGS) {
+            // Older versions of SQLite limit the number of arguments. Inline everything instead.
+            toString() to emptyArray()
+        } else {
+            selection.toString() to selectionArgs.toTypedArray()
+        }
+    }
+
+    private fun appendSelectionTo(selection: StringBuilder, selectionArgs: MutableList<String>) {
+        if (lhs is WhereHolder && operator is Operator.Combine && rhs is WhereHolder) {
+            // Recursive case. Traverse lhs and rhs.
+            selection.append('(')
+            lhs.where.appendSelectionTo(selection, selectionArgs)
+            selection.append(") ").append(operator).append(" (")
+            rhs.where.appendSelectionTo(selection, selectionArgs)
+            selection.append(')')
+        } else if (lhs is FieldHolder && operator is Operator.Match && rhs is ValueHolder) {
+            // Base case. Evaluate the expression.
+            selection.append(lhs).append(' ').append(operator).append(' ')
+            rhs.appendSelectionTo(selection, selectionArgs)
+        } else {
+            throw InvalidWhereFormException(this)
+        }
+
+        if (options != null) {
+            selection.append(' ').append(options)
+        }
+
+        if (
+            lhs is FieldHolder &&
+            lhs.field is DataField &&
+            lhs.field.mimeType.value.isNotBlank()
+        ) {
+            // See evaluatedWhereString. The mimetype is constant so it is inlined.
+            selection.append(" AND ${Fields.MimeType.columnName} = '${lhs.field.mimeType.value}'")
+        }
+    }
+
     override fun toString(): String = evaluatedWhereString
 }
 
@@ -732,6 +799,40 @@ internal class ValueHolder private constructor(
         valueDecorator?.decoratedValueToSqlString(value.toString(), isRedacted)
             ?: value.toSqlString(isRedacted)
 
+    /**
+     * Appends a "?" placeholder to the [selection] and the value to the [selectionArgs]. If the
+     * value cannot be bound as an argument, then it is inlined in the [selection] instead in the
+     * same way as [toString].
+     */
+    fun appendSelectionTo(selection: StringBuilder, selectionArgs: MutableList<String>) {
+        if (valueDecorator == null) {
+            when (value) {
+                is LongSet -> return value.appendSelectionTo(selection, selectionArgs, isRedacted)
+                is Array<*> -> return value.asSequence()
+                    .appendSelectionTo(selection, selectionArgs, isRedacted)
+
+                is Collection<*> -> return value.asSequence()
+                    .appendSelectionTo(selection, selectionArgs, isRedacted)
+
+                is Sequence<*> -> return value
+                    .appendSelectionTo(selection, selectionArgs, isRedacted)
+            }
+        }
+
+        val selectionArg = if (valueDecorator != null) {
+            valueDecorator.decoratedValueToSqlArg(value.toString(), isRedacted)
+        } else {
+            value.toSqlArg(isRedacted)
+        }
+
+        if (selectionArg != null) {
+            selection.append('?')
+            selectionArgs.add(selectionArg)
+        } else {
+            selection.append(toString())
+        }
+    }
+
     private class ValueDecorator(
         /**
          * The string representation of the [value] is injected into this string when evaluating the
@@ -763,6 +864,12 @@ internal class ValueHolder private constructor(
                 // intentionally not redacting the combined string as the redaction for the
                 // underlying value has already been executed.
                 .toSqlString(false)
+
+        /**
+         * Same as [decoratedValueToSqlString] except the result is not escaped and quoted.
+         */
+        fun decoratedValueToSqlArg(value: String, redactValue: Boolean): String =
+            decorator.replace(placeholder, value.redactStringOrThis(redactValue))
     }
 }
 
@@ -811,6 +918,9 @@ internal sealed class Operator(private val operator: String) {
 private const val LIKE_ESCAPE_EXPR = "\\"
 private const val VALUE_PLACEHOLDER = "placeholder"
 
+// SQLite versions prior to 3.32.0 (below API 31) limit the number of arguments to 999.
+private const val MAX_SELECTION_ARGS = 999
+
 /**
  * Returns a new String that escapes the LIKE wildcards (% and _) by prepending the
  * [escapeExpression] to each instance of the wildcards in this object's string representation.
@@ -863,6 +973,13 @@ private fun Any?.toSqlString(redactStringValue: Boolean): String = when (this) {
     )
 
     is Array<*> -> this.asSequence().toSqlString(redactStringValue)
+    // Avoid boxing every id, which matters for large IN clauses.
+    is LongSet -> if (redactStringValue) {
+        this.asSequence().toSqlString(true)
+    } else {
+        this.toUnredactedSqlString()
+    }
+
     is Collection<*> -> this.asSequence().toSqlString(redactStringValue)
     is Sequence<*> -> this.map { it?.toSqlString(redactStringValue) }
         .joinToString(separator = ", ", prefix = "(", postfix = ")")
@@ -874,4 +991,79 @@ private fun Any?.toSqlString(redactStringValue: Boolean): String = when (this) {
     else -> this.toString().toSqlString(redactStringValue)
 }
 
+/**
+ * Same as the unredacted [Collection] case of [Any.toSqlString] except that the values are not
+ * boxed.
+ */
+private fun LongSet.toUnredactedSqlString(): String = buildString {
+    append('(')
+    val iterator = iterator()
+    while (iterator.hasNext()) {
+        // Same as the quoted string produced for each boxed Long.
+        append('\'').append(iterator.nextLong()).append('\'')
+        if (iterator.hasNext()) {
+            append(", ")
+        }
+    }
+    append(')')
+}
+
+/**
+ * Appends a "?" placeholder for each element to the [selection] and the elements to the
+ * [selectionArgs], in the same format as [toSqlString]. Elements that cannot be bound as arguments
+ * are inlined instead.
+ */
+private fun Sequence<*>.appendSelectionTo(
+    selection: StringBuilder, selectionArgs: MutableList<String>, redactStringValue: Boolean
+) {
+    selection.append('(')
+    for ((index, element) in withIndex()) {
+        if (index > 0) {
+            selection.append(", ")
+        }
+
+        val selectionArg = element.toSqlArg(redactStringValue)
+        if (selectionArg != null) {
+            selection.append('?')
+            selectionArgs.add(selectionArg)
+        } else {
+            selection.append(element.toSqlString(redactStringValue))
+        }
+    }
+    selection.append(')')
+}
+
+/**
+ * Same as the [Sequence] version of [appendSelectionTo] except that the values are not boxed.
+ */
+private fun LongSet.appendSelectionTo(
+    selection: StringBuilder, selectionArgs: MutableList<String>, redactStringValue: Boolean
+) {
+    selection.append('(')
+    val iterator = iterator()
+    while (iterator.hasNext()) {
+        selection.append('?')
+        selectionArgs.add(iterator.nextLong().toString().redactStringOrThis(redactStringValue))
+        if (iterator.hasNext()) {
+            selection.append(", ")
+        }
+    }
+    selection.append(')')
+}
+
+/**
+ * Returns the selection argument that is equivalent to [toSqlString] (not escaped and quoted) or
+ * null if the value should be inlined using [toSqlString] instead.
+ *
+ * Only values that [toSqlString] converts to quoted strings are returned, which guarantees that
+ * comparisons behave the same way whether the value is inlined or bound as an argument.
+ */
+private fun Any?.toSqlArg(redactStringValue: Boolean): String? = when (this) {
+    null, is Boolean, is Array<*>, is Collection<*>, is Sequence<*>, is Date, is EventDate -> null
+    is String -> redactStringOrThis(redactStringValue)
+    is DataEntity.Type -> value.toSqlArg(redactStringValue)
+    is MimeType -> value.toSqlArg(redactStringValue)
+    else -> this.toString().toSqlArg(redactStringValue)
+}
+
 // endregion
\ No newline at end of file
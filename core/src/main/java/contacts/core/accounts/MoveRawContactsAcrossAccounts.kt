@@ -1,6 +1,8 @@
 package contacts.core.accounts
 
 import android.accounts.Account
+import android.content.ContentProviderOperation
+import android.provider.ContactsContract
 import contacts.core.*
 import contacts.core.accounts.MoveRawContactsAcrossAccounts.Entry
 import contacts.core.accounts.MoveRawContactsAcrossAccounts.Result
@@ -9,6 +11,8 @@ import contacts.core.entities.ExistingRawContactEntity
 import contacts.core.entities.ExistingSimContactEntity
 import contacts.core.entities.Group
 import contacts.core.entities.RawContact
+import contacts.core.entities.cursor.rawContactsCursor
+import contacts.core.entities.table.Table
 import contacts.core.util.*
 
 /**
@@ -80,6 +84,8 @@ import contacts.core.util.*
  *      .rawContactsTo(account, rawContacts)
  *      .commit();
  * ```
+ *
+ * When moving hundreds or thousands of RawContacts, use [commitInChunks] instead of [commit].
  */
 interface MoveRawContactsAcrossAccounts : CrudApi {
 
@@ -212,6 +218,72 @@ interface MoveRawContactsAcrossAccounts : CrudApi {
     // fun commit(cancel: () -> Boolean = { false }): Result
     fun commit(cancel: () -> Boolean): Result
 
+    /**
+     * Moves the given existing RawContacts to the target Account **in chunks**.
+     *
+     * For more info, read the class documentation of [MoveRawContactsAcrossAccounts].
+     *
+     * ## [commitInChunks] vs [commit]
+     *
+     * The [commit] function moves one RawContact at a time, performing several queries and
+     * batches of operations for each one. The [commitInChunks] function does each step for all
+     * RawContacts at once;
+     *
+     * 1. Fetch all of the original RawContacts and the matching Groups of the target Accounts.
+     * 2. Insert all of the copies in batches of operations.
+     * 3. Retain all of the links (AggregationExceptions) in batches of operations.
+     * 4. Delete all of the originals in batches of operations.
+     *
+     * This is much faster than [commit] when moving several hundreds or thousands of RawContacts.
+     *
+     * A caveat to using [commitInChunks] is that failure to insert one RawContact copy may result
+     * in failure to insert one or more other copies that happen to be in the same "chunk" (or
+     * batch). Another difference is that [commit] stops at the first failure whereas this
+     * continues moving the other RawContacts. Check the [Result.failureReason] of each RawContact.
+     *
+     * Unlike [commit], the name used as the display name of linked Contacts is not retained.
+     *
+     * ## Permissions
+     *
+     * Requires [AccountsPermissions.GET_ACCOUNTS_PERMISSION],
+     * [ContactsPermissions.READ_PERMISSION], and [ContactsPermissions.WRITE_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun commitInChunks(): Result
+
+    /**
+     * Moves the given existing RawContacts to the target Account **in chunks**.
+     *
+     * See [commitInChunks] for more info.
+     *
+     * ## Permissions
+     *
+     * Requires [AccountsPermissions.GET_ACCOUNTS_PERMISSION],
+     * [ContactsPermissions.READ_PERMISSION], and [ContactsPermissions.WRITE_PERMISSION].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true.
+     *
+     * This is useful when running this function in a background thread or coroutine.
+     *
+     * **Cancelling does not undo the operation. This means that depending on when the cancellation
+     * occurs, copies of some RawContacts may have already been inserted without the originals
+     * having been deleted.**
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    // @JvmOverloads cannot be used in interface methods...
+    // fun commitInChunks(cancel: () -> Boolean = { false }): Result
+    fun commitInChunks(cancel: () -> Boolean): Result
+
     /**
      * Returns a redacted instance where all private user data are redacted.
      *
@@ -564,6 +636,299 @@ private class MoveRawContactsAcrossAccountsImpl(
             .redactedCopyOrThis(isRedacted)
             .also { onPostExecute(contactsApi, it) }
     }
+
+    override fun commitInChunks() = commitInChunks { false }
+
+    override fun commitInChunks(cancel: () -> Boolean): Result {
+        onPreExecute()
+
+        return if (
+            entries.isEmpty()
+            || !accountsPermissions.canMoveRawContactsAcrossAccounts()
+            || cancel()
+        ) {
+            MoveRawContactsAcrossAccountsResultFailed(FailureReason.UNKNOWN)
+        } else {
+            contactsApi.moveInChunks(entries, validateAccounts, cancel)
+        }
+            .redactedCopyOrThis(isRedacted)
+            .also { onPostExecute(contactsApi, it) }
+    }
+}
+
+/**
+ * A RawContact that is about to be moved to the [targetAccount].
+ */
+private class Move(val originalRawContact: RawContact, val targetAccount: Account?)
+
+private fun Contacts.moveInChunks(
+    entries: Collection<Entry>,
+    validateAccounts: Boolean,
+    cancel: () -> Boolean
+): Result {
+    val originalToNewRawContacts = mutableMapOf<Long, Long>()
+    val failureReasons = mutableMapOf<Long, FailureReason>()
+
+    // Query all accounts once instead of for each entry.
+    val accountsInSystem: Collection<Account>? = if (validateAccounts) {
+        accounts().query().find(cancel)
+    } else {
+        null
+    }
+
+    // Fetch all of the original RawContacts at once.
+    val originalRawContacts = originalRawContactsWithIds(
+        entries.mapTo(mutableSetOf()) { it.rawContactId }, cancel
+    )
+
+    val moves = mutableListOf<Move>()
+    for (entry in entries.distinctBy { it.rawContactId }) {
+        // Ensure that the target Account is in system or is referencing the local "null" system
+        // Account.
+        val targetAccount = entry.targetAccount?.nullIfSamsungOrXiaomiLocalAccount()
+        val originalRawContact = originalRawContacts[entry.rawContactId]
+
+        failureReasons[entry.rawContactId] = when {
+            targetAccount != null
+                    && accountsInSystem != null
+                    && !accountsInSystem.contains(targetAccount) -> FailureReason.INVALID_ACCOUNT
+
+            originalRawContact == null -> FailureReason.RAW_CONTACT_NOT_FOUND
+            // Check if the original and target Accounts are the same.
+            originalRawContact.account == targetAccount -> FailureReason.ALREADY_IN_ACCOUNT
+            else -> {
+                moves.add(Move(originalRawContact, targetAccount))
+                continue
+            }
+        }
+    }
+
+    if (moves.isEmpty() || cancel()) {
+        return MoveRawContactsAcrossAccountsResult(originalToNewRawContacts, failureReasons)
+    }
+
+    // Fetch Groups belonging to the target Accounts that the original RawContacts have a
+    // membership to based on case-sensitive matching of the Group title, for all RawContacts at
+    // once.
+    val targetAccountsGroupsByTitle = targetAccountsGroupsByTitle(moves, cancel)
+
+    // The RawContacts of the original parent Contacts must be fetched before inserting the copies.
+    // See the documentation of the link function for the reason why.
+    val parentContactsRawContactIds = rawContactIdsOfContacts(
+        moves.mapTo(mutableSetOf()) { it.originalRawContact.contactId }, cancel
+    )
+
+    if (cancel()) {
+        return MoveRawContactsAcrossAccountsResult(originalToNewRawContacts, failureReasons)
+    }
+
+    // Insert copies of the original RawContacts. The copies are created one batch at a time.
+    val rawContactCopyIds = insertRawContactsInChunks(
+        moves,
+        newRawContactOf = { move ->
+            val originalRawContact = move.originalRawContact
+            val targetAccountGroupsByTitle = targetAccountsGroupsByTitle[move.targetAccount]
+            originalRawContact.newCopy {
+                // Set the Account. See the commit function for why the source ID is not copied.
+                account = move.targetAccount
+
+                // Replace the group memberships.
+                groupMemberships.clear()
+                if (targetAccountGroupsByTitle != null) {
+                    val (groupIdTitles, groupsByTitle) = targetAccountGroupsByTitle
+                    groupMemberships.addAll(
+                        originalRawContact.groupMemberships
+                            .mapNotNull { it.groupId?.let(groupIdTitles::get) }
+                            .flatMap { groupsByTitle[it].orEmpty() }
+                            .distinctBy { it.id }
+                            .newMemberships()
+                    )
+                }
+            }
+        },
+        cancel,
+        onInserted = { move, rawContactCopyId ->
+            // Copy over the photo. There is no need to read the photo if there is no photo row.
+            // Full-sized photos are read one at a time, right before they are set, so that they
+            // are not all in memory at once.
+            val originalRawContact = move.originalRawContact
+            if (originalRawContact.photo != null) {
+                originalRawContact.photoBytes(this)?.let { originalPhotoBytes ->
+                    setRawContactPhotoDirect(rawContactCopyId, PhotoData.from(originalPhotoBytes))
+                }
+            }
+        }
+    )
+
+    val movedRawContacts = mutableListOf<Move>()
+    for ((move, rawContactCopyId) in moves.zip(rawContactCopyIds)) {
+        val originalRawContactId = move.originalRawContact.id
+        if (rawContactCopyId == null) {
+            failureReasons[originalRawContactId] = FailureReason.INSERT_RAW_CONTACT_COPY_FAILED
+        } else {
+            originalToNewRawContacts[originalRawContactId] = rawContactCopyId
+            movedRawContacts.add(move)
+        }
+    }
+
+    if (movedRawContacts.isEmpty() || cancel()) {
+        return MoveRawContactsAcrossAccountsResult(originalToNewRawContacts, failureReasons)
+    }
+
+    // Retain links (AggregationExceptions), if any.
+    linkInChunks(parentContactsRawContactIds, originalToNewRawContacts)
+
+    // Delete the original RawContacts.
+    val originalRawContactIds = movedRawContacts.map { it.originalRawContact.id }
+    for (chunk in originalRawContactIds.chunked(MAX_OPERATIONS_PER_BATCH)) {
+        val results = contentResolver.applyBatch(
+            chunk.mapTo(arrayListOf()) { deleteOperationFor(RawContactsFields.Id equalTo it) }
+        )
+        for ((index, originalRawContactId) in chunk.withIndex()) {
+            val originalDeleted = results?.getOrNull(index)?.count?.let { it > 0 } == true
+            if (!originalDeleted) {
+                failureReasons[originalRawContactId] =
+                    FailureReason.DELETE_ORIGINAL_RAW_CONTACT_FAILED
+            }
+        }
+    }
+
+    return MoveRawContactsAcrossAccountsResult(originalToNewRawContacts, failureReasons)
+}
+
+/**
+ * Returns the RawContacts with the given [rawContactIds] mapped by ID.
+ */
+private fun Contacts.originalRawContactsWithIds(
+    rawContactIds: Set<Long>, cancel: () -> Boolean
+): Map<Long, RawContact> = buildMap {
+    for (chunk in rawContactIds.inClauseChunks()) {
+        if (cancel()) {
+            break
+        }
+
+        rawContactsQuery()
+            .where { RawContact.Id `in` chunk }
+            .find(cancel)
+            .associateByTo(this) { it.id }
+    }
+}
+
+/**
+ * The Groups of a target Account whose titles match the titles of the Groups of the original
+ * RawContacts.
+ */
+private data class TargetAccountGroupsByTitle(
+    // Group IDs of the original RawContacts' Groups to their titles.
+    val groupIdTitles: Map<Long, String>,
+    // Titles to the Groups in the target Account with that title.
+    val groupsByTitle: Map<String, List<Group>>
+)
+
+/**
+ * Same as [groupsFromTargetAccountMatchingGroupsFromRawContact] except for all [moves] at once.
+ */
+private fun Contacts.targetAccountsGroupsByTitle(
+    moves: List<Move>, cancel: () -> Boolean
+): Map<Account?, TargetAccountGroupsByTitle> {
+    val rawContactsGroupIds = moves.flatMapTo(mutableSetOf()) { move ->
+        move.originalRawContact.groupMemberships.mapNotNull { it.groupId }
+    }
+
+    if (rawContactsGroupIds.isEmpty()) {
+        return emptyMap()
+    }
+
+    val rawContactsGroups = groups()
+        .query()
+        .where { Id `in` rawContactsGroupIds }
+        .find(cancel)
+
+    if (rawContactsGroups.isEmpty()) {
+        return emptyMap()
+    }
+
+    val targetAccounts = moves.mapTo(mutableSetOf()) { it.targetAccount }
+    val targetAccountsGroups = groups()
+        .query()
+        .accounts(targetAccounts)
+        .where { Title `in` rawContactsGroups.mapTo(mutableSetOf()) { it.title } }
+        .find(cancel)
+
+    val groupIdTitles = rawContactsGroups.associate { it.id to it.title }
+    return targetAccounts.associateWith { targetAccount ->
+        TargetAccountGroupsByTitle(
+            groupIdTitles,
+            targetAccountsGroups.from(targetAccount).groupBy { it.title }
+        )
+    }
+}
+
+/**
+ * Returns the IDs of the RawContacts of each of the Contacts with the given [contactIds].
+ */
+private fun Contacts.rawContactIdsOfContacts(
+    contactIds: Set<Long>, cancel: () -> Boolean
+): Map<Long, List<Long>> {
+    val rawContactIdsOfContacts = mutableMapOf<Long, MutableList<Long>>()
+
+    for (chunk in contactIds.inClauseChunks()) {
+        if (cancel()) {
+            break
+        }
+
+        query(
+            Table.RawContacts,
+            Include(RawContactsFields.Id, RawContactsFields.ContactId),
+            // There may be RawContacts that are marked for deletion that have not yet been deleted.
+            (RawContactsFields.Deleted notEqualTo true) and (RawContactsFields.ContactId `in` chunk)
+        ) {
+            val rawContactsCursor = it.rawContactsCursor()
+            while (!cancel() && it.moveToNext()) {
+                rawContactIdsOfContacts
+                    .getOrPut(rawContactsCursor.contactId) { mutableListOf() }
+                    .add(rawContactsCursor.rawContactId)
+            }
+        }
+    }
+
+    return rawContactIdsOfContacts
+}
+
+/**
+ * Same as [link] except for all moved RawContacts at once, using the AggregationExceptions table
+ * directly instead of a query and a link per moved RawContact.
+ *
+ * Each RawContact copy is kept together with the RawContacts of the original parent Contact
+ * (using the copies of those that have also been moved). The name of the linked Contact is left
+ * for the Contacts Provider to choose.
+ */
+private fun Contacts.linkInChunks(
+    // Map of the original parent Contacts' IDs to their RawContacts' IDs prior to the move.
+    parentContactsRawContactIds: Map<Long, List<Long>>,
+    // Map of the original RawContacts' IDs to the IDs of their copies.
+    originalToNewRawContacts: Map<Long, Long>
+) {
+    val operations = arrayListOf<ContentProviderOperation>()
+
+    for (rawContactIds in parentContactsRawContactIds.values) {
+        // Contacts with only one RawContact have nothing to link.
+        if (rawContactIds.size < 2 || rawContactIds.none(originalToNewRawContacts::containsKey)) {
+            continue
+        }
+
+        operations.addAll(
+            aggregateExceptionsOperations(
+                rawContactIds.map { originalToNewRawContacts[it] ?: it }.sorted(),
+                ContactsContract.AggregationExceptions.TYPE_KEEP_TOGETHER
+            )
+        )
+    }
+
+    // Ignore the result, just attempt it. See the documentation of the link function.
+    for (chunk in operations.chunked(MAX_OPERATIONS_PER_BATCH)) {
+        contentResolver.applyBatch(ArrayList(chunk))
+    }
 }
 
 /**
@@ -0,0 +1,54 @@
+package contacts.core.entities
+
+import android.net.Uri
+import kotlinx.parcelize.Parcelize
+
+/**
+ * The few columns of a Contact in the Contacts table that are typically shown in a list of
+ * contacts, returned by [contacts.core.ContactSummaryQuery].
+ *
+ * Unlike [Contact], this does not contain any RawContacts or Data. Use the [id] or [lookupKey] to
+ * get the full [Contact] (e.g. when a contact in the list is selected).
+ */
+@ConsistentCopyVisibility
+@Parcelize
+data class ContactSummary internal constructor(
+
+    /**
+     * The id of the Contact row this represents.
+     */
+    override val id: Long,
+
+    /**
+     * See [ContactEntity.lookupKey].
+     */
+    val lookupKey: String?,
+
+    /**
+     * See [ContactEntity.displayNamePrimary].
+     */
+    val displayNamePrimary: String?,
+
+    /**
+     * See [ContactEntity.photoThumbnailUri].
+     */
+    val photoThumbnailUri: Uri?,
+
+    /**
+     * True if the Contact is starred (favorite).
+     */
+    val starred: Boolean,
+
+    override val isRedacted: Boolean
+
+) : ExistingEntity, ImmutableEntity {
+
+    override val isBlank: Boolean
+        get() = propertiesAreAllNullOrBlank(displayNamePrimary, photoThumbnailUri)
+
+    override fun redactedCopy() = copy(
+        isRedacted = true,
+
+        displayNamePrimary = displayNamePrimary?.redact()
+    )
+}
@@ -108,3 +108,39 @@ sealed class MimeType {
         }
     }
 }
+
+/**
+ * Resolves [MimeType]s from mimetype values, only invoking [MimeType.fromValue] the first time a
+ * value is encountered.
+ *
+ * There are only a handful of distinct mimetypes in the Data table. Instead of looking up the
+ * custom data registry and then comparing against every built-in mimetype for every row, each
+ * distinct value is resolved only once. The last value is also checked by reference first, which
+ * costs nothing when the cursor returns the same string instance for consecutive rows.
+ *
+ * Custom data may be registered at any time. So, instances should only be used within a single
+ * query (or other operation).
+ *
+ * This is not thread-safe, just like cursors.
+ */
+internal class MimeTypeResolver(private val customDataRegistry: CustomDataRegistry) {
+
+    private val mimeTypes = mutableMapOf<String?, MimeType>()
+
+    private var lastValue: String? = null
+    private var lastMimeType: MimeType? = null
+
+    fun mimeTypeOf(value: String?): MimeType {
+        val lastMimeType = lastMimeType
+        if (lastMimeType != null && value === lastValue) {
+            return lastMimeType
+        }
+
+        return mimeTypes
+            .getOrPut(value) { MimeType.fromValue(value, customDataRegistry) }
+            .also {
+                this.lastValue = value
+                this.lastMimeType = it
+            }
+    }
+}
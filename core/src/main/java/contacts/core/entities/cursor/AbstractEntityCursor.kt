@@ -74,6 +74,10 @@ import kotlin.reflect.KProperty
  * Performance may be affected for some users that have thousands of contacts? Or maybe the
  * difference is negligible until we get to really big numbers like in the millions?
  *
+ * However, delegates resolve the column index of their field only once, when this entity cursor
+ * is created. Regular functions resolve the column index (and check the [includeFields]) every
+ * time they are called. So, delegated properties are faster for reading every row of big cursors.
+ *
  * Food for thought! One thing is for sure, delegated properties are prettier =)
  *
  * ## IMPORTANT!
@@ -121,58 +125,30 @@ abstract class AbstractEntityCursor<F : Field>(
     // region REGULAR FUNCTIONS - NULLABLE
 
     @JvmOverloads
-    protected fun getString(field: F, default: String? = null): String? {
-        if ((includeFields != null && !includeFields.contains(field)) && !field.required) {
-            return null
-        }
-
-        val index = cursor.getColumnIndex(field.columnName)
-        return if (index == -1) default else try {
-            cursor.getString(index)
-        } catch (e: Exception) {
-            default
-        }
-    }
+    protected fun getString(field: F, default: String? = null): String? =
+        getStringAt(indexOf(field), default)
 
     @JvmOverloads
-    protected fun getInt(field: F, default: Int? = null): Int? =
-        getString(field)?.toIntOrNull() ?: default
+    protected fun getInt(field: F, default: Int? = null): Int? = getIntAt(indexOf(field), default)
 
     @JvmOverloads
     protected fun getLong(field: F, default: Long? = null): Long? =
-        getString(field)?.toLongOrNull() ?: default
+        getLongAt(indexOf(field), default)
 
     @JvmOverloads
     protected fun getBoolean(field: F, default: Boolean? = null): Boolean? =
-        getInt(field)?.let { it == 1 } ?: default
+        getBooleanAt(indexOf(field), default)
 
     @JvmOverloads
-    protected fun getBlob(field: F, default: ByteArray? = null): ByteArray? {
-        if (includeFields != null && !includeFields.contains(field)) {
-            return null
-        }
-
-        val index = cursor.getColumnIndex(field.columnName)
-        return if (index == -1) default else try {
-            // Should probably not use getString for getting a byte array.
-            // Worst case the byte array would be null or empty
-            cursor.getBlob(index)
-        } catch (e: Exception) {
-            default
-        }
-    }
+    protected fun getBlob(field: F, default: ByteArray? = null): ByteArray? =
+        getBlobAt(indexOf(field), default)
 
     @JvmOverloads
-    protected fun getUri(field: F, default: Uri? = null): Uri? {
-        val uriStr = getString(field)
-        return if (uriStr != null) Uri.parse(uriStr) else default
-    }
+    protected fun getUri(field: F, default: Uri? = null): Uri? = getUriAt(indexOf(field), default)
 
     @JvmOverloads
-    protected fun getDate(field: F, default: Date? = null): Date? {
-        val dateMillis = getLong(field)
-        return if (dateMillis != null && dateMillis > 0) Date(dateMillis) else default
-    }
+    protected fun getDate(field: F, default: Date? = null): Date? =
+        getDateAt(indexOf(field), default)
 
     @JvmOverloads
     protected fun <T : DataEntity.Type> getType(
@@ -213,6 +189,79 @@ abstract class AbstractEntityCursor<F : Field>(
 
     // endregion
 
+    /**
+     * Returns the column index of the given [field] or -1 if the field is not included or not in
+     * the cursor.
+     *
+     * The [field] required check is done first because it is cheaper than the [includeFields]
+     * lookup. Delegates only call this once, when they are created.
+     */
+    private fun indexOf(field: F): Int =
+        if (!field.required && includeFields != null && !includeFields.contains(field)) {
+            -1
+        } else {
+            cursor.getColumnIndex(field.columnName)
+        }
+
+    // region INDEX FUNCTIONS
+
+    private fun getStringAt(index: Int, default: String?): String? =
+        if (index == -1) default else try {
+            cursor.getString(index)
+        } catch (e: Exception) {
+            default
+        }
+
+    private fun getIntAt(index: Int, default: Int?): Int? = if (index == -1) default else try {
+        // Read integer values directly instead of parsing them from strings. Other types
+        // (e.g. integers stored as text in Data table columns) are parsed from strings to keep
+        // returning null for values that are not numbers instead of the cursor's default of 0.
+        when (cursor.getType(index)) {
+            Cursor.FIELD_TYPE_NULL -> null
+            Cursor.FIELD_TYPE_INTEGER -> cursor.getLong(index).let {
+                if (it in Int.MIN_VALUE..Int.MAX_VALUE) it.toInt() else null
+            }
+            else -> cursor.getString(index)?.toIntOrNull()
+        }
+    } catch (e: Exception) {
+        null
+    } ?: default
+
+    private fun getLongAt(index: Int, default: Long?): Long? = if (index == -1) default else try {
+        // See getIntAt.
+        when (cursor.getType(index)) {
+            Cursor.FIELD_TYPE_NULL -> null
+            Cursor.FIELD_TYPE_INTEGER -> cursor.getLong(index)
+            else -> cursor.getString(index)?.toLongOrNull()
+        }
+    } catch (e: Exception) {
+        null
+    } ?: default
+
+    private fun getBooleanAt(index: Int, default: Boolean?): Boolean? =
+        getIntAt(index, null)?.let { it == 1 } ?: default
+
+    private fun getBlobAt(index: Int, default: ByteArray?): ByteArray? =
+        if (index == -1) default else try {
+            // Should probably not use getString for getting a byte array.
+            // Worst case the byte array would be null or empty
+            cursor.getBlob(index)
+        } catch (e: Exception) {
+            default
+        }
+
+    private fun getUriAt(index: Int, default: Uri?): Uri? {
+        val uriStr = getStringAt(index, null)
+        return if (uriStr != null) Uri.parse(uriStr) else default
+    }
+
+    private fun getDateAt(index: Int, default: Date?): Date? {
+        val dateMillis = getLongAt(index, null)
+        return if (dateMillis != null && dateMillis > 0) Date(dateMillis) else default
+    }
+
+    // endregion
+
     // region DELEGATE BY FIELD EXTENSION
 
     /*
@@ -337,71 +386,95 @@ abstract class AbstractEntityCursor<F : Field>(
     // region DELEGATE CLASSES - NULLABLE
 
     private inner class StringDelegate(
-        private val field: F,
+        field: F,
         private val default: String? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, String?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): String? =
-            getString(field, default)
+            getStringAt(index, default)
     }
 
     private inner class IntDelegate(
-        private val field: F,
+        field: F,
         private val default: Int? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Int?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Int? =
-            getInt(field, default)
+            getIntAt(index, default)
     }
 
     private inner class LongDelegate(
-        private val field: F,
+        field: F,
         private val default: Long? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Long?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Long? =
-            getLong(field, default)
+            getLongAt(index, default)
     }
 
     private inner class BooleanDelegate(
-        private val field: F,
+        field: F,
         private val default: Boolean? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Boolean?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Boolean? =
-            getBoolean(field, default)
+            getBooleanAt(index, default)
     }
 
     private inner class BlobDelegate(
-        private val field: F,
+        field: F,
         private val default: ByteArray? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, ByteArray?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(
             thisRef: AbstractEntityCursor<F>,
             property: KProperty<*>
         ): ByteArray? =
-            getBlob(field, default)
+            getBlobAt(index, default)
     }
 
     private inner class UriDelegate(
-        private val field: F,
+        field: F,
         private val default: Uri? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Uri?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Uri? =
-            getUri(field, default)
+            getUriAt(index, default)
     }
 
     private inner class DateDelegate(
-        private val field: F,
+        field: F,
         private val default: Date? = null
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Date?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Date? =
-            getDate(field, default)
+            getDateAt(index, default)
     }
 
     private inner class TypeDelegate<out T : DataEntity.Type>(
-        private val field: F,
+        field: F,
         private val default: T? = null,
         private val typeFromValue: (value: Int?) -> T?
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, T?> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): T? =
-            getType(field, default, typeFromValue)
+            typeFromValue(getIntAt(index, null)) ?: default
     }
 
     // endregion
@@ -409,59 +482,80 @@ abstract class AbstractEntityCursor<F : Field>(
     // region DELEGATE CLASSES - NON-NULL
 
     private inner class NonNullStringDelegate(
-        private val field: F,
+        field: F,
         private val default: String = ""
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, String> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): String =
-            getNonNullString(field, default)
+            getStringAt(index, null) ?: default
     }
 
     private inner class NonNullIntDelegate(
-        private val field: F,
+        field: F,
         private val default: Int = 0
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Int> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Int =
-            getNonNullInt(field, default)
+            getIntAt(index, null) ?: default
     }
 
     private inner class NonNullLongDelegate(
-        private val field: F,
+        field: F,
         private val default: Long = 0
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Long> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Long =
-            getNonNullLong(field, default)
+            getLongAt(index, null) ?: default
     }
 
     private inner class NonNullBooleanDelegate(
-        private val field: F,
+        field: F,
         private val default: Boolean = false
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Boolean> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Boolean =
-            getNonNullBoolean(field, default)
+            getBooleanAt(index, null) ?: default
     }
 
     private inner class NonNullBlobDelegate(
-        private val field: F,
+        field: F,
         private val default: ByteArray = ByteArray(0)
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, ByteArray> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): ByteArray =
-            getNonNullBlob(field, default)
+            getBlobAt(index, null) ?: default
     }
 
     private inner class NonNullUriDelegate(
-        private val field: F,
+        field: F,
         private val default: Uri = Uri.EMPTY
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Uri> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Uri =
-            getNonNullUri(field, default)
+            getUriAt(index, null) ?: default
     }
 
     private inner class NonNullDateDelegate(
-        private val field: F,
+        field: F,
         private val default: Date = Date()
     ) : ReadOnlyProperty<AbstractEntityCursor<F>, Date> {
+
+        private val index = indexOf(field)
+
         override fun getValue(thisRef: AbstractEntityCursor<F>, property: KProperty<*>): Date =
-            getNonNullDate(field, default)
+            getDateAt(index, null) ?: default
     }
 
     // No NonNullTypeDelegate because that would require us to introduce an UNKNOWN type.
@@ -29,9 +29,11 @@ internal class ContactsCursor(
     // @TargetApi(Build.VERSION_CODES.LOLLIPOP) Not applicable to delegated properties
     val nameRawContactId: Long? by long(ContactsFields.NameRawContactId)
 
+    private val photoFileIdValue: Long? by long(ContactsFields.PhotoFileId)
+
     override val photoFileId: Long?
         get() {
-            val value = getLong(ContactsFields.PhotoFileId)
+            val value = photoFileIdValue
             // Sometimes the value will be zero instead of null but 0 is not a valid photo file id.
             return if (value != null && value > 0) value else null
         }
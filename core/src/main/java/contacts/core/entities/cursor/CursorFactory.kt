@@ -8,7 +8,7 @@ import contacts.core.GroupsField
 import contacts.core.PhoneLookupField
 import contacts.core.RawContactsField
 import contacts.core.SimContactsField
-import contacts.core.entities.custom.CustomDataRegistry
+import contacts.core.entities.MimeTypeResolver
 import contacts.core.intersect
 
 // region AbstractDataField
@@ -19,9 +19,18 @@ internal fun CursorHolder<AbstractDataField>.addressCursor() =
 internal fun CursorHolder<AbstractDataField>.dataContactsCursor() =
     DataContactsCursor(cursor, includeFields?.let(Fields.Contact::intersect))
 
+internal fun CursorHolder<AbstractDataField>.dataContactsOptionsCursor() =
+    DataContactsOptionsCursor(cursor, includeFields)
+
 internal fun <T : AbstractDataField> CursorHolder<T>.dataCursor() =
     DataCursor(cursor, includeFields)
 
+internal fun CursorHolder<AbstractDataField>.dataRawContactsCursor() =
+    DataRawContactsCursor(cursor, includeFields)
+
+internal fun CursorHolder<AbstractDataField>.dataRawContactsOptionsCursor() =
+    DataRawContactsOptionsCursor(cursor, includeFields)
+
 internal fun CursorHolder<AbstractDataField>.emailCursor() =
     EmailCursor(cursor, includeFields?.let(Fields.Email::intersect))
 
@@ -36,8 +45,8 @@ internal fun CursorHolder<AbstractDataField>.imCursor() =
     ImCursor(cursor, includeFields?.let(Fields.Im::intersect))
 
 internal fun CursorHolder<AbstractDataField>.mimeTypeCursor(
-    customDataRegistry: CustomDataRegistry
-) = MimeTypeCursor(cursor, customDataRegistry)
+    mimeTypeResolver: MimeTypeResolver
+) = MimeTypeCursor(cursor, mimeTypeResolver)
 
 internal fun CursorHolder<AbstractDataField>.nameCursor() =
     NameCursor(cursor, includeFields?.let(Fields.Name::intersect))
@@ -48,4 +48,4 @@ internal inline fun <reified T : Field> Cursor.toEntityCursor(
     else -> throw ContactsException(
         "No entity cursor for ${T::class.java.simpleName}"
     )
-} as CursorHolder<T>
\ No newline at end of file
+} as CursorHolder<T>
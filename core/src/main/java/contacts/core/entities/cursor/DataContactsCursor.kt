@@ -20,9 +20,11 @@ internal class DataContactsCursor(cursor: Cursor, includeFields: Set<DataContact
 
     override val lastUpdatedTimestamp: Date? by date(Fields.Contact.LastUpdatedTimestamp)
 
+    private val photoFileIdValue: Long? by long(Fields.Contact.PhotoFileId)
+
     override val photoFileId: Long?
         get() {
-            val value = getLong(Fields.Contact.PhotoFileId)
+            val value = photoFileIdValue
             // Sometimes the value will be zero instead of null but 0 is not a valid photo file id.
             return if (value != null && value > 0) value else null
         }
@@ -0,0 +1,30 @@
+package contacts.core.entities.cursor
+
+import android.database.Cursor
+import contacts.core.AbstractDataField
+import contacts.core.Fields
+import contacts.core.entities.Entity
+
+/**
+ * Retrieves the RawContacts table fields that are in the Data table from the given [cursor].
+ *
+ * Only the RawContact and Contact ids are in the
+ * [android.provider.ContactsContract.DataColumnsWithJoins]. Everything else is null.
+ */
+internal class DataRawContactsCursor(cursor: Cursor, includeFields: Set<AbstractDataField>?) :
+    AbstractEntityCursor<AbstractDataField>(cursor, includeFields), JoinedRawContactsCursor {
+
+    override val contactId: Long by nonNullLong(Fields.Contact.Id, Entity.INVALID_ID)
+
+    override val rawContactId: Long by nonNullLong(Fields.RawContact.Id, Entity.INVALID_ID)
+
+    override val accountName: String? = null
+
+    override val accountType: String? = null
+
+    override val sourceId: String? = null
+
+    override val displayNamePrimary: String? = null
+
+    override val displayNameAlt: String? = null
+}
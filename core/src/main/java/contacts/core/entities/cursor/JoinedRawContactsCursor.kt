@@ -0,0 +1,20 @@
+package contacts.core.entities.cursor
+
+/**
+ * RawContacts table fields that may also be read from the Data table.
+ *
+ * Not all RawContacts table fields are available in the Data table. The Data table does not have
+ * the [android.provider.ContactsContract.SyncColumns] (e.g. the account). Its display name and
+ * options columns are those of the Contact, not the RawContact. So, cursors from the Data table
+ * return null for those.
+ *
+ * See [RawContactIdCursor].
+ */
+internal sealed interface JoinedRawContactsCursor : AccountCursor, RawContactIdCursor {
+
+    val sourceId: String?
+
+    val displayNamePrimary: String?
+
+    val displayNameAlt: String?
+}
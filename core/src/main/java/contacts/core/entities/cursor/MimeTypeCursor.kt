@@ -4,14 +4,16 @@ import android.database.Cursor
 import contacts.core.Fields
 import contacts.core.GenericDataField
 import contacts.core.entities.MimeType
-import contacts.core.entities.custom.CustomDataRegistry
+import contacts.core.entities.MimeTypeResolver
 
 /**
  * Retrieves [Fields.MimeType] data from the given [cursor].
  */
-internal class MimeTypeCursor(cursor: Cursor, private val customDataRegistry: CustomDataRegistry) :
+internal class MimeTypeCursor(cursor: Cursor, private val mimeTypeResolver: MimeTypeResolver) :
     AbstractEntityCursor<GenericDataField>(cursor, null) {
 
+    private val mimeTypeValue: String? by string(Fields.MimeType)
+
     val mimeType: MimeType
-        get() = MimeType.fromValue(getString(Fields.MimeType), customDataRegistry)
+        get() = mimeTypeResolver.mimeTypeOf(mimeTypeValue)
 }
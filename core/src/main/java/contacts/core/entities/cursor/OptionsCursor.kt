@@ -56,4 +56,38 @@ internal class ContactsOptionsCursor(cursor: Cursor, includeFields: Set<Contacts
     override val customRingtone: Uri? by uri(ContactsFields.Options.CustomRingtone)
 
     override val sendToVoicemail: Boolean? by boolean(ContactsFields.Options.SendToVoicemail)
-}
\ No newline at end of file
+}
+
+/**
+ * The [OptionsCursor] for RawContacts read from the Data table. The options columns in the Data
+ * table are those of the Contact. So, only the RawContact id is available.
+ */
+internal class DataRawContactsOptionsCursor(
+    cursor: Cursor, includeFields: Set<AbstractDataField>?
+) : OptionsCursor<AbstractDataField>(cursor, includeFields) {
+
+    override val id: Long by nonNullLong(Fields.RawContact.Id, Entity.INVALID_ID)
+
+    override val starred: Boolean? = null
+
+    override val customRingtone: Uri? = null
+
+    override val sendToVoicemail: Boolean? = null
+}
+
+/**
+ * The [OptionsCursor] for Contacts read from the Data table. Unlike the Contacts table, the id of
+ * the Contact is not the id of the row.
+ */
+internal class DataContactsOptionsCursor(
+    cursor: Cursor, includeFields: Set<AbstractDataField>?
+) : OptionsCursor<AbstractDataField>(cursor, includeFields) {
+
+    override val id: Long by nonNullLong(Fields.Contact.Id, Entity.INVALID_ID)
+
+    override val starred: Boolean? by boolean(Fields.Contact.Options.Starred)
+
+    override val customRingtone: Uri? by uri(Fields.Contact.Options.CustomRingtone)
+
+    override val sendToVoicemail: Boolean? by boolean(Fields.Contact.Options.SendToVoicemail)
+}
@@ -10,9 +10,11 @@ import contacts.core.PhotoField
 internal class PhotoCursor(cursor: Cursor, includeFields: Set<PhotoField>?) :
     AbstractDataCursor<PhotoField>(cursor, includeFields) {
 
+    private val photoFileIdValue: Long? by long(Fields.Photo.PhotoFileId)
+
     val photoFileId: Long?
         get() {
-            val value = getLong(Fields.Photo.PhotoFileId)
+            val value = photoFileIdValue
             // Sometimes the value will be zero instead of null but 0 is not a valid photo file id.
             return if (value != null && value > 0) value else null
         }
@@ -9,8 +9,7 @@ import contacts.core.entities.Entity
  * Retrieves [RawContactsFields] data from the given [cursor].
  */
 internal class RawContactsCursor(cursor: Cursor, includeFields: Set<RawContactsField>?) :
-    AbstractEntityCursor<RawContactsField>(cursor, includeFields), AccountCursor,
-    RawContactIdCursor {
+    AbstractEntityCursor<RawContactsField>(cursor, includeFields), JoinedRawContactsCursor {
 
     override val accountName: String? by string(RawContactsFields.AccountName)
 
@@ -20,10 +19,12 @@ internal class RawContactsCursor(cursor: Cursor, includeFields: Set<RawContactsF
 
     override val rawContactId: Long by nonNullLong(RawContactsFields.Id, Entity.INVALID_ID)
 
-    val sourceId: String? by string(RawContactsFields.SourceId)
+    override val sourceId: String? by string(RawContactsFields.SourceId)
 
-    val displayNamePrimary: String? by string(RawContactsFields.DisplayNamePrimary)
+    override val displayNamePrimary: String? by string(RawContactsFields.DisplayNamePrimary)
 
-    val displayNameAlt: String? by string(RawContactsFields.DisplayNameAlt)
+    override val displayNameAlt: String? by string(RawContactsFields.DisplayNameAlt)
+
+    val version: Long? by long(RawContactsFields.Version)
 
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ import contacts.core.ContactsField
 import contacts.core.RawContactsField
 import contacts.core.entities.Contact
 import contacts.core.entities.ImmutableCustomDataEntity
+import contacts.core.entities.MimeType
+import contacts.core.entities.MimeTypeResolver
 import contacts.core.entities.MimeType.Address
 import contacts.core.entities.MimeType.Custom
 import contacts.core.entities.MimeType.Email
@@ -30,7 +32,8 @@ import contacts.core.entities.cursor.mimeTypeCursor
 import contacts.core.entities.cursor.rawContactsCursor
 import contacts.core.entities.custom.CustomDataRegistry
 import contacts.core.entities.custom.ImmutableCustomDataEntityHolder
-import contacts.core.intersect
+import contacts.core.util.LongHashSet
+import contacts.core.util.LongObjectMap
 
 /**
  * Contains functions that processes cursors from the Contacts ([processContactsCursor]),
@@ -56,22 +59,35 @@ internal class ContactsMapper(
     /**
      * A map of contact id to [Contact].
      */
-    private val contactsMap: MutableMap<Long, Contact> = mutableMapOf(),
+    private val contactsMap: LongObjectMap<Contact> = LongObjectMap(),
 
     /**
      * A map of raw contact ids to [TempRawContact]s.
      */
-    private val rawContactsMap: MutableMap<Long, TempRawContact> = mutableMapOf()
+    private val rawContactsMap: LongObjectMap<TempRawContact> = LongObjectMap()
 ) {
 
-    // We could technically use the assignment operator here because it will assign a reference to
-    // the mutable set itself. Meaning the value this returns is not static. However, using get()
-    // reads better (less prone to confusion) and is safer.
+    /**
+     * Shared by all Data cursors processed by this mapper.
+     */
+    private val mimeTypeResolver = MimeTypeResolver(customDataRegistry)
+
+    // These are read-only views, not copies, so that ids are not copied (and boxed) every time they
+    // are accessed. Contacts and RawContacts are only collected in the first phase of a query
+    // (Data only updates the already collected RawContacts). So, these do not change once the ids
+    // are used by subsequent phases. The exception is processJoinedDataCursor, which collects
+    // RawContacts (and optionally Contacts) from Data rows.
     val contactIds: Set<Long>
-        get() = contactsMap.keys.toSet() // provide an immutable copy for safety
+        get() = contactsMap.keys
 
     val rawContactIds: Set<Long>
-        get() = rawContactsMap.keys.toSet()
+        get() = rawContactsMap.keys
+
+    /**
+     * True if some of the collected RawContacts belong to Contacts that have not been collected.
+     */
+    val hasRawContactsWithoutContact: Boolean
+        get() = rawContactsMap.values.any { !contactsMap.containsKey(it.contactId) }
 
     /**
      * Collects Contacts from the given Contacts table cursor.
@@ -93,6 +109,39 @@ internal class ContactsMapper(
         }
     }
 
+    /**
+     * Collects only the Contacts with the given [contactIds] from the given Contacts table cursor,
+     * skipping the first [offset] of them and collecting at most [limit] of them.
+     *
+     * This is used instead of an `IN` clause when there are too many [contactIds] to put in a
+     * single selection. The cursor is expected to be in the desired order so that the offset and
+     * limit are applied the same way the database would.
+     *
+     * This will not close the given [cursor].
+     */
+    fun processContactsCursor(
+        cursor: CursorHolder<ContactsField>,
+        contactIds: Set<Long>,
+        offset: Int,
+        limit: Int
+    ): ContactsMapper = apply {
+        val contactsCursor = cursor.contactsCursor()
+        val contactMapper = cursor.contactsMapper()
+        var matchCount = 0
+
+        cursor.resetPosition()
+        while (!cancel() && contactsMap.size < limit && cursor.moveToNext()) {
+            val contactId = contactsCursor.contactId
+
+            if (contactId in contactIds
+                && matchCount++ >= offset
+                && !contactsMap.containsKey(contactId)
+            ) {
+                contactsMap[contactId] = contactMapper.value
+            }
+        }
+    }
+
     /**
      * Collects RawContacts from the given RawContacts table cursor.
      *
@@ -122,24 +171,80 @@ internal class ContactsMapper(
      * This will not close the given [cursor].
      */
     fun processDataCursor(cursor: CursorHolder<AbstractDataField>): ContactsMapper = apply {
-        // Changing the cursor position also changes the values returned by the mappers.
+        // Changing the cursor position also changes the values returned by the mappers. So, the
+        // same cursors and mappers are used for all rows.
         val dataCursor = cursor.dataCursor()
+        val mimeTypeCursor = cursor.mimeTypeCursor(mimeTypeResolver)
+        val dataEntityMappers = DataEntityMappers(cursor, customDataRegistry)
 
         cursor.resetPosition()
         while (!cancel() && cursor.moveToNext()) {
             rawContactsMap[dataCursor.rawContactId]?.let { tempRawContact ->
-                cursor.updateRawContact(customDataRegistry, tempRawContact)
+                dataEntityMappers.updateRawContact(
+                    customDataRegistry, mimeTypeCursor.mimeType, tempRawContact
+                )
             }
         }
     }
 
+    /**
+     * Collects RawContacts and Data from the given Data table cursor, which must also include the
+     * RawContacts fields that are available in the Data table.
+     *
+     * This is used instead of [processRawContactsCursor] and [processDataCursor] to read both
+     * RawContacts and Data using a single cursor. RawContacts that have no Data rows (blank
+     * RawContacts) are not in the Data table so they must still be collected using
+     * [processRawContactsCursor], which skips RawContacts that have already been collected.
+     *
+     * This should only be invoked after [processContactsCursor] has been invoked, unless
+     * [collectContacts] is true. In that case, the Contacts are also collected from the Contacts
+     * columns of the given [cursor], in the order that they first appear in it. Contacts that have
+     * no Data rows in the [cursor] must then still be collected using [processContactsCursor].
+     *
+     * Returns the ids of the RawContacts in the given [cursor].
+     *
+     * This will not close the given [cursor].
+     */
+    fun processJoinedDataCursor(
+        cursor: CursorHolder<AbstractDataField>,
+        collectContacts: Boolean = false
+    ): Set<Long> {
+        val rawContactIds = LongHashSet()
+        val dataCursor = cursor.dataCursor()
+        val mimeTypeCursor = cursor.mimeTypeCursor(mimeTypeResolver)
+        val tempRawContactMapper = cursor.dataTempRawContactMapper()
+        val contactMapper = cursor.dataContactsMapper()
+        val dataEntityMappers = DataEntityMappers(cursor, customDataRegistry)
+
+        cursor.resetPosition()
+        while (!cancel() && cursor.moveToNext()) {
+            if (collectContacts) {
+                // The Contact is only mapped once, from its first Data row.
+                contactsMap.getOrPut(dataCursor.contactId) { contactMapper.value }
+            }
+
+            val rawContactId = dataCursor.rawContactId
+            rawContactIds.add(rawContactId)
+
+            // The RawContact is only mapped once, from its first Data row.
+            val tempRawContact = rawContactsMap.getOrPut(rawContactId) {
+                tempRawContactMapper.value
+            }
+            dataEntityMappers.updateRawContact(
+                customDataRegistry, mimeTypeCursor.mimeType, tempRawContact
+            )
+        }
+
+        return rawContactIds
+    }
+
     fun mapContacts(): List<Contact> {
         if (cancel()) {
             return emptyList()
         }
 
         // Map contact id to set of raw contacts.
-        val contactRawMap = mutableMapOf<Long, MutableList<RawContact>>()
+        val contactRawMap = LongObjectMap<MutableList<RawContact>>(contactsMap.size)
         for (tempRawContact in rawContactsMap.values) {
 
             val rawContacts = contactRawMap.getOrPut(tempRawContact.contactId) { mutableListOf() }
@@ -155,8 +260,7 @@ internal class ContactsMapper(
 
         // Add all of the Contacts in the contactsMap.
         for (contact in contactsMap.values) {
-            // Make sure to remove the entry in contactRawMap as it is processed.
-            val rawContacts: List<RawContact> = contactRawMap.remove(contact.id) ?: emptyList()
+            val rawContacts: List<RawContact> = contactRawMap[contact.id] ?: emptyList()
 
             // The data class copy function comes in handy here.
             contactList.add(contact.copy(rawContacts = rawContacts.sortedBy { it.id }))
@@ -182,50 +286,178 @@ internal class ContactsMapper(
     }
 }
 
-private fun CursorHolder<AbstractDataField>.updateRawContact(
+/**
+ * Passes Contacts, along with their RawContacts and Data, to an action one at a time and in order
+ * instead of accumulating all of them like [ContactsMapper] does. Only the RawContacts (without
+ * Data) of all Contacts and the Data of one Contact are kept in memory at any given time.
+ *
+ * This should be used for one [processRawContactsCursor] and one [processDataCursor].
+ */
+internal class StreamingContactsMapper(
+    /**
+     * Support for custom common data.
+     */
+    private val customDataRegistry: CustomDataRegistry,
+
+    /**
+     * If this function returns true while contacts are being processed, no more Contacts are
+     * passed to the action.
+     */
+    private val cancel: () -> Boolean
+) {
+
+    private val mimeTypeResolver = MimeTypeResolver(customDataRegistry)
+
+    /**
+     * A map of contact ids to the [TempRawContact]s of the Contact. The lists are cleared once the
+     * Contact has been passed to the action so that its Data can be garbage collected.
+     */
+    private val rawContactsByContactId = LongObjectMap<MutableList<TempRawContact>>()
+
+    /**
+     * Collects RawContacts from the given RawContacts table cursor.
+     *
+     * This will not close the given [cursor].
+     */
+    fun processRawContactsCursor(cursor: CursorHolder<RawContactsField>) {
+        val tempRawContactMapper = cursor.tempRawContactMapper()
+
+        cursor.resetPosition()
+        while (!cancel() && cursor.moveToNext()) {
+            val tempRawContact = tempRawContactMapper.value
+            rawContactsByContactId
+                .getOrPut(tempRawContact.contactId) { mutableListOf() }
+                .add(tempRawContact)
+        }
+    }
+
+    /**
+     * Passes the given [contacts] to the [action], in order, along with their collected
+     * RawContacts and their Data read from the given Data table [cursor]. Each Contact is passed
+     * as soon as all of its Data rows have been read.
+     *
+     * The [cursor] must be ordered the same way as the [contacts] such that all of the rows of a
+     * Contact are next to each other. Contacts that have no rows in the [cursor] are passed with
+     * only their collected RawContacts, in their place in the order. Rows of Contacts that are not
+     * in the [contacts] are skipped. If the [cursor] is null, all [contacts] are passed without
+     * Data.
+     *
+     * This should only be invoked after [processRawContactsCursor] has been invoked.
+     *
+     * This will not close the given [cursor].
+     */
+    fun processDataCursor(
+        contacts: List<Contact>,
+        cursor: CursorHolder<AbstractDataField>?,
+        action: (Contact) -> Unit
+    ) {
+        var passedCount = 0
+
+        // Passes the Contacts that come before the one at the given index, which includes the
+        // Contact whose Data rows have been read.
+        fun passContactsBefore(index: Int) {
+            while (!cancel() && passedCount < index) {
+                val contact = contacts[passedCount++]
+                val rawContacts = rawContactsByContactId[contact.id]
+                val contactWithRawContacts = contact.copy(
+                    rawContacts = rawContacts.orEmpty()
+                        .map { it.toRawContact() }
+                        .sortedBy { it.id }
+                )
+                rawContacts?.clear()
+
+                action(contactWithRawContacts)
+            }
+        }
+
+        if (cursor != null) {
+            val contactIndices = LongObjectMap<Int>(contacts.size)
+            contacts.forEachIndexed { index, contact -> contactIndices[contact.id] = index }
+
+            val dataCursor = cursor.dataCursor()
+            val mimeTypeCursor = cursor.mimeTypeCursor(mimeTypeResolver)
+            val dataEntityMappers = DataEntityMappers(cursor, customDataRegistry)
+
+            // The RawContacts of the Contact whose Data rows are being read, keyed by id.
+            var contactIndex = -1
+            var rawContacts = LongObjectMap<TempRawContact>()
+
+            cursor.resetPosition()
+            while (!cancel() && cursor.moveToNext()) {
+                val index = contactIndices[dataCursor.contactId] ?: continue
+
+                if (index != contactIndex) {
+                    // Rows of Contacts that have already been passed to the action are skipped.
+                    // This only happens if the order has changed in between queries.
+                    if (index < passedCount) {
+                        continue
+                    }
+
+                    passContactsBefore(index)
+                    contactIndex = index
+                    rawContacts = LongObjectMap()
+                    rawContactsByContactId[contacts[index].id]?.forEach {
+                        rawContacts[it.id] = it
+                    }
+                }
+
+                rawContacts[dataCursor.rawContactId]?.let { tempRawContact ->
+                    dataEntityMappers.updateRawContact(
+                        customDataRegistry, mimeTypeCursor.mimeType, tempRawContact
+                    )
+                }
+            }
+        }
+
+        passContactsBefore(contacts.size)
+    }
+}
+
+private fun DataEntityMappers.updateRawContact(
     customDataRegistry: CustomDataRegistry,
+    mimeType: MimeType,
     rawContact: TempRawContact
 ) {
     // Each row in the cursor only contains a subset of contact data paired by the mime type.
     // This is why full contact objects cannot be built per cursor row. Therefore, mutable contact
     // instances must be updated with different pieces of data that each cursor row provides.
     // Do not add blank **data** as it is just noise.
-    when (val mimeType = mimeTypeCursor(customDataRegistry).mimeType) {
+    when (mimeType) {
         // Check custom mimetype first to allow for overriding built-in mimetypes.
         // Note that this can also be placed at the end instead of here at the beginning because
         // 'mimeType' can only be custom or one of the built-in mimetypes. However, this follows the
         // pattern used throughout the codebase of checking custom data first, which makes more
         // logical sense even if technically unnecessary.
         is Custom -> updateRawContactCustomData(customDataRegistry, rawContact, mimeType)
-        Address -> addressMapper().nonBlankValueOrNull?.let(rawContact.addresses::add)
-        Email -> emailMapper().nonBlankValueOrNull?.let(rawContact.emails::add)
-        Event -> eventMapper().nonBlankValueOrNull?.let(rawContact.events::add)
+        Address -> address.nonBlankValueOrNull?.let(rawContact.addresses::add)
+        Email -> email.nonBlankValueOrNull?.let(rawContact.emails::add)
+        Event -> event.nonBlankValueOrNull?.let(rawContact.events::add)
         GroupMembership ->
-            groupMembershipMapper().nonBlankValueOrNull?.let(rawContact.groupMemberships::add)
+            groupMembership.nonBlankValueOrNull?.let(rawContact.groupMemberships::add)
 
-        Im -> @Suppress("Deprecation") imMapper().nonBlankValueOrNull?.let(rawContact.ims::add)
-        Name -> nameMapper().nonBlankValueOrNull?.let { rawContact.name = it }
-        Nickname -> nicknameMapper().nonBlankValueOrNull?.let { rawContact.nickname = it }
-        Note -> noteMapper().nonBlankValueOrNull?.let { rawContact.note = it }
-        Organization -> organizationMapper().nonBlankValueOrNull?.let {
+        Im -> @Suppress("Deprecation") im.nonBlankValueOrNull?.let(rawContact.ims::add)
+        Name -> name.nonBlankValueOrNull?.let { rawContact.name = it }
+        Nickname -> nickname.nonBlankValueOrNull?.let { rawContact.nickname = it }
+        Note -> note.nonBlankValueOrNull?.let { rawContact.note = it }
+        Organization -> organization.nonBlankValueOrNull?.let {
             rawContact.organization = it
         }
 
-        Phone -> phoneMapper().nonBlankValueOrNull?.let(rawContact.phones::add)
-        Photo -> photoMapper().nonBlankValueOrNull?.let { rawContact.photo = it }
-        Relation -> relationMapper().nonBlankValueOrNull?.let(rawContact.relations::add)
-        SipAddress -> @Suppress("Deprecation") sipAddressMapper().nonBlankValueOrNull?.let {
+        Phone -> phone.nonBlankValueOrNull?.let(rawContact.phones::add)
+        Photo -> photo.nonBlankValueOrNull?.let { rawContact.photo = it }
+        Relation -> relation.nonBlankValueOrNull?.let(rawContact.relations::add)
+        SipAddress -> @Suppress("Deprecation") sipAddress.nonBlankValueOrNull?.let {
             rawContact.sipAddress = it
         }
 
-        Website -> websiteMapper().nonBlankValueOrNull?.let(rawContact.websites::add)
+        Website -> website.nonBlankValueOrNull?.let(rawContact.websites::add)
         Unknown -> {
             // Do nothing
         }
     }
 }
 
-private fun CursorHolder<AbstractDataField>.updateRawContactCustomData(
+private fun DataEntityMappers.updateRawContactCustomData(
     customDataRegistry: CustomDataRegistry,
     rawContact: TempRawContact,
     mimeType: Custom
@@ -240,11 +472,7 @@ private fun CursorHolder<AbstractDataField>.updateRawContactCustomData(
         )
     }
 
-    val customDataMapper = customDataEntry.mapperFactory.create(
-        cursor,
-        // Only include custom data fields assigned by this entry.
-        includeFields?.let(customDataEntry.fieldSet::intersect)
-    )
+    val customDataMapper = customDataMapperFor(mimeType)
 
     // Do not add blanks.
     customDataMapper.nonBlankValueOrNull?.let {
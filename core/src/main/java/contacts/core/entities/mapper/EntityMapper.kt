@@ -14,7 +14,8 @@ internal sealed interface EntityMapper<out T : ExistingEntity> {
      * The [value] if it is not blank. Else, returns null.
      */
     val nonBlankValueOrNull: T?
-        get() = if (value.isBlank) null else value
+        // The value is created on every access so make sure to only access it once.
+        get() = value.let { if (it.isBlank) null else it }
 }
 
 /**
@@ -35,6 +35,10 @@ import contacts.core.entities.cursor.CursorHolder
 import contacts.core.entities.cursor.addressCursor
 import contacts.core.entities.cursor.blockedNumbersCursor
 import contacts.core.entities.cursor.contactsCursor
+import contacts.core.entities.cursor.dataContactsCursor
+import contacts.core.entities.cursor.dataContactsOptionsCursor
+import contacts.core.entities.cursor.dataRawContactsCursor
+import contacts.core.entities.cursor.dataRawContactsOptionsCursor
 import contacts.core.entities.cursor.emailCursor
 import contacts.core.entities.cursor.eventCursor
 import contacts.core.entities.cursor.groupMembershipCursor
@@ -139,8 +143,67 @@ internal fun <T : ExistingDataEntity> CursorHolder<AbstractDataField>.dataEntity
     )
 } as DataEntityMapper<T>
 
+/**
+ * A table of [DataEntityMapper]s for the Data rows of the given [cursorHolder], one per mimetype
+ * (including custom data mimetypes).
+ *
+ * Mappers, and the entity cursors they use, read from the current position of the cursor. So, one
+ * instance per mimetype can be reused for every row instead of creating new ones (along with the
+ * intersected include field sets) per row. Mappers are created when a row of their mimetype is
+ * first encountered.
+ *
+ * This is not thread-safe, just like cursors.
+ */
+internal class DataEntityMappers(
+    private val cursorHolder: CursorHolder<AbstractDataField>,
+    private val customDataRegistry: CustomDataRegistry
+) {
+
+    val address by unsafeLazy { cursorHolder.addressMapper() }
+    val email by unsafeLazy { cursorHolder.emailMapper() }
+    val event by unsafeLazy { cursorHolder.eventMapper() }
+    val groupMembership by unsafeLazy { cursorHolder.groupMembershipMapper() }
+    val im by unsafeLazy { cursorHolder.imMapper() }
+    val name by unsafeLazy { cursorHolder.nameMapper() }
+    val nickname by unsafeLazy { cursorHolder.nicknameMapper() }
+    val note by unsafeLazy { cursorHolder.noteMapper() }
+    val organization by unsafeLazy { cursorHolder.organizationMapper() }
+    val phone by unsafeLazy { cursorHolder.phoneMapper() }
+    val photo by unsafeLazy { cursorHolder.photoMapper() }
+    val relation by unsafeLazy { cursorHolder.relationMapper() }
+    val sipAddress by unsafeLazy { cursorHolder.sipAddressMapper() }
+    val website by unsafeLazy { cursorHolder.websiteMapper() }
+
+    /**
+     * A map of custom data mimetype values to the [DataEntityMapper] for that mimetype.
+     */
+    private val customDataMappers = mutableMapOf<String, DataEntityMapper<ExistingDataEntity>>()
+
+    fun customDataMapperFor(mimeType: MimeType.Custom): DataEntityMapper<ExistingDataEntity> =
+        customDataMappers.getOrPut(mimeType.value) {
+            cursorHolder.dataEntityMapperFor(mimeType, customDataRegistry)
+        }
+
+    // No need for synchronization because this is used in a single thread.
+    private fun <T> unsafeLazy(initializer: () -> T) = lazy(LazyThreadSafetyMode.NONE, initializer)
+}
+
 // endregion
 
+/**
+ * Same as [tempRawContactMapper] except for Data table cursors. Only the RawContact and Contact
+ * ids are available in the Data table.
+ */
+internal fun CursorHolder<AbstractDataField>.dataTempRawContactMapper(): EntityMapper<TempRawContact> =
+    TempRawContactMapper(dataRawContactsCursor(), OptionsMapper(dataRawContactsOptionsCursor()))
+
+/**
+ * Same as [contactsMapper] except for Data table cursors, which contain the Contacts columns of
+ * each row's Contact.
+ */
+internal fun CursorHolder<AbstractDataField>.dataContactsMapper(): EntityMapper<Contact> =
+    ContactMapper(dataContactsCursor(), OptionsMapper(dataContactsOptionsCursor()))
+
 internal fun CursorHolder<RawContactsField>.tempRawContactMapper(): EntityMapper<TempRawContact> =
     TempRawContactMapper(rawContactsCursor(), rawContactsOptionsMapper())
 
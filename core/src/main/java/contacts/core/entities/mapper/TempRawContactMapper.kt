@@ -2,14 +2,14 @@ package contacts.core.entities.mapper
 
 import contacts.core.entities.Options
 import contacts.core.entities.TempRawContact
-import contacts.core.entities.cursor.RawContactsCursor
+import contacts.core.entities.cursor.JoinedRawContactsCursor
 import contacts.core.entities.cursor.account
 
 /**
  * Creates [TempRawContact] instances. May be used for cursors from the RawContacts or Data table.
  */
 internal class TempRawContactMapper(
-    private val rawContactsCursor: RawContactsCursor,
+    private val rawContactsCursor: JoinedRawContactsCursor,
     private val optionsMapper: EntityMapper<Options>
 ) : EntityMapper<TempRawContact> {
 
@@ -1,26 +1,20 @@
 package contacts.core.entities.operation
 
 import android.content.ContentProviderOperation
-import android.content.ContentResolver
-import android.database.Cursor
 import android.net.Uri
 import contacts.core.AbstractDataField
 import contacts.core.DataField
 import contacts.core.Fields
-import contacts.core.Include
 import contacts.core.Where
 import contacts.core.and
 import contacts.core.entities.DataEntity
 import contacts.core.entities.MimeType
 import contacts.core.entities.NewDataEntity
-import contacts.core.entities.cursor.CursorHolder
-import contacts.core.entities.cursor.dataCursor
 import contacts.core.entities.isNotNullOrBlank
 import contacts.core.entities.propertiesAreAllNullOrBlank
 import contacts.core.entities.table.Table
 import contacts.core.equalTo
 import contacts.core.util.dataUri
-import contacts.core.util.query
 import contacts.core.util.toSqlValue
 
 /**
@@ -136,7 +130,7 @@ abstract class AbstractDataOperation<F : DataField, E : DataEntity>(
      * For example, a contact may have more than 1 data row for address, email, phone, etc.
      */
     internal fun updateInsertOrDeleteDataForRawContact(
-        entities: Collection<E>, rawContactId: Long, contentResolver: ContentResolver
+        entities: Collection<E>, rawContactId: Long, existingDataRowIds: ExistingDataRowIds
     ): List<ContentProviderOperation> = buildList {
         if (includeFields != null && includeFields.isEmpty()) {
             // No-op when no fields are included.
@@ -154,24 +148,19 @@ abstract class AbstractDataOperation<F : DataField, E : DataEntity>(
                 }
             }
 
-            // Query for all rows of the RawContact with this operation's mimetype in the database.
-            contentResolver.dataRowIdsWithMimeTypeForRawContact(rawContactId) {
-                val dataCursor = it.dataCursor()
-                while (it.moveToNext()) {
-                    val dataRowId = dataCursor.dataId
-
-                    val entity = validEntitiesMap.remove(dataRowId)
-                    val operation = if (entity != null && !entity.isBlank) {
-                        // If dataRowId is in entities, update if not blank.
-                        updateDataRow(entity, dataRowId)
-                    } else {
-                        // If dataRowId is not in entities or it is but the entity is blank, delete.
-                        // Note that we can gather all data rows to be deleted and delete them using
-                        // a single operation but code will get messier.
-                        deleteDataRowWithId(dataRowId)
-                    }
-                    operation?.let(::add)
+            // All rows of the RawContact with this operation's mimetype in the database.
+            for (dataRowId in existingDataRowIds.dataRowIdsOf(rawContactId, mimeType)) {
+                val entity = validEntitiesMap.remove(dataRowId)
+                val operation = if (entity != null && !entity.isBlank) {
+                    // If dataRowId is in entities, update if not blank.
+                    updateDataRow(entity, dataRowId)
+                } else {
+                    // If dataRowId is not in entities or it is but the entity is blank, delete.
+                    // Note that we can gather all data rows to be deleted and delete them using
+                    // a single operation but code will get messier.
+                    deleteDataRowWithId(dataRowId)
                 }
+                operation?.let(::add)
             }
 
             // Insert all remaining data rows in the valid entities that is not in the cursor.
@@ -208,16 +197,14 @@ abstract class AbstractDataOperation<F : DataField, E : DataEntity>(
      * For example, a contact may only have 1 data row for company, name, note, etc.
      */
     internal fun updateInsertOrDeleteDataForRawContact(
-        entity: E?, rawContactId: Long, contentResolver: ContentResolver
+        entity: E?, rawContactId: Long, existingDataRowIds: ExistingDataRowIds
     ): ContentProviderOperation? = if (includeFields != null && includeFields.isEmpty()) {
         // No-op when no fields are included.
         null
     } else if (entity != null && !entity.isBlank) {
-        // Entity contains some data. Query for the (first) row.
+        // Entity contains some data. Get the (first) row.
         val dataRowId: Long? =
-            contentResolver.dataRowIdsWithMimeTypeForRawContact(rawContactId) {
-                it.getNextOrNull { it.dataCursor().dataId }
-            }
+            existingDataRowIds.dataRowIdsOf(rawContactId, mimeType).firstOrNull()
 
         if (dataRowId != null) {
             // Row exists. Update.
@@ -344,18 +331,6 @@ abstract class AbstractDataOperation<F : DataField, E : DataEntity>(
             .withSelection(Fields.DataId equalTo dataRowId)
             .build()
 
-    /**
-     * Provides the [Cursor] to the data rows of type [T] of the RawContact with [rawContactId].
-     */
-    private fun <T> ContentResolver.dataRowIdsWithMimeTypeForRawContact(
-        rawContactId: Long, processCursor: (CursorHolder<AbstractDataField>) -> T
-    ) = query(
-        contentUri,
-        Include(Fields.DataId),
-        selectionWithMimeTypeForRawContact(rawContactId),
-        processCursor = processCursor
-    )
-
     private fun ContentProviderOperation.Builder.withDataIsReadOnly(entity: E) = apply {
         if (entity is NewDataEntity) {
             // Yes, we are not checking if Fields.DataIsReadyOnly is in the includeFields. We could
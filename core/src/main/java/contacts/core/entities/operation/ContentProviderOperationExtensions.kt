@@ -34,7 +34,7 @@ internal fun newDelete(table: Table<*>, callerIsSyncAdapter: Boolean): Builder =
     )
 
 internal fun Builder.withSelection(where: Where<*>?): Builder =
-    withSelection(where?.toString(), null)
+    withSelection(where?.selection, where?.selectionArgs)
 
 internal fun Builder.withValue(field: Field, value: Any?): Builder =
     withValue(field.columnName, value)
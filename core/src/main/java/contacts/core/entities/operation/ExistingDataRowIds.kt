@@ -0,0 +1,111 @@
+package contacts.core.entities.operation
+
+import contacts.core.AbstractDataField
+import contacts.core.Contacts
+import contacts.core.Fields
+import contacts.core.Include
+import contacts.core.`in`
+import contacts.core.contentResolver
+import contacts.core.entities.MimeType
+import contacts.core.entities.MimeTypeResolver
+import contacts.core.entities.cursor.dataCursor
+import contacts.core.entities.cursor.mimeTypeCursor
+import contacts.core.util.MAX_IDS_PER_IN_CLAUSE
+import contacts.core.util.dataUri
+import contacts.core.util.inClauseChunks
+import contacts.core.util.query
+
+/**
+ * An in-memory index of the ids of the Data rows in the database, grouped by RawContact id and
+ * mimetype.
+ *
+ * Update operations need to know which Data rows currently exist for a RawContact in order to
+ * determine which rows to update, insert, or delete. Instead of performing a Data table query per
+ * mimetype per RawContact, the Data row ids of all RawContacts in a batch are fetched up front in a
+ * few queries via [prefetch]. Operations then read from this index.
+ *
+ * RawContacts that have not been prefetched (or have been [invalidate]d) are fetched on demand, one
+ * query per RawContact for all of its mimetypes.
+ *
+ * This is not thread-safe. Instances should only be used within a single update batch.
+ */
+internal class ExistingDataRowIds(
+    private val contactsApi: Contacts,
+    private val isProfile: Boolean
+) {
+
+    /**
+     * A map of RawContact ids to a map of mimetype values to Data row ids.
+     */
+    private val dataRowIdsMap = mutableMapOf<Long, MutableMap<String, MutableList<Long>>>()
+
+    private val mimeTypeResolver = MimeTypeResolver(contactsApi.customDataRegistry)
+
+    /**
+     * Fetches the Data row ids of all of the RawContacts with the given [rawContactIds] using one
+     * Data table query per [MAX_IDS_PER_IN_CLAUSE] RawContacts.
+     */
+    fun prefetch(rawContactIds: Collection<Long>): ExistingDataRowIds = apply {
+        if (rawContactIds.isEmpty()) {
+            return@apply
+        }
+
+        // RawContacts with no Data rows must also be indexed so that they are not fetched again.
+        for (rawContactId in rawContactIds) {
+            dataRowIdsMap[rawContactId] = mutableMapOf()
+        }
+
+        for (chunk in rawContactIds.inClauseChunks()) {
+            contactsApi.contentResolver.query(
+                contactsApi.dataUri(isProfile),
+                INCLUDE,
+                Fields.RawContact.Id `in` chunk
+            ) {
+                val dataCursor = it.dataCursor()
+                val mimeTypeCursor = it.mimeTypeCursor(mimeTypeResolver)
+                while (it.moveToNext()) {
+                    dataRowIdsMap
+                        .getOrPut(dataCursor.rawContactId) { mutableMapOf() }
+                        .getOrPut(mimeTypeCursor.mimeType.value) { mutableListOf() }
+                        .add(dataCursor.dataId)
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the Data rows with the given [mimeType] belonging to the RawContact with
+     * the given [rawContactId].
+     */
+    fun dataRowIdsOf(rawContactId: Long, mimeType: MimeType): List<Long> {
+        if (!dataRowIdsMap.containsKey(rawContactId)) {
+            prefetch(listOf(rawContactId))
+        }
+        return dataRowIdsMap[rawContactId]?.get(mimeType.value) ?: emptyList()
+    }
+
+    /**
+     * Removes the Data row ids of the RawContact with the given [rawContactId] from this index.
+     *
+     * This should be invoked once the operations for the RawContact have been applied because the
+     * Data rows in the database may no longer match this index.
+     */
+    fun invalidate(rawContactId: Long) {
+        dataRowIdsMap.remove(rawContactId)
+    }
+
+    private companion object {
+        val INCLUDE = Include<AbstractDataField>(
+            Fields.DataId, Fields.RawContact.Id, Fields.MimeType
+        )
+    }
+}
+
+/**
+ * Returns [ExistingDataRowIds] with the Data row ids of the RawContacts with the given
+ * [rawContactIds] prefetched.
+ */
+internal fun Contacts.prefetchExistingDataRowIds(
+    rawContactIds: Collection<Long>,
+    isProfile: Boolean
+): ExistingDataRowIds = ExistingDataRowIds(this, isProfile).prefetch(rawContactIds)
@@ -0,0 +1,193 @@
+package contacts.core.entities.operation
+
+import android.accounts.Account
+import contacts.core.AbstractDataField
+import contacts.core.Contacts
+import contacts.core.Fields
+import contacts.core.Include
+import contacts.core.RawContactsFields
+import contacts.core.`in`
+import contacts.core.and
+import contacts.core.contentResolver
+import contacts.core.entities.Group
+import contacts.core.entities.GroupMembership
+import contacts.core.entities.MimeType
+import contacts.core.entities.cursor.account
+import contacts.core.entities.cursor.dataCursor
+import contacts.core.entities.cursor.rawContactsCursor
+import contacts.core.entities.mapper.groupMembershipMapper
+import contacts.core.equalTo
+import contacts.core.util.dataUri
+import contacts.core.util.inClauseChunks
+import contacts.core.util.nullIfNotIn
+import contacts.core.util.query
+import contacts.core.util.rawContactsUri
+
+/**
+ * An in-memory index of the Accounts, Account Groups, and Group memberships of RawContacts in the
+ * database.
+ *
+ * Updating the group memberships of a RawContact requires its Account, the Groups of that Account,
+ * and its current memberships. Instead of performing these queries for every RawContact, they are
+ * done for all RawContacts in a batch at once the first time that any of them is needed. This way,
+ * nothing is queried if no group memberships are updated.
+ *
+ * RawContacts that are not part of a batch (or have been [invalidate]d) are fetched on demand.
+ *
+ * This is not thread-safe. Instances should only be used within a single update batch.
+ */
+internal class ExistingGroupMemberships(
+    private val contactsApi: Contacts,
+    private val isProfile: Boolean
+) {
+
+    /**
+     * The ids of the RawContacts to fetch the next time any of them is needed.
+     */
+    private val pendingRawContactIds = mutableSetOf<Long>()
+
+    /**
+     * The (nullable) Accounts of RawContacts, keyed by RawContact id. This does not change during
+     * an update so it is never invalidated.
+     */
+    private val accountsMap = mutableMapOf<Long, Account?>()
+
+    /**
+     * A map of Accounts to a map of Group ids to Groups. Same as [accountsMap], this is never
+     * invalidated.
+     */
+    private val accountGroupsMap = mutableMapOf<Account?, Map<Long, Group>>()
+
+    /**
+     * A map of RawContact ids to the group memberships in the database.
+     */
+    private val groupMembershipsMap = mutableMapOf<Long, MutableList<GroupMembership>>()
+
+    /**
+     * The Accounts in the system, which is only queried once.
+     */
+    private val accountsInSystem: Collection<Account> by lazy {
+        contactsApi.accounts().query().find()
+    }
+
+    /**
+     * Marks the RawContacts with the given [rawContactIds] to be fetched all at once the first time
+     * that any of them is needed.
+     */
+    fun prefetch(rawContactIds: Collection<Long>): ExistingGroupMemberships = apply {
+        pendingRawContactIds.addAll(rawContactIds)
+    }
+
+    /**
+     * Returns the Groups, keyed by Group id, of the (nullable) Account of the RawContact with the
+     * given [rawContactId].
+     */
+    fun accountGroupsOf(rawContactId: Long, cancel: () -> Boolean): Map<Long, Group> {
+        fetchIfNeeded(rawContactId, cancel)
+        return accountGroupsMap[accountsMap[rawContactId]] ?: emptyMap()
+    }
+
+    /**
+     * Returns the group memberships in the database of the RawContact with the given
+     * [rawContactId].
+     */
+    fun groupMembershipsOf(rawContactId: Long, cancel: () -> Boolean): List<GroupMembership> {
+        fetchIfNeeded(rawContactId, cancel)
+        return groupMembershipsMap[rawContactId] ?: emptyList()
+    }
+
+    /**
+     * Removes the group memberships of the RawContact with the given [rawContactId] from this
+     * index.
+     *
+     * This should be invoked once the operations for the RawContact have been applied because the
+     * group memberships in the database may no longer match this index.
+     */
+    fun invalidate(rawContactId: Long) {
+        groupMembershipsMap.remove(rawContactId)
+    }
+
+    private fun fetchIfNeeded(rawContactId: Long, cancel: () -> Boolean) {
+        if (groupMembershipsMap.containsKey(rawContactId)) {
+            return
+        }
+
+        val rawContactIds = if (pendingRawContactIds.remove(rawContactId)) {
+            (pendingRawContactIds + rawContactId).also { pendingRawContactIds.clear() }
+        } else {
+            setOf(rawContactId)
+        }
+
+        fetch(rawContactIds, cancel)
+    }
+
+    private fun fetch(rawContactIds: Set<Long>, cancel: () -> Boolean) {
+        // RawContacts with no memberships must also be indexed so that they are not fetched again.
+        for (rawContactId in rawContactIds) {
+            groupMembershipsMap[rawContactId] = mutableListOf()
+        }
+
+        val rawContactIdsWithoutAccount = rawContactIds.filter { !accountsMap.containsKey(it) }
+        for (chunk in rawContactIdsWithoutAccount.inClauseChunks()) {
+            contactsApi.contentResolver.query(
+                contactsApi.rawContactsUri(isProfile),
+                Include(
+                    RawContactsFields.Id,
+                    RawContactsFields.AccountName,
+                    RawContactsFields.AccountType
+                ),
+                RawContactsFields.Id `in` chunk
+            ) {
+                val rawContactsCursor = it.rawContactsCursor()
+                while (it.moveToNext()) {
+                    // Accounts that are not in the system are treated as null (local).
+                    accountsMap[rawContactsCursor.rawContactId] =
+                        rawContactsCursor.account().nullIfNotIn(accountsInSystem)
+                }
+            }
+        }
+
+        val accountsWithoutGroups = rawContactIds
+            .map { accountsMap[it] }
+            .distinct()
+            .filter { !accountGroupsMap.containsKey(it) }
+        if (accountsWithoutGroups.isNotEmpty()) {
+            val groups = contactsApi.groups().query().accounts(accountsWithoutGroups).find(cancel)
+            for (account in accountsWithoutGroups) {
+                accountGroupsMap[account] = groups
+                    .filter { it.account == account }
+                    .associateBy { it.id }
+            }
+        }
+
+        for (chunk in rawContactIds.inClauseChunks()) {
+            contactsApi.contentResolver.query(
+                contactsApi.dataUri(isProfile),
+                INCLUDE,
+                (Fields.MimeType equalTo MimeType.GroupMembership) and
+                        (Fields.RawContact.Id `in` chunk)
+            ) {
+                val dataCursor = it.dataCursor()
+                val groupMembershipMapper = it.groupMembershipMapper()
+                while (it.moveToNext()) {
+                    groupMembershipsMap[dataCursor.rawContactId]?.add(groupMembershipMapper.value)
+                }
+            }
+        }
+    }
+
+    private companion object {
+        val INCLUDE = Include<AbstractDataField>(
+            Fields.DataId, Fields.RawContact.Id, Fields.GroupMembership.GroupId
+        )
+    }
+}
+
+/**
+ * Returns [ExistingGroupMemberships] with the RawContacts with the given [rawContactIds] marked to
+ * be fetched all at once the first time that any of them is needed.
+ */
+internal fun Contacts.prefetchExistingGroupMemberships(
+    rawContactIds: Collection<Long>,
+    isProfile: Boolean
+): ExistingGroupMemberships = ExistingGroupMemberships(this, isProfile).prefetch(rawContactIds)
@@ -1,27 +1,13 @@
 package contacts.core.entities.operation
 
-import android.accounts.Account
 import android.content.ContentProviderOperation
-import android.content.ContentResolver
-import contacts.core.Contacts
 import contacts.core.Fields
 import contacts.core.GroupMembershipField
-import contacts.core.Include
-import contacts.core.RawContactsFields
-import contacts.core.contentResolver
 import contacts.core.entities.Entity
 import contacts.core.entities.Group
 import contacts.core.entities.GroupMembership
 import contacts.core.entities.GroupMembershipEntity
 import contacts.core.entities.MimeType
-import contacts.core.entities.cursor.account
-import contacts.core.entities.cursor.rawContactsCursor
-import contacts.core.entities.mapper.groupMembershipMapper
-import contacts.core.equalTo
-import contacts.core.util.isProfileId
-import contacts.core.util.nullIfNotInSystem
-import contacts.core.util.query
-import contacts.core.util.rawContactsUri
 
 internal class GroupMembershipOperation(
     callerIsSyncAdapter: Boolean,
@@ -80,11 +66,14 @@ internal class GroupMembershipOperation(
      *
      * [GroupMembershipEntity]s that do not belong to the (nullable) account associated with the
      * [rawContactId] will be ignored. Also, memberships to default groups are never deleted.
+     *
+     * The Account, Account Groups, and memberships in the DB are read from the given
+     * [existingGroupMemberships], which fetches them for the entire batch of RawContacts at once.
      */
     fun updateInsertOrDelete(
         groupMemberships: Collection<GroupMembershipEntity>,
         rawContactId: Long,
-        contactsApi: Contacts,
+        existingGroupMemberships: ExistingGroupMemberships,
         cancel: () -> Boolean,
     ): List<ContentProviderOperation> = buildList {
         if (includeFields != null && includeFields.isEmpty()) {
@@ -92,15 +81,13 @@ internal class GroupMembershipOperation(
             return@buildList
         }
 
-        val account: Account? = contactsApi.accountForRawContactWithId(rawContactId)
-
         // A map of Group.id -> Group
         val accountGroups: Map<Long, Group> =
-            contactsApi.groups().query().accounts(account).find(cancel).associateBy { it.id }
+            existingGroupMemberships.accountGroupsOf(rawContactId, cancel)
 
         // A map of Group.id -> GroupMembership
         val groupMembershipsInDB: MutableMap<Long, GroupMembership> =
-            contactsApi.contentResolver.getGroupMembershipsInDB(rawContactId)
+            existingGroupMemberships.groupMembershipsOf(rawContactId, cancel)
                 .asSequence()
                 // There should not exist any memberships in the DB that does not belong to the same
                 // account. Just in case though...
@@ -146,35 +133,4 @@ internal class GroupMembershipOperation(
                 add(deleteDataRowWithId(membership.id))
             }
     }
-
-    private fun ContentResolver.getGroupMembershipsInDB(rawContactId: Long): List<GroupMembership> =
-        query(contentUri, INCLUDE, selectionWithMimeTypeForRawContact(rawContactId)) {
-            buildList {
-                val groupMembershipMapper = it.groupMembershipMapper()
-                while (it.moveToNext()) {
-                    add(groupMembershipMapper.value)
-                }
-            }
-        } ?: emptyList()
 }
-
-/**
- * Returns the Account, based on the values in the RawContacts table, for the RawContact with the
- * given [rawContactId].
- *
- * This will return a null Account if the non-null account name and type stored in the RawContacts
- * table is not in the system. In other words, this will return null for invalid Accounts.
- *
- * This only requires [contacts.core.ContactsPermissions.READ_PERMISSION].
- */
-private fun Contacts.accountForRawContactWithId(rawContactId: Long): Account? =
-    contentResolver.query(
-        rawContactsUri(rawContactId.isProfileId),
-        Include(RawContactsFields.AccountName, RawContactsFields.AccountType),
-        RawContactsFields.Id equalTo rawContactId
-    ) {
-        val account = it.getNextOrNull { it.rawContactsCursor().account() }
-        account.nullIfNotInSystem(this)
-    }
-
-private val INCLUDE = Include(Fields.DataId, Fields.GroupMembership.GroupId)
\ No newline at end of file
@@ -14,6 +14,17 @@ interface Logger {
      */
     val redactMessages: Boolean
 
+    /**
+     * True if messages should be logged. If false, [log] is never invoked and messages are not
+     * even built (which can take a lot of time and memory for large results, especially when
+     * [redactMessages] is true).
+     *
+     * This is checked before every message so it may change at any time (e.g. depending on the
+     * current log level). This is true by default.
+     */
+    val isEnabled: Boolean
+        get() = true
+
     /**
      * The message that should be logged. This message will be redacted if [redactMessages] is true.
      */
@@ -26,6 +37,7 @@ interface Logger {
  */
 class EmptyLogger : Logger {
     override val redactMessages: Boolean = false
+    override val isEnabled: Boolean = false
     override fun log(message: String) {}
 }
 
@@ -1,7 +1,8 @@
 package contacts.core.log
 
 import contacts.core.CrudApi
-import contacts.core.redactedCopyOrThis
+import contacts.core.Redactable
+import java.lang.ref.WeakReference
 
 class LoggerRegistry(logger: Logger) {
 
@@ -9,24 +10,80 @@ class LoggerRegistry(logger: Logger) {
 
     // Prevent consumers from invoking the listener functions by not having the registry implement
     // it directly.
-    private class Listener(
-        private val logger: Logger,
-        private val apiExecutionStartTimeMillis: MutableMap<CrudApi, Long> = mutableMapOf()
-    ) : CrudApi.Listener {
+    private class Listener(private val logger: Logger) : CrudApi.Listener {
+
+        // The pre and post execute functions are invoked in the same thread as the API core
+        // function, in reverse order for APIs that are executed within other APIs. Keeping a stack
+        // of start times per thread makes this thread-safe without locking, even when the same API
+        // instance is executed concurrently in different threads.
+        //
+        // The post execute function is not invoked if the API throws an exception, which leaves
+        // its start time behind. APIs are weakly referenced so that these stale start times do not
+        // keep the API instances in memory for as long as the thread lives. Stale start times are
+        // discarded when their API is executed again, when the API that they were executed within
+        // completes, or when their API is garbage collected.
+        private val apiExecutionStartTimes = ThreadLocal<MutableList<StartTime>>()
 
         override fun onPreExecute(api: CrudApi) {
-            apiExecutionStartTimeMillis[api] = System.currentTimeMillis()
-            logger.log(api.redactedCopyOrThis(logger.redactMessages).toString())
+            if (!logger.isEnabled) {
+                return
+            }
+
+            val startTimes = apiExecutionStartTimes.get()
+                ?: mutableListOf<StartTime>().also(apiExecutionStartTimes::set)
+            startTimes.removeAll {
+                val startedApi = it.api.get()
+                startedApi == null || startedApi === api
+            }
+            startTimes.add(StartTime(WeakReference(api), System.nanoTime()))
+
+            logger.log(api.logString())
         }
 
         override fun onPostExecute(api: CrudApi, result: CrudApi.Result) {
-            val execTimeMillis = apiExecutionStartTimeMillis.remove(api)?.let { startTimeMillis ->
-                System.currentTimeMillis() - startTimeMillis
+            val execTimeNanos = removeStartTimeNanos(api)?.let { startTimeNanos ->
+                System.nanoTime() - startTimeNanos
             }
 
-            logger.log(
-                "${result.redactedCopyOrThis(logger.redactMessages)} ($execTimeMillis milliseconds)"
-            )
+            if (!logger.isEnabled) {
+                return
+            }
+
+            val execTimeMillis = execTimeNanos?.let { it / NANOS_PER_MILLI }
+            logger.log("${result.logString()} ($execTimeMillis milliseconds)")
         }
+
+        /**
+         * Removes and returns the start time of the given [api] along with the stale start times
+         * of the APIs that were executed after it in this thread, which must have thrown.
+         */
+        private fun removeStartTimeNanos(api: CrudApi): Long? {
+            val startTimes = apiExecutionStartTimes.get() ?: return null
+            val index = startTimes.indexOfLast { it.api.get() === api }
+            if (index == -1) {
+                return null
+            }
+
+            val startTimeNanos = startTimes[index].nanos
+            startTimes.subList(index, startTimes.size).clear()
+            if (startTimes.isEmpty()) {
+                apiExecutionStartTimes.remove()
+            }
+
+            return startTimeNanos
+        }
+
+        /**
+         * Uses [Redactable.redactedString] instead of redacting a copy of this so that results
+         * with a lot of entities are not copied entirely just to be logged.
+         */
+        private fun Redactable.logString(): String =
+            if (logger.redactMessages) redactedString() else toString()
+    }
+
+    private class StartTime(val api: WeakReference<CrudApi>, val nanos: Long)
+
+    private companion object {
+        const val NANOS_PER_MILLI = 1_000_000L
     }
-}
\ No newline at end of file
+}
@@ -428,7 +428,7 @@ private fun Contacts.resolve(
             // might as well be consistent...
             ProfileUris.DATA.uri(callerIsSyncAdapter),
             finalInclude,
-            Fields.RawContact.Id `in` rawContactIds,
+            (Fields.RawContact.Id `in` rawContactIds) and include.mimeTypesWhere(),
             // Ignore include field checks if include is null.
             setCursorHolderIncludeFieldsToNull = include == null,
             processCursor = contactsMapper::processDataCursor
@@ -3,6 +3,8 @@ package contacts.core.profile
 import contacts.core.*
 import contacts.core.entities.ExistingContactEntity
 import contacts.core.entities.ExistingRawContactEntity
+import contacts.core.entities.operation.prefetchExistingDataRowIds
+import contacts.core.entities.operation.prefetchExistingGroupMemberships
 import contacts.core.util.isEmpty
 
 /**
@@ -417,6 +419,21 @@ private class ProfileUpdateImpl(
         } else {
             val rawContactIdsResultMap = mutableMapOf<Long, Boolean>()
 
+            // Get the existing Data rows and group memberships of all RawContacts in this batch at
+            // once instead of per mimetype per RawContact.
+            val rawContactIds = buildSet {
+                contact?.takeIf { it.isProfile }?.rawContacts?.forEach { add(it.id) }
+                for (rawContact in rawContacts) {
+                    if (rawContact.isProfile) {
+                        add(rawContact.id)
+                    }
+                }
+            }
+            val existingDataRowIds =
+                contactsApi.prefetchExistingDataRowIds(rawContactIds, isProfile = true)
+            val existingGroupMemberships =
+                contactsApi.prefetchExistingGroupMemberships(rawContactIds, isProfile = true)
+
             val contactUpdateSuccess = contact?.let {
                 if (!it.isProfile) {
                     // Intentionally fail the operation to ensure that this is only used for
@@ -430,6 +447,8 @@ private class ProfileUpdateImpl(
                         include?.fields,
                         includeRawContactsFields?.fields,
                         it,
+                        existingDataRowIds,
+                        existingGroupMemberships,
                         cancel
                     )
                 }
@@ -452,6 +471,8 @@ private class ProfileUpdateImpl(
                         include?.fields,
                         includeRawContactsFields?.fields,
                         rawContact,
+                        existingDataRowIds,
+                        existingGroupMemberships,
                         cancel
                     )
                 }
@@ -299,7 +299,7 @@ fun ExistingContactEntity.unlinkDirect(contactsApi: Contacts): ContactUnlink.Res
  *
  * See DEV_NOTES "AggregationExceptions table" section.
  */
-private fun Contacts.aggregateExceptionsOperations(sortedRawContactIds: List<Long>, type: Int):
+internal fun Contacts.aggregateExceptionsOperations(sortedRawContactIds: List<Long>, type: Int):
         ArrayList<ContentProviderOperation> = arrayListOf<ContentProviderOperation>().apply {
 
     for (i in 0 until (sortedRawContactIds.size - 1)) {
@@ -100,8 +100,8 @@ internal inline fun <reified T : Field, R> ContentResolver.query(
         query(
             contentUri,
             include.columnNamesForQueryProjection.toTypedArray(),
-            where?.toString(),
-            null,
+            where?.selection,
+            where?.selectionArgs,
             sortOrder
         )
     } catch (exception: SQLException) {
@@ -133,6 +133,10 @@ internal inline fun <reified T : Field, R> ContentResolver.query(
 
 // region APPLY BATCH
 
+// According to this discussion thread, this is the max number of operations in a batch that
+// may succeed; https://github.com/vestrel00/contacts-android/discussions/317#discussion-5650555
+internal const val MAX_OPERATIONS_PER_BATCH = 100
+
 internal fun ContentResolver.applyBatch(vararg operations: ContentProviderOperation) =
     applyBatch(arrayListOf(*operations))
 
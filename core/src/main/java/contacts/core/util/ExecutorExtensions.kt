@@ -0,0 +1,32 @@
+package contacts.core.util
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.FutureTask
+
+/**
+ * Submits the given [task] to this executor and returns a function that waits for and returns its
+ * result. If this executor is null, the [task] is instead run in the calling thread when the
+ * returned function is invoked.
+ *
+ * If the [task] has not yet been started by this executor when the returned function is invoked,
+ * it is run in the calling thread instead. This prevents deadlocks when the calling thread is one
+ * of the executor's threads (e.g. a single-threaded executor) and also makes sure that a busy
+ * executor does not make things slower than not using an executor at all.
+ *
+ * Exceptions thrown by the [task] are rethrown by the returned function.
+ */
+internal fun <T> Executor?.submit(task: () -> T): () -> T {
+    val futureTask = FutureTask(task)
+    this?.execute(futureTask)
+
+    return {
+        // This does nothing if the task has already been started by the executor.
+        futureTask.run()
+        try {
+            futureTask.get()
+        } catch (exception: ExecutionException) {
+            throw exception.cause ?: exception
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package contacts.core.util
+
+/**
+ * A read-only set of primitive longs that can be iterated without boxing its elements using its
+ * [LongIterator].
+ */
+internal abstract class LongSet : AbstractSet<Long>() {
+
+    abstract override fun iterator(): LongIterator
+
+    /**
+     * Splits this set into chunks of at most [maxSize] elements.
+     *
+     * Chunks are produced lazily so that only one chunk needs to be in memory at a time.
+     */
+    fun chunked(maxSize: Int): Sequence<LongHashSet> = sequence {
+        val iterator = iterator()
+        while (iterator.hasNext()) {
+            val chunk = LongHashSet(maxSize)
+            while (chunk.size < maxSize && iterator.hasNext()) {
+                chunk.add(iterator.nextLong())
+            }
+            yield(chunk)
+        }
+    }
+}
+
+/**
+ * A set of primitive longs, used for the (potentially very large) sets of Contact and RawContact
+ * ids collected by queries.
+ *
+ * Unlike a [HashSet] of [Long]s, this does not allocate an object for every element and hash
+ * entry. Elements are kept in a single array using open addressing with linear probing.
+ *
+ * Elements cannot be removed. This is all that the queries need and it keeps this simple. The
+ * iteration order is unspecified.
+ *
+ * This is not thread-safe.
+ */
+internal class LongHashSet(expectedSize: Int = 0) : LongSet() {
+
+    private var keys = LongArray(tableSizeFor(expectedSize))
+
+    // The EMPTY_KEY marks empty slots in the keys array so it is tracked separately.
+    private var containsEmptyKey = false
+
+    private var keysInTable = 0
+
+    override val size: Int
+        get() = if (containsEmptyKey) keysInTable + 1 else keysInTable
+
+    override fun isEmpty(): Boolean = size == 0
+
+    override fun contains(element: Long): Boolean =
+        if (element == EMPTY_KEY) containsEmptyKey else keys[slotIndexOf(keys, element)] == element
+
+    /**
+     * Adds the given [element]. Returns true if it was not yet in this set.
+     */
+    fun add(element: Long): Boolean {
+        if (element == EMPTY_KEY) {
+            return !containsEmptyKey.also { containsEmptyKey = true }
+        }
+
+        val index = slotIndexOf(keys, element)
+        if (keys[index] == element) {
+            return false
+        }
+
+        keys[index] = element
+        if (++keysInTable > keys.size * MAX_LOAD_FACTOR) {
+            rehash()
+        }
+        return true
+    }
+
+    /**
+     * Adds all of the given [elements]. The elements are not boxed if they are iterated using a
+     * [LongIterator] (e.g. another [LongSet]).
+     */
+    // This is not named addAll to avoid clashing with the Collection.addAll JVM method.
+    fun addAllFrom(elements: Collection<Long>) {
+        val iterator = elements.iterator()
+        if (iterator is LongIterator) {
+            while (iterator.hasNext()) {
+                add(iterator.nextLong())
+            }
+        } else {
+            while (iterator.hasNext()) {
+                add(iterator.next())
+            }
+        }
+    }
+
+    override fun iterator(): LongIterator = object : LongIterator() {
+
+        private var index = 0
+        private var isEmptyKeyNext = containsEmptyKey
+
+        override fun hasNext(): Boolean {
+            if (isEmptyKeyNext) {
+                return true
+            }
+            while (index < keys.size && keys[index] == EMPTY_KEY) {
+                index++
+            }
+            return index < keys.size
+        }
+
+        override fun nextLong(): Long {
+            if (!hasNext()) {
+                throw NoSuchElementException()
+            }
+            if (isEmptyKeyNext) {
+                isEmptyKeyNext = false
+                return EMPTY_KEY
+            }
+            return keys[index++]
+        }
+    }
+
+    private fun rehash() {
+        val oldKeys = keys
+        keys = LongArray(oldKeys.size * 2)
+        for (key in oldKeys) {
+            if (key != EMPTY_KEY) {
+                keys[slotIndexOf(keys, key)] = key
+            }
+        }
+    }
+
+    private companion object {
+        const val EMPTY_KEY = 0L
+    }
+}
+
+/**
+ * An insertion-ordered map of primitive long keys to values, used to collect Contacts and
+ * RawContacts by id.
+ *
+ * Unlike a [LinkedHashMap] with [Long] keys, this does not allocate objects for every key and
+ * entry. Keys and values are kept in insertion order in parallel arrays. A separate table of
+ * indices into those arrays, using open addressing with linear probing, is used for lookups.
+ *
+ * Entries cannot be removed. This is all that the queries need and it keeps this simple.
+ *
+ * This is not thread-safe. However, it may be read by several threads concurrently as long as it
+ * is no longer being written to.
+ */
+internal class LongObjectMap<V : Any>(expectedSize: Int = 0) {
+
+    // The index (plus one) of the entry in the entry arrays. Zero means empty.
+    private var table = IntArray(tableSizeFor(expectedSize))
+
+    private var entryKeys = LongArray(table.size / 2)
+    private var entryValues = arrayOfNulls<Any>(table.size / 2)
+
+    var size: Int = 0
+        private set
+
+    /**
+     * A read-only view (not a copy) of the keys of this map, in insertion order.
+     */
+    val keys: LongSet = object : LongSet() {
+
+        override val size: Int
+            get() = this@LongObjectMap.size
+
+        override fun contains(element: Long): Boolean = containsKey(element)
+
+        override fun iterator(): LongIterator = object : LongIterator() {
+            private var index = 0
+            override fun hasNext(): Boolean = index < size
+            override fun nextLong(): Long =
+                if (hasNext()) entryKeys[index++] else throw NoSuchElementException()
+        }
+    }
+
+    /**
+     * A read-only view (not a copy) of the values of this map, in insertion order.
+     */
+    val values: Collection<V> = object : AbstractCollection<V>() {
+
+        override val size: Int
+            get() = this@LongObjectMap.size
+
+        override fun iterator(): Iterator<V> = object : Iterator<V> {
+            private var index = 0
+            override fun hasNext(): Boolean = index < size
+            override fun next(): V =
+                if (hasNext()) valueAt(index++) else throw NoSuchElementException()
+        }
+    }
+
+    fun containsKey(key: Long): Boolean = table[tableIndexOf(key)] != 0
+
+    operator fun get(key: Long): V? {
+        val entryIndex = table[tableIndexOf(key)] - 1
+        return if (entryIndex >= 0) valueAt(entryIndex) else null
+    }
+
+    /**
+     * Returns the value of the given [key]. If there is no such value, the [defaultValue] is put
+     * in this map and returned.
+     */
+    inline fun getOrPut(key: Long, defaultValue: () -> V): V =
+        get(key) ?: defaultValue().also { set(key, it) }
+
+    /**
+     * Puts the given [value] for the given [key], replacing the previous value (if any) without
+     * changing the insertion order.
+     */
+    operator fun set(key: Long, value: V) {
+        val tableIndex = tableIndexOf(key)
+        val entryIndex = table[tableIndex] - 1
+        if (entryIndex >= 0) {
+            entryValues[entryIndex] = value
+            return
+        }
+
+        if (size == entryKeys.size) {
+            entryKeys = entryKeys.copyOf(size * 2)
+            entryValues = entryValues.copyOf(size * 2)
+        }
+        entryKeys[size] = key
+        entryValues[size] = value
+        table[tableIndex] = ++size
+
+        if (size > table.size * MAX_LOAD_FACTOR) {
+            rehash()
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun valueAt(entryIndex: Int): V = entryValues[entryIndex] as V
+
+    private fun tableIndexOf(key: Long): Int {
+        val mask = table.size - 1
+        var index = hash(key) and mask
+        while (table[index] != 0 && entryKeys[table[index] - 1] != key) {
+            index = (index + 1) and mask
+        }
+        return index
+    }
+
+    private fun rehash() {
+        table = IntArray(table.size * 2)
+        for (entryIndex in 0 until size) {
+            table[tableIndexOf(entryKeys[entryIndex])] = entryIndex + 1
+        }
+    }
+}
+
+/**
+ * Returns a new set containing the elements that are in both this and the [other] set.
+ *
+ * Only the smaller set is iterated. Elements are not boxed if the sets are [LongHashSet]s.
+ */
+internal infix fun Set<Long>.intersectLongs(other: Set<Long>): LongHashSet {
+    val (smaller, larger) = if (size <= other.size) this to other else other to this
+    val result = LongHashSet(smaller.size)
+    val iterator = smaller.iterator()
+    if (iterator is LongIterator) {
+        while (iterator.hasNext()) {
+            val element = iterator.nextLong()
+            if (larger.containsLong(element)) {
+                result.add(element)
+            }
+        }
+    } else {
+        for (element in iterator) {
+            if (larger.containsLong(element)) {
+                result.add(element)
+            }
+        }
+    }
+    return result
+}
+
+/**
+ * Returns a new set containing the elements that are in this or the [other] set.
+ */
+internal infix fun Set<Long>.unionLongs(other: Set<Long>): LongHashSet =
+    LongHashSet(size + other.size).apply {
+        addAllFrom(this@unionLongs)
+        addAllFrom(other)
+    }
+
+// The smart cast makes sure that the primitive contains of the LongHashSet is used.
+private fun Set<Long>.containsLong(element: Long): Boolean =
+    if (this is LongHashSet) contains(element) else contains(element)
+
+private const val MIN_TABLE_SIZE = 16
+private const val MAX_LOAD_FACTOR = 0.5
+
+/**
+ * Returns the smallest power of two table size that can hold the [expectedSize] without exceeding
+ * the [MAX_LOAD_FACTOR].
+ */
+private fun tableSizeFor(expectedSize: Int): Int {
+    var tableSize = MIN_TABLE_SIZE
+    while (tableSize * MAX_LOAD_FACTOR < expectedSize) {
+        tableSize *= 2
+    }
+    return tableSize
+}
+
+/**
+ * Spreads the bits of the [key] so that sequential ids (which is usually the case) do not cluster
+ * in the table.
+ */
+private fun hash(key: Long): Int {
+    val mixed = key * -7046029254386353131L
+    return (mixed xor (mixed ushr 32)).toInt()
+}
+
+/**
+ * Returns the index of the [key] in the [keys] table, or the index of the empty slot where it
+ * should be put.
+ */
+private fun slotIndexOf(keys: LongArray, key: Long): Int {
+    val mask = keys.size - 1
+    var index = hash(key) and mask
+    while (keys[index] != 0L && keys[index] != key) {
+        index = (index + 1) and mask
+    }
+    return index
+}
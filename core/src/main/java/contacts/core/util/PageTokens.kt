@@ -0,0 +1,127 @@
+package contacts.core.util
+
+import android.net.Uri
+import contacts.core.CompoundOrderBy
+import contacts.core.Contacts
+import contacts.core.ContactsException
+import contacts.core.ContactsField
+import contacts.core.ContactsFields
+import contacts.core.Descending
+import contacts.core.Include
+import contacts.core.OrderBy
+import contacts.core.Where
+import contacts.core.and
+import contacts.core.asc
+import contacts.core.entities.table.Table
+import contacts.core.equalTo
+import contacts.core.greaterThan
+import contacts.core.isNotNull
+import contacts.core.isNull
+import contacts.core.lessThan
+import contacts.core.or
+
+// A page token encodes the values of the order by columns of the last Contact in a page, keyed by
+// the order by. For example, "display_name%20COLLATE%20NOCASE%20ASC=John,_id%20ASC=3". Null values
+// are encoded by omitting the "=". The next page is then all Contacts that come after those values
+// in the same order, which the database can look up without skipping all the previous pages.
+
+/**
+ * Returns this order by with the Contact id appended, if not yet included, so that Contacts with
+ * the same values for all other order by columns are still ordered consistently. This is required
+ * for page tokens.
+ */
+internal fun CompoundOrderBy<ContactsField>.withContactIdTieBreaker(): CompoundOrderBy<ContactsField> =
+    if (orderBys.any { it.field == ContactsFields.Id }) {
+        this
+    } else {
+        CompoundOrderBy(orderBys + ContactsFields.Id.asc())
+    }
+
+/**
+ * Returns the page token of the Contact with the given [contactId] for the given [orderBy], which
+ * should already have a [withContactIdTieBreaker]. Returns null if the Contact no longer exists.
+ */
+internal fun Contacts.pageTokenOf(
+    contactId: Long, orderBy: CompoundOrderBy<ContactsField>
+): String? = query(
+    Table.Contacts,
+    Include(orderBy.orderBys.map { it.field }.toSet()),
+    ContactsFields.Id equalTo contactId
+) {
+    val cursor = it.cursor
+    if (!cursor.moveToFirst()) {
+        return@query null
+    }
+
+    orderBy.orderBys.joinToString(",") { orderByField ->
+        val key = Uri.encode("$orderByField")
+        val columnIndex = cursor.getColumnIndexOrThrow(orderByField.field.columnName)
+        if (cursor.isNull(columnIndex)) {
+            key
+        } else {
+            "$key=${Uri.encode(cursor.getString(columnIndex))}"
+        }
+    }
+}
+
+/**
+ * Returns the Contacts table where that only matches the Contacts that come after the Contact that
+ * the [pageToken] was created from, in the given [orderBy] (which should already have a
+ * [withContactIdTieBreaker]).
+ *
+ * Throws a [ContactsException] if the [pageToken] is invalid or was created using a different
+ * [orderBy].
+ */
+internal fun contactsWhereAfter(
+    pageToken: String, orderBy: CompoundOrderBy<ContactsField>
+): Where<ContactsField> {
+    val values = pageToken.split(',').map { entry ->
+        Uri.decode(entry.substringBefore('=')) to if (entry.contains('=')) {
+            Uri.decode(entry.substringAfter('='))
+        } else {
+            null
+        }
+    }
+
+    if (values.map { it.first } != orderBy.orderBys.map { "$it" }) {
+        throw ContactsException("The page token does not match the order by: $orderBy")
+    }
+
+    // Contacts after the given values are those that have the same values for the first N
+    // columns and come after the value of the next column, for every N.
+    var where: Where<ContactsField>? = null
+    var sameValuesWhere: Where<ContactsField>? = null
+    for ((orderByField, value) in orderBy.orderBys.zip(values.map { it.second })) {
+        val afterWhere = orderByField.whereAfter(value)
+        if (afterWhere != null) {
+            val nextWhere = sameValuesWhere?.and(afterWhere) ?: afterWhere
+            where = where?.or(nextWhere) ?: nextWhere
+        }
+
+        val sameValueWhere = orderByField.whereEqualTo(value)
+        sameValuesWhere = sameValuesWhere?.and(sameValueWhere) ?: sameValueWhere
+    }
+
+    // The Contact id is always in the order by so this is never null.
+    return where ?: throw ContactsException("The page token does not match the order by: $orderBy")
+}
+
+/**
+ * The field to use in comparisons so that the order by collation is also used.
+ */
+private val OrderBy<ContactsField>.comparedField: ContactsField
+    get() = if (ignoreCase) ContactsField("${field.columnName} COLLATE NOCASE") else field
+
+/**
+ * Returns the where matching values that come after the given [value] in this order, or null if
+ * nothing can come after it. Nulls come first in ascending order.
+ */
+private fun OrderBy<ContactsField>.whereAfter(value: String?): Where<ContactsField>? =
+    if (this is Descending) {
+        value?.let { (comparedField lessThan it) or comparedField.isNull() }
+    } else {
+        value?.let { comparedField greaterThan it } ?: comparedField.isNotNull()
+    }
+
+private fun OrderBy<ContactsField>.whereEqualTo(value: String?): Where<ContactsField> =
+    value?.let { comparedField equalTo it } ?: comparedField.isNull()
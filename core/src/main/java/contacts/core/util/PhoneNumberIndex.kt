@@ -0,0 +1,362 @@
+package contacts.core.util
+
+import android.database.ContentObserver
+import android.provider.ContactsContract
+import android.telephony.PhoneNumberUtils
+import contacts.core.AbstractDataField
+import contacts.core.Contacts
+import contacts.core.Fields
+import contacts.core.Include
+import contacts.core.PhoneLookupQuery
+import contacts.core.RawContactsFields
+import contacts.core.`in`
+import contacts.core.and
+import contacts.core.contentResolver
+import contacts.core.entities.MimeType
+import contacts.core.entities.cursor.dataCursor
+import contacts.core.entities.cursor.phoneCursor
+import contacts.core.entities.cursor.rawContactsCursor
+import contacts.core.entities.table.Table
+import contacts.core.equalTo
+import contacts.core.notEqualTo
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * An opt-in, in-memory index of the phone numbers of all Contacts. Once built, looking up the
+ * Contacts that have a phone number does not query the Contacts Provider at all. This is useful
+ * for caller IDs of incoming calls, where the lookup needs to be as fast as possible.
+ *
+ * The index is built using a single Data table query. After that, it is kept up to date by
+ * [update], which only re-reads the phone numbers of the RawContacts that have changed since the
+ * last update (determined by the RawContacts' version). Use [startObserving] to automatically
+ * update the index whenever contacts data changes.
+ *
+ * The index holds on to every phone number in the Contacts Provider. Only use this if the memory
+ * cost is acceptable, otherwise use [PhoneLookupQuery].
+ *
+ * ## Usage
+ *
+ * ```kotlin
+ * val phoneNumberIndex = PhoneNumberIndex(contacts)
+ * phoneNumberIndex.startObserving(executor)
+ *
+ * // Whenever there is an incoming call.
+ * val contactIds = phoneNumberIndex.contactIdsMatching(incomingNumber)
+ *
+ * // When the index is no longer needed.
+ * phoneNumberIndex.stopObserving()
+ * ```
+ *
+ * ## Matching
+ *
+ * Phone numbers are first matched exactly against the [Fields.Phone.NormalizedNumber] (E164
+ * format). If there are no matches, then phone numbers sharing the same suffix are compared using
+ * [PhoneNumberUtils.compare], which ignores formatting and country codes. This is similar to (but
+ * not exactly the same as) the matching done by [PhoneLookupQuery], which may differ across OEMs
+ * and Android versions.
+ *
+ * The profile Contact is not included.
+ *
+ * ## Permissions
+ *
+ * The [contacts.core.ContactsPermissions.READ_PERMISSION] is required to build and update the
+ * index. Otherwise, the index remains empty.
+ *
+ * ## Thread Safety
+ *
+ * This is thread-safe. Lookups may be done in any thread while the index is being updated in
+ * another thread. The [update] function should be called in a background thread.
+ */
+class PhoneNumberIndex(private val contactsApi: Contacts) {
+
+    // All of the following are guarded by the lock.
+    private val lock = Any()
+    private val rawContacts = HashMap<Long, IndexedRawContact>()
+    private val rawContactIdsByNormalizedNumber = HashMap<String, MutableSet<Long>>()
+    private val phonesByMinMatch = HashMap<String, MutableList<IndexedPhone>>()
+
+    // Ensures that only one update is done at a time.
+    private val updateLock = Any()
+
+    private var observer: ContentObserver? = null
+
+    /**
+     * Returns the ids of the Contacts that have a phone number matching the given [number].
+     *
+     * This does not query the Contacts Provider. If the index has not yet been built, this
+     * returns an empty set.
+     */
+    fun contactIdsMatching(number: String): Set<Long> {
+        val minMatch = number.minMatch()
+
+        synchronized(lock) {
+            rawContactIdsByNormalizedNumber[number]?.let { rawContactIds ->
+                return rawContactIds.mapNotNullTo(mutableSetOf()) { rawContacts[it]?.contactId }
+            }
+
+            return phonesByMinMatch[minMatch ?: return emptySet()]
+                ?.filter { it.matches(number) }
+                ?.mapNotNullTo(mutableSetOf()) { rawContacts[it.rawContactId]?.contactId }
+                ?: emptySet()
+        }
+    }
+
+    /**
+     * Builds the index if it has not yet been built. Otherwise, updates the index with the phone
+     * numbers of the RawContacts that have been added, changed, or deleted since the last update.
+     *
+     * Lookups via [contactIdsMatching] use the previous state of the index until the update
+     * completes.
+     *
+     * ## Permissions
+     *
+     * Requires [contacts.core.ContactsPermissions.READ_PERMISSION].
+     *
+     * ## Thread Safety
+     *
+     * This should be called in a background thread to avoid blocking the UI thread.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun update() {
+        update { false }
+    }
+
+    /**
+     * See [update].
+     *
+     * ## Cancellation
+     *
+     * To cancel at any time, the [cancel] function should return true. The index is left as it
+     * was before this was called if cancelled.
+     */
+    // [ANDROID X] @WorkerThread (not using annotation to avoid dependency on androidx.annotation)
+    fun update(cancel: () -> Boolean): Unit = synchronized(updateLock) {
+        if (!contactsApi.permissions.canQuery()) {
+            return
+        }
+
+        val rawContactVersions = contactsApi.findRawContactVersions(cancel)
+        if (cancel()) {
+            return
+        }
+
+        val changedRawContactIds = synchronized(lock) {
+            rawContactVersions.filter { (rawContactId, version) ->
+                val rawContact = rawContacts[rawContactId]
+                rawContact == null || rawContact.version != version.version
+            }.keys
+        }
+
+        val phonesByRawContactId = contactsApi.findPhones(changedRawContactIds, cancel)
+        if (cancel()) {
+            return
+        }
+
+        synchronized(lock) {
+            // RawContacts that no longer exist.
+            for (rawContactId in rawContacts.keys - rawContactVersions.keys) {
+                removeRawContact(rawContactId)
+            }
+
+            for ((rawContactId, version) in rawContactVersions) {
+                if (rawContactId in changedRawContactIds) {
+                    removeRawContact(rawContactId)
+                    addRawContact(
+                        rawContactId, version, phonesByRawContactId[rawContactId].orEmpty()
+                    )
+                } else {
+                    // The Contact may have changed due to linking or unlinking, which does not
+                    // change the version.
+                    val rawContact = rawContacts.getValue(rawContactId)
+                    if (rawContact.contactId != version.contactId) {
+                        rawContacts[rawContactId] = rawContact.copy(contactId = version.contactId)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts observing changes to contacts data, updating the index using the given [executor]
+     * whenever there are changes. This also updates the index right away.
+     *
+     * Changes that occur while an update is pending only result in one update.
+     *
+     * This does nothing if already observing. Call [stopObserving] when the index is no longer
+     * needed to avoid leaking this instance.
+     */
+    fun startObserving(executor: Executor) {
+        val isUpdatePending = AtomicBoolean(false)
+        val requestUpdate = {
+            if (isUpdatePending.compareAndSet(false, true)) {
+                executor.execute {
+                    // Changes that occur during the update must request another update.
+                    isUpdatePending.set(false)
+                    update()
+                }
+            }
+        }
+
+        val observer = object : ContentObserver(null) {
+            override fun onChange(selfChange: Boolean) {
+                requestUpdate()
+            }
+        }
+
+        synchronized(lock) {
+            if (this.observer != null) {
+                return
+            }
+            this.observer = observer
+        }
+
+        // All contacts data changes are notified on the Data table uri or its ancestor.
+        contactsApi.contentResolver.registerContentObserver(
+            ContactsContract.Data.CONTENT_URI, true, observer
+        )
+        requestUpdate()
+    }
+
+    /**
+     * Stops observing changes to contacts data. The index is no longer updated automatically
+     * after this is called but it is still usable.
+     */
+    fun stopObserving() {
+        val observer = synchronized(lock) {
+            observer.also { observer = null }
+        } ?: return
+
+        contactsApi.contentResolver.unregisterContentObserver(observer)
+    }
+
+    // The lock must be held when calling the following functions.
+
+    private fun addRawContact(
+        rawContactId: Long, version: RawContactVersion, phones: List<IndexedPhone>
+    ) {
+        rawContacts[rawContactId] = IndexedRawContact(version.contactId, version.version, phones)
+
+        for (phone in phones) {
+            phone.normalizedNumber?.let {
+                rawContactIdsByNormalizedNumber.getOrPut(it) { mutableSetOf() }.add(rawContactId)
+            }
+            phone.minMatch?.let {
+                phonesByMinMatch.getOrPut(it) { mutableListOf() }.add(phone)
+            }
+        }
+    }
+
+    private fun removeRawContact(rawContactId: Long) {
+        val rawContact = rawContacts.remove(rawContactId) ?: return
+
+        for (phone in rawContact.phones) {
+            phone.normalizedNumber?.let { normalizedNumber ->
+                rawContactIdsByNormalizedNumber[normalizedNumber]?.let {
+                    it.remove(rawContactId)
+                    if (it.isEmpty()) {
+                        rawContactIdsByNormalizedNumber.remove(normalizedNumber)
+                    }
+                }
+            }
+            phone.minMatch?.let { minMatch ->
+                phonesByMinMatch[minMatch]?.let {
+                    it.remove(phone)
+                    if (it.isEmpty()) {
+                        phonesByMinMatch.remove(minMatch)
+                    }
+                }
+            }
+        }
+    }
+}
+
+private data class IndexedRawContact(
+    val contactId: Long,
+    val version: Long?,
+    val phones: List<IndexedPhone>
+)
+
+// This is intentionally not a data class so that it is removed from the index by identity.
+private class IndexedPhone(
+    val rawContactId: Long,
+    val number: String?,
+    val normalizedNumber: String?
+) {
+    val minMatch: String? = (normalizedNumber ?: number)?.minMatch()
+
+    fun matches(number: String): Boolean =
+        (this.number != null && PhoneNumberUtils.compare(this.number, number))
+                || (normalizedNumber != null && PhoneNumberUtils.compare(normalizedNumber, number))
+}
+
+private class RawContactVersion(val contactId: Long, val version: Long?)
+
+/**
+ * Returns the suffix used to group phone numbers that may match each other, or null if this has
+ * no digits.
+ */
+private fun String.minMatch(): String? = PhoneNumberUtils.toCallerIDMinMatch(this)?.ifEmpty { null }
+
+/**
+ * Returns the contact id and version of every RawContact, keyed by RawContact id.
+ */
+private fun Contacts.findRawContactVersions(
+    cancel: () -> Boolean
+): Map<Long, RawContactVersion> = query(
+    Table.RawContacts,
+    Include(RawContactsFields.Id, RawContactsFields.ContactId, RawContactsFields.Version),
+    // There may be RawContacts that are marked for deletion that have not yet been deleted.
+    RawContactsFields.Deleted notEqualTo true
+) {
+    buildMap {
+        val rawContactsCursor = it.rawContactsCursor()
+        while (!cancel() && it.moveToNext()) {
+            put(
+                rawContactsCursor.rawContactId,
+                RawContactVersion(rawContactsCursor.contactId, rawContactsCursor.version)
+            )
+        }
+    }
+} ?: emptyMap()
+
+/**
+ * Returns the phone numbers of the RawContacts with the given [rawContactIds].
+ *
+ * When there are a lot of RawContacts (e.g. when building the index for the first time), all phone
+ * numbers are read in a single Data table query instead of splitting the ids into several queries.
+ */
+private fun Contacts.findPhones(
+    rawContactIds: Set<Long>, cancel: () -> Boolean
+): Map<Long, List<IndexedPhone>> {
+    if (rawContactIds.isEmpty()) {
+        return emptyMap()
+    }
+
+    return query(
+        Table.Data,
+        Include<AbstractDataField>(
+            Fields.RawContact.Id, Fields.Phone.Number, Fields.Phone.NormalizedNumber
+        ),
+        (Fields.MimeType equalTo MimeType.Phone) and if (
+            rawContactIds.size <= MAX_IDS_PER_IN_CLAUSE
+        ) {
+            Fields.RawContact.Id `in` rawContactIds
+        } else {
+            null
+        }
+    ) {
+        val phonesByRawContactId = mutableMapOf<Long, MutableList<IndexedPhone>>()
+        val dataCursor = it.dataCursor()
+        val phoneCursor = it.phoneCursor()
+        while (!cancel() && it.moveToNext()) {
+            val rawContactId = dataCursor.rawContactId
+            if (rawContactId in rawContactIds) {
+                phonesByRawContactId.getOrPut(rawContactId) { mutableListOf() }.add(
+                    IndexedPhone(rawContactId, phoneCursor.number, phoneCursor.normalizedNumber)
+                )
+            }
+        }
+        phonesByRawContactId
+    } ?: emptyMap()
+}
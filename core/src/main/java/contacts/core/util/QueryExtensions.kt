@@ -28,7 +28,7 @@ internal fun Contacts.findContactIdsInContactsTable(
         Table.Contacts, Include(ContactsFields.Id), contactsWhere,
         suppressDbExceptions = suppressDbExceptions
     ) {
-        buildSet {
+        LongHashSet().apply {
             val contactsCursor = it.contactsCursor()
             while (!cancel() && it.moveToNext()) {
                 add(contactsCursor.contactId)
@@ -53,7 +53,7 @@ internal fun Contacts.findContactIdsInRawContactsTable(
         (RawContactsFields.Deleted notEqualTo true) and rawContactsWhere,
         suppressDbExceptions = suppressDbExceptions
     ) {
-        buildSet {
+        LongHashSet().apply {
             val rawContactsCursor = it.rawContactsCursor()
             while (!cancel() && it.moveToNext()) {
                 add(rawContactsCursor.contactId)
@@ -75,7 +75,7 @@ internal fun Contacts.findRawContactIdsInRawContactsTable(
         (RawContactsFields.Deleted notEqualTo true) and rawContactsWhere,
         suppressDbExceptions = suppressDbExceptions
     ) {
-        buildSet {
+        LongHashSet().apply {
             val rawContactsCursor = it.rawContactsCursor()
             while (!cancel() && it.moveToNext()) {
                 add(rawContactsCursor.rawContactId)
@@ -92,7 +92,7 @@ internal fun Contacts.findContactIdsInDataTable(
     where: Where<AbstractDataField>?, cancel: () -> Boolean = { false }
 ): Set<Long> = if (cancel()) emptySet() else {
     query(Table.Data, Include(Fields.Contact.Id), where) {
-        buildSet {
+        LongHashSet().apply {
             val contactsCursor = it.dataContactsCursor()
             while (!cancel() && it.moveToNext()) {
                 add(contactsCursor.contactId)
@@ -104,7 +104,7 @@ internal fun Contacts.findContactIdsInDataTable(
 internal fun Contacts.findRawContactIdsInDataTable(
     where: Where<AbstractDataField>, cancel: () -> Boolean = { false }
 ): Set<Long> = query(Table.Data, Include(Fields.RawContact.Id), where) { cursor ->
-    buildSet {
+    LongHashSet().apply {
         val dataCursor = cursor.dataCursor()
         while (!cancel() && cursor.moveToNext()) {
             add(dataCursor.rawContactId)
@@ -112,4 +112,47 @@ internal fun Contacts.findRawContactIdsInDataTable(
     }
 } ?: emptySet()
 
-// endregion
\ No newline at end of file
+// endregion
+// region IN clause chunking
+
+/**
+ * The max number of ids placed in a single `IN` clause.
+ *
+ * Each id is bound as its own argument (see [Where.selectionArgs]). SQLite versions prior to
+ * 3.32.0 (below API 31) limit the number of arguments in a statement to 999, beyond which all
+ * values are inlined instead. This is below that limit, leaving room for the arguments of the rest
+ * of the where (e.g. account and group filters), so that chunked queries are bound and their
+ * compiled statements may be reused.
+ */
+internal const val MAX_IDS_PER_IN_CLAUSE = 900
+
+/**
+ * Splits this collection into chunks of at most [maxSize] values, each of which may be used in its
+ * own `IN` clause.
+ *
+ * Collections that do not exceed the max (including empty collections) are returned as is in a
+ * single chunk so that callers behave exactly as they would without chunking.
+ *
+ * Chunks are produced lazily so that only one chunk needs to be in memory at a time.
+ */
+@Suppress("UNCHECKED_CAST")
+internal fun <T> Collection<T>.inClauseChunks(
+    maxSize: Int = MAX_IDS_PER_IN_CLAUSE
+): Sequence<Collection<T>> =
+    if (size <= maxSize) {
+        sequenceOf(this)
+    } else if (this is LongSet) {
+        // Keep the ids unboxed.
+        chunked(maxSize) as Sequence<Collection<T>>
+    } else {
+        asSequence().chunked(maxSize)
+    }
+
+/**
+ * Same as [inClauseChunks] except that a null collection, which means that rows should not be
+ * restricted by id, produces a single null chunk.
+ */
+internal fun Collection<Long>?.inClauseChunksOrNull(): Sequence<Collection<Long>?> =
+    this?.inClauseChunks() ?: sequenceOf(null)
+
+// endregion
@@ -1,6 +1,8 @@
 package contacts.core.util
 
 import contacts.core.*
+import contacts.core.entities.MimeType
+import java.util.concurrent.Executor
 
 /**
  * Converts [this] Data where clause to a where clause that is usable for the Contacts table.
@@ -190,27 +192,41 @@ internal fun <T : Field, R : Field> Where<T>.copyWithFieldValueSubstitutions(
         }
     }
 
-internal fun Contacts.reduceDataTableWhereForMatchingContactIds(
+/**
+ * Returns the ids of the Contacts that have Data rows matching the given [where], reducing it as
+ * described in [reduceDataTableWhereForMatchingIds].
+ *
+ * If an [executor] is provided, the Data table queries are done concurrently.
+ */
+internal fun Contacts.findMatchingContactIdsInDataTable(
     where: Where<AbstractDataField>,
-    cancel: () -> Boolean = { false }
-): Where<AbstractDataField> = reduceDataTableWhereForMatchingIds(
-    where, Fields.Contact.Id, cancel
+    cancel: () -> Boolean = { false },
+    executor: Executor? = null
+): Set<Long> = reduceDataTableWhereForMatchingIds(
+    where, Fields.Contact.Id, cancel, executor
 ) {
     findContactIdsInDataTable(it, cancel)
 }
 
-internal fun Contacts.reduceDataTableWhereForMatchingRawContactIds(
+/**
+ * Returns the ids of the RawContacts that have Data rows matching the given [where], reducing it
+ * as described in [reduceDataTableWhereForMatchingIds].
+ *
+ * If an [executor] is provided, the Data table queries are done concurrently.
+ */
+internal fun Contacts.findMatchingRawContactIdsInDataTable(
     where: Where<AbstractDataField>,
-    cancel: () -> Boolean = { false }
-): Where<AbstractDataField> = reduceDataTableWhereForMatchingIds(
-    where, Fields.RawContact.Id, cancel
+    cancel: () -> Boolean = { false },
+    executor: Executor? = null
+): Set<Long> = reduceDataTableWhereForMatchingIds(
+    where, Fields.RawContact.Id, cancel, executor
 ) {
     findRawContactIdsInDataTable(it, cancel)
 }
 
 /**
- * Returns a "reduced" copy of the given [where] clause to ensure that it is able match rows for
- * Contact or RawContact IDs in the Data table.
+ * "Reduces" the given [where] clause to ensure that it is able match rows for Contact or RawContact
+ * IDs in the Data table and returns the matching IDs.
  *
  * The following will always match 0 rows in the Data table,
  *
@@ -257,6 +273,18 @@ internal fun Contacts.reduceDataTableWhereForMatchingRawContactIds(
  * IDs in the Data table for queries which should otherwise be impossible =)
  *
  * More context in https://github.com/vestrel00/contacts-android/issues/142#issuecomment-1000948529
+ *
+ * ## In-memory ID sets
+ *
+ * I used to substitute the ContactIDs back into the where as an "IN" clause, which made each
+ * reduction wait for the previous one and sent ever larger "IN" clauses to the database. However,
+ * "ContactIDs and Phone" matches the same rows as the IDs matching "Phone" that are also in
+ * ContactIDs. So, every reduced where is instead kept as a set of IDs AND a remaining (residual)
+ * where. The queries for the residual wheres do not depend on each other so they are all submitted
+ * to the [executor] right away and their results are intersected (AND) or united (OR) in memory.
+ *
+ * In example #2, the Email, Phone, Organization, and Website queries are all done concurrently and
+ * only the final set of IDs is returned.
  */
 // To reduce confusion and potential for bugs within the function body due to overlapping scope.
 // Do NOT declare this as Where<AbstractDataField>.reduceDataTableWhereForMatchingIds
@@ -264,98 +292,185 @@ private fun reduceDataTableWhereForMatchingIds(
     where: Where<AbstractDataField>,
     idField: AbstractDataField,
     cancel: () -> Boolean,
+    executor: Executor?,
     findIdsInDataTable: (where: Where<AbstractDataField>) -> Set<Long>,
-): Where<AbstractDataField> = if (cancel()) {
-    where
+): Set<Long> = if (cancel()) {
+    emptySet()
 } else {
-    where.copyWithSubstitutions { lhs, operator, rhs, options, isRedacted ->
-        // The following code block assumes that the where binary tree is being traversed in
-        // **post-order**, making substitutions as necessary in order to keep one side of the
-        // where AND where free of mimetype-aware fields.
-        // Note that **post-order** traversal is very important here.
-        if (
-            operator == Operator.Combine.And &&
-            (lhs.mimeTypes.isNotEmpty() && rhs.mimeTypes.isNotEmpty()) &&
-            lhs.mimeTypes != rhs.mimeTypes
-        ) {
-            // Reduce the side that has the lesser amount of unique mime types.
-            val lhsHasLessMimeTypes = lhs.mimeTypes.size < rhs.mimeTypes.size
-            val lhsHasIdAccumulator = hasIdAccumulator(idField, lhs)
-            val rhsHasIdAccumulator = hasIdAccumulator(idField, rhs)
+    IdsReducer(idField, executor, findIdsInDataTable).run { reduce(where).findIds() }
+}
+
+/**
+ * A [where] clause that has been reduced by an [IdsReducer]. It matches the Data rows of the
+ * Contacts or RawContacts with the [ids] that also match the [residualWhere].
+ *
+ * A null [ids] matches all IDs. A null [residualWhere] matches all Data rows. Both are never null.
+ */
+private class ReducedWhere(
+    val ids: (() -> Set<Long>)?,
+    val residualWhere: Where<AbstractDataField>?
+) {
+    val mimeTypes: Set<MimeType>
+        get() = residualWhere?.mimeTypes ?: emptySet()
+}
+
+private class IdsReducer(
+    private val idField: AbstractDataField,
+    private val executor: Executor?,
+    private val findIdsInDataTable: (where: Where<AbstractDataField>) -> Set<Long>
+) {
+
+    /**
+     * Reduces the given [where] by traversing its binary tree in **post-order**, keeping one side
+     * of every where AND where free of mimetype-aware fields. Note that **post-order** traversal is
+     * very important here.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun reduce(where: Where<AbstractDataField>): ReducedWhere = where.run {
+        when (lhs) {
+            is FieldHolder if operator is Operator.Match && rhs is ValueHolder -> {
+                // Base case. Nothing to reduce.
+                ReducedWhere(null, this)
+            }
+            is WhereHolder if operator is Operator.Combine && rhs is WhereHolder -> {
+                // Recursive case. Traverse tree (post-order).
+                val lhsReduced = reduce(lhs.where as Where<AbstractDataField>)
+                val rhsReduced = reduce(rhs.where as Where<AbstractDataField>)
+
+                when (operator) {
+                    Operator.Combine.And -> reduceAnd(lhsReduced, rhsReduced, options, isRedacted)
+                    Operator.Combine.Or -> reduceOr(lhsReduced, rhsReduced, options, isRedacted)
+                }
+            }
+            else -> {
+                throw InvalidWhereFormException(this)
+            }
+        }
+    }
+
+    private fun reduceAnd(
+        lhs: ReducedWhere, rhs: ReducedWhere, options: String?, isRedacted: Boolean
+    ): ReducedWhere = if (
+        (lhs.mimeTypes.isNotEmpty() && rhs.mimeTypes.isNotEmpty()) &&
+        lhs.mimeTypes != rhs.mimeTypes
+    ) {
+        // Reduce the side that has the lesser amount of unique mime types.
+        val lhsHasLessMimeTypes = lhs.mimeTypes.size < rhs.mimeTypes.size
+        val lhsHasIdAccumulator = lhs.hasIdAccumulator()
+        val rhsHasIdAccumulator = rhs.hasIdAccumulator()
 
-            // Whichever side has the Contact or RawContact Id accumulator gets priority. Otherwise,
-            // priority is determined based on mime type count (lower mimetype count, higher priority).
-            val reduceLhs = lhsHasIdAccumulator || (lhsHasLessMimeTypes && !rhsHasIdAccumulator)
+        // Whichever side has the Contact or RawContact Id accumulator gets priority. Otherwise,
+        // priority is determined based on mime type count (lower mimetype count, higher priority).
+        val reduceLhs = lhsHasIdAccumulator || (lhsHasLessMimeTypes && !rhsHasIdAccumulator)
+
+        val (reduced, other) = if (reduceLhs) lhs to rhs else rhs to lhs
+        ReducedWhere(
+            intersect(lhs.ids, rhs.ids, reduced.residualWhere?.let(::submit)),
+            other.residualWhere
+        )
+    } else {
+        // No need to reduce.
+        // E.G. Raw/ContactIDs and Phone, Raw/ContactIDs, Email AND Email
+        ReducedWhere(
+            intersect(lhs.ids, rhs.ids),
+            combine(lhs.residualWhere, Operator.Combine.And, rhs.residualWhere, options, isRedacted)
+        )
+    }
 
+    private fun reduceOr(
+        lhs: ReducedWhere, rhs: ReducedWhere, options: String?, isRedacted: Boolean
+    ): ReducedWhere = if (lhs.ids == null && rhs.ids == null) {
+        // No need to reduce. E.G. Email OR Phone
+        ReducedWhere(
+            null,
+            combine(lhs.residualWhere, Operator.Combine.Or, rhs.residualWhere, options, isRedacted)
+        )
+    } else if (lhs.residualWhere == null && rhs.residualWhere == null) {
+        // Raw/ContactIDs OR Raw/ContactIDs
+        ReducedWhere(unite(lhs.ids, rhs.ids), null)
+    } else {
+        // "(IDs and Phone) OR Email" cannot be split into a set of IDs and a residual where. So,
+        // this falls back to putting the IDs back into the where, which needs to wait for them.
+        ReducedWhere(
+            null,
             Where(
-                WhereHolder(
-                    if (reduceLhs) {
-                        idField `in` findIdsInDataTable(lhs)
-                    } else {
-                        lhs
-                    }
-                ),
-                operator,
-                WhereHolder(
-                    if (reduceLhs) {
-                        rhs
-                    } else {
-                        idField `in` findIdsInDataTable(rhs)
-                    }
-                ),
+                WhereHolder(lhs.toWhere()),
+                Operator.Combine.Or,
+                WhereHolder(rhs.toWhere()),
                 options,
                 isRedacted
             )
+        )
+    }
+
+    /**
+     * Returns the IDs matched by this reduced where, waiting for all queries to complete.
+     */
+    fun ReducedWhere.findIds(): Set<Long> =
+        intersect(ids, residualWhere?.let(::submit))?.invoke() ?: emptySet()
+
+    private fun ReducedWhere.hasIdAccumulator(): Boolean =
+        ids != null || (residualWhere != null && hasIdAccumulator(idField, residualWhere))
+
+    private fun ReducedWhere.toWhere(): Where<AbstractDataField> {
+        val idsWhere = ids?.let { idField `in` it() }
+        return if (idsWhere != null && residualWhere != null) {
+            idsWhere and residualWhere
         } else {
-            // No need to reduce. Just return this.
-            // E.G. Email OR Phone, Raw/ContactIDs and Phone, Raw/ContactIDs, Email AND Email
-            Where(WhereHolder(lhs), operator, WhereHolder(rhs), options, isRedacted)
+            checkNotNull(idsWhere ?: residualWhere)
         }
     }
-}
 
-/**
- * Performs a post-order traversal (lhs, rhs, this), from leaf nodes bubbling up to the root node,
- * of the Where binary tree structure and returns a copy of this by making substitutions along the way using [substitute].
- */
-@Suppress("UNCHECKED_CAST")
-private fun <T : Field> Where<T>.copyWithSubstitutions(
+    private fun submit(where: Where<AbstractDataField>): () -> Set<Long> =
+        executor.submit { findIdsInDataTable(where) }
+
     /**
-     * A function that takes in a where clause of the form "where combine where" and returns a
-     * substitute where.
+     * Returns a function that intersects the results of the non-null [ids] in memory, or null if
+     * all of them are null.
      */
-    substitute: (
-        lhs: Where<T>,
-        operator: Operator.Combine,
-        rhs: Where<T>,
-        options: String?,
-        isRedacted: Boolean
-    ) -> Where<T>
-): Where<T> = when (lhs) {
-    is FieldHolder if operator is Operator.Match && rhs is ValueHolder -> {
-        // Base case. No substitutions at this level. Just return this as is.
-        this
-    }
-    is WhereHolder if operator is Operator.Combine && rhs is WhereHolder -> {
-        // Recursive case. Traverse tree (post-order).
-        val lhsSub = (lhs.where as Where<T>).copyWithSubstitutions(substitute)
-        val rhsSub = (rhs.where as Where<T>).copyWithSubstitutions(substitute)
+    private fun intersect(vararg ids: (() -> Set<Long>)?): (() -> Set<Long>)? {
+        val nonNullIds = ids.filterNotNull()
+        if (nonNullIds.size <= 1) {
+            return nonNullIds.firstOrNull()
+        }
 
-        // Pass in this Where's evaluated components instead of the entire where to avoid requiring
-        // callers to perform the casting.
-        substitute(
-            lhsSub,
-            operator,
-            rhsSub,
-            options,
-            isRedacted
-        )
+        return {
+            var result = nonNullIds.first().invoke()
+            for (otherIds in nonNullIds.drop(1)) {
+                // Skip waiting for the other results if there is nothing left to intersect.
+                if (result.isEmpty()) {
+                    break
+                }
+                result = result intersectLongs otherIds()
+            }
+            result
+        }
     }
-    else -> {
-        throw InvalidWhereFormException(this)
+
+    /**
+     * Returns a function that unites the results of the given [lhs] and [rhs] in memory.
+     */
+    private fun unite(lhs: (() -> Set<Long>)?, rhs: (() -> Set<Long>)?): (() -> Set<Long>)? {
+        if (lhs == null || rhs == null) {
+            return lhs ?: rhs
+        }
+
+        return { lhs() unionLongs rhs() }
     }
 }
 
+private fun combine(
+    lhs: Where<AbstractDataField>?,
+    operator: Operator.Combine,
+    rhs: Where<AbstractDataField>?,
+    options: String?,
+    isRedacted: Boolean
+): Where<AbstractDataField>? = if (lhs != null && rhs != null) {
+    Where(WhereHolder(lhs), operator, WhereHolder(rhs), options, isRedacted)
+} else {
+    lhs ?: rhs
+}
+
 private fun hasIdAccumulator(idField: AbstractDataField, where: Where<*>): Boolean = where.run {
     when (lhs) {
         is FieldHolder if operator is Operator.Match && rhs is ValueHolder -> {
@@ -60,6 +60,10 @@ private class TestContacts(private val contactsApi: Contacts) : Contacts {
         TODO("Not yet implemented")
     }
 
+    override fun contactSummaryQuery(): ContactSummaryQuery {
+        TODO("Not yet implemented")
+    }
+
     override fun insert(): Insert {
         TODO("Not yet implemented")
     }
@@ -2,7 +2,9 @@ package contacts.test
 
 import android.accounts.Account
 import contacts.core.*
+import contacts.core.entities.Contact
 import contacts.test.entities.TestDataFields
+import java.util.concurrent.Executor
 
 // Note that we cannot use "by" to delegate calls to the internal query because function calls will
 // return the internal query instance instead of this test instance.
@@ -91,11 +93,30 @@ internal class TestQuery(
         query.offset(offset)
     }
 
+    override fun after(pageToken: String?): TestQuery = apply {
+        query.after(pageToken)
+    }
+
     override fun forceOffsetAndLimit(forceOffsetAndLimit: Boolean): TestQuery = apply {
         query.forceOffsetAndLimit(forceOffsetAndLimit)
     }
 
+    override fun executor(executor: Executor?): TestQuery = apply {
+        query.executor(executor)
+    }
+
     override fun find(): Query.Result = query.find()
 
     override fun find(cancel: () -> Boolean): Query.Result = query.find(cancel)
+
+    override fun forEach(action: (Contact) -> Unit): Query.ForEachResult = query.forEach(action)
+
+    override fun forEach(
+        cancel: () -> Boolean,
+        action: (Contact) -> Unit
+    ): Query.ForEachResult = query.forEach(cancel, action)
+
+    override fun findColumns(): ContactsColumns = query.findColumns()
+
+    override fun findColumns(cancel: () -> Boolean): ContactsColumns = query.findColumns(cancel)
 }
\ No newline at end of file